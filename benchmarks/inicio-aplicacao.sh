@@ -0,0 +1,64 @@
+#!/usr/bin/env bash
+# Mede o tempo do lançamento do processo até o primeiro POST /api/compras com 201 em cada modo.
+# Requer MySQL (com o esquema de database/init.sql) e RabbitMQ no ar, e os artefatos de:
+#   mvn -Pinicio-rapido package        (jar, AOT e CDS)
+#   mvn -Pnative native:compile        (opcional, modo nativo)
+# Uso: ./benchmarks/inicio-aplicacao.sh [repetições] [porta]   (padrão: 5 e 8080)
+set -euo pipefail
+
+REPETICOES="${1:-5}"
+PORTA="${2:-8080}"
+ALVO="$(cd "$(dirname "$0")/.." && pwd)/target"
+JAR="${ALVO}/banco-tranquilo-integration-1.0.0-classes.jar"
+JAR_EXEC="${ALVO}/banco-tranquilo-integration-1.0.0.jar"
+CDS="${ALVO}/banco-tranquilo.jsa"
+NATIVO="${ALVO}/banco-tranquilo-integration"
+LOG="$(mktemp -t inicio-aplicacao-XXXX.log)"
+ARGS_APP=(--server.port="${PORTA}" --spring.profiles.active=producao)
+COMPRA='{"numeroCartao":"1234567890123456","cvv":"123","dataValidade":"12/30","valor":100.50,"emailCliente":"inicio@example.com","nomeCliente":"Teste de Início"}'
+
+agora_ms() { date +%s%3N; }
+
+# Inicia o comando, repete o POST até receber 201 e imprime os milissegundos decorridos
+medir() {
+  local inicio pid codigo
+  inicio=$(agora_ms)
+  "$@" "${ARGS_APP[@]}" >"${LOG}" 2>&1 &
+  pid=$!
+  while true; do
+    codigo=$(curl -s -o /dev/null -w '%{http_code}' --max-time 2 -H 'Content-Type: application/json' \
+      --data "${COMPRA}" "http://localhost:${PORTA}/api/compras" || true)
+    [ "${codigo}" = "201" ] && break
+    if ! kill -0 "${pid}" 2>/dev/null; then
+      echo "processo encerrou antes do primeiro POST, veja ${LOG}" >&2
+      return 1
+    fi
+    sleep 0.02
+  done
+  echo $(( $(agora_ms) - inicio ))
+  kill "${pid}"
+  wait "${pid}" 2>/dev/null || true
+}
+
+rodar() {
+  local modo="$1" artefato="$2" tempos=() ordenados
+  shift 2
+  if [ ! -e "${artefato}" ]; then
+    printf '| %-9s | %s |\n' "${modo}" "não gerado (${artefato#"${ALVO}/"})"
+    return
+  fi
+  for _ in $(seq "${REPETICOES}"); do
+    tempos+=("$(medir "$@")")
+  done
+  ordenados=($(printf '%s\n' "${tempos[@]}" | sort -n))
+  printf '| %-9s | mediana %6s ms | mín %6s ms | máx %6s ms |\n' "${modo}" \
+    "${ordenados[$(( ${#ordenados[@]} / 2 ))]}" "${ordenados[0]}" "${ordenados[-1]}"
+}
+
+echo "Tempo até o primeiro POST /api/compras (${REPETICOES} execuções por modo, porta ${PORTA})"
+rodar jar     "${JAR_EXEC}" java -jar "${JAR_EXEC}"
+rodar aot     "${ALVO}/spring-aot" java -Dspring.aot.enabled=true -jar "${JAR}"
+rodar cds     "${CDS}"      java -XX:SharedArchiveFile="${CDS}" -jar "${JAR}"
+rodar aot+cds "${CDS}"      java -XX:SharedArchiveFile="${CDS}" -Dspring.aot.enabled=true -jar "${JAR}"
+rodar nativo  "${NATIVO}"   "${NATIVO}"
+rm -f "${LOG}"
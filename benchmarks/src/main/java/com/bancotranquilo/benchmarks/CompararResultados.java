@@ -0,0 +1,75 @@
+package com.bancotranquilo.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compara dois resultados JSON do JMH (-rf json) e termina com código 1 se algum benchmark
+ * piorou mais que o limite percentual.
+ *
+ * Uso: java -cp target/benchmarks.jar com.bancotranquilo.benchmarks.CompararResultados base.json atual.json [limite%]
+ */
+public class CompararResultados {
+    
+    private static final double LIMITE_PADRAO = 10.0;
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: CompararResultados <base.json> <atual.json> [limite%]");
+            System.exit(2);
+        }
+        double limite = args.length > 2 ? Double.parseDouble(args[2]) : LIMITE_PADRAO;
+        
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, JsonNode> base = indexar(objectMapper.readTree(new File(args[0])));
+        Map<String, JsonNode> atual = indexar(objectMapper.readTree(new File(args[1])));
+        
+        int regressoes = 0;
+        for (Map.Entry<String, JsonNode> entrada : atual.entrySet()) {
+            JsonNode anterior = base.get(entrada.getKey());
+            if (anterior == null) {
+                System.out.printf("%-90s novo%n", entrada.getKey());
+                continue;
+            }
+            double scoreBase = anterior.path("primaryMetric").path("score").asDouble();
+            double scoreAtual = entrada.getValue().path("primaryMetric").path("score").asDouble();
+            String unidade = entrada.getValue().path("primaryMetric").path("scoreUnit").asText();
+            
+            // Em throughput maior é melhor; nos demais modos (tempo) menor é melhor
+            boolean maiorMelhor = "thrpt".equals(entrada.getValue().path("mode").asText());
+            double variacao = (scoreAtual - scoreBase) / scoreBase * 100.0;
+            double piora = maiorMelhor ? -variacao : variacao;
+            boolean regressao = piora > limite;
+            if (regressao) {
+                regressoes++;
+            }
+            System.out.printf("%-90s %12.3f -> %12.3f %-8s %+7.1f%%%s%n", entrada.getKey(),
+                    scoreBase, scoreAtual, unidade, variacao, regressao ? "  REGRESSÃO" : "");
+        }
+        
+        System.out.printf("%d regressão(ões) acima de %.1f%%%n", regressoes, limite);
+        if (regressoes > 0) {
+            System.exit(1);
+        }
+    }
+    
+    private static Map<String, JsonNode> indexar(JsonNode resultados) {
+        Map<String, JsonNode> indice = new LinkedHashMap<>();
+        for (JsonNode resultado : resultados) {
+            StringBuilder chave = new StringBuilder(resultado.path("benchmark").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = resultado.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                chave.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            indice.put(chave.toString(), resultado);
+        }
+        return indice;
+    }
+}
@@ -0,0 +1,76 @@
+package com.bancotranquilo.benchmarks;
+
+import com.bancotranquilo.mensagem.ConversorMensagemTransacao;
+import com.bancotranquilo.mensagem.FormatoMensagem;
+import com.bancotranquilo.model.dto.TransacaoRequest;
+import com.bancotranquilo.model.dto.TransacaoResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão das mensagens de transacoes.requisicoes e transacoes.respostas com o mesmo
+ * conversor configurado em RabbitMQConfig, nos dois formatos de publicação.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConversaoMensagemBenchmark {
+    
+    @Param({"JSON", "BINARIO"})
+    private FormatoMensagem formato;
+    
+    private MessageConverter conversor;
+    private TransacaoRequest request;
+    private TransacaoResponse response;
+    private Message mensagemRequest;
+    private Message mensagemResponse;
+    
+    @Setup
+    public void preparar() {
+        conversor = new ConversorMensagemTransacao(new Jackson2JsonMessageConverter(), formato,
+                new SimpleMeterRegistry());
+        request = TamanhoMensagens.request();
+        response = TamanhoMensagens.response();
+        
+        mensagemRequest = conversor.toMessage(request, new MessageProperties());
+        mensagemResponse = conversor.toMessage(response, new MessageProperties());
+    }
+    
+    @Benchmark
+    public Message serializarRequest() {
+        return conversor.toMessage(request, new MessageProperties());
+    }
+    
+    @Benchmark
+    public Object desserializarRequest() {
+        return conversor.fromMessage(mensagemRequest);
+    }
+    
+    @Benchmark
+    public Object idaEVoltaRequest() {
+        return conversor.fromMessage(conversor.toMessage(request, new MessageProperties()));
+    }
+    
+    @Benchmark
+    public Message serializarResponse() {
+        return conversor.toMessage(response, new MessageProperties());
+    }
+    
+    @Benchmark
+    public Object desserializarResponse() {
+        return conversor.fromMessage(mensagemResponse);
+    }
+    
+    @Benchmark
+    public Object idaEVoltaResponse() {
+        return conversor.fromMessage(conversor.toMessage(response, new MessageProperties()));
+    }
+}
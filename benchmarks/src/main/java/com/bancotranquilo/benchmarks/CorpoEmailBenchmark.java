@@ -0,0 +1,38 @@
+package com.bancotranquilo.benchmarks;
+
+import com.bancotranquilo.model.dto.EmailConfirmacao;
+import com.bancotranquilo.service.EmailService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Montagem do corpo do e-mail de confirmação (TemplateEmail pré-compilado).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CorpoEmailBenchmark {
+    
+    private EmailService emailService;
+    private EmailConfirmacao email;
+    
+    @Setup
+    public void preparar() {
+        // Somente construirCorpoEmail é exercitado: não há envio nem publicação
+        emailService = new EmailService(null, null, new SimpleMeterRegistry(), 1, 1, 1);
+        email = new EmailConfirmacao(123456L, "cliente@exemplo.com", "Maria da Silva",
+                new BigDecimal("149.9"), LocalDateTime.of(2024, 5, 17, 14, 30, 12));
+    }
+    
+    @Benchmark
+    public String construirCorpoEmail() {
+        return emailService.construirCorpoEmail(email);
+    }
+}
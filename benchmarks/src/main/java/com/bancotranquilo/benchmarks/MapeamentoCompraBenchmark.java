@@ -0,0 +1,68 @@
+package com.bancotranquilo.benchmarks;
+
+import com.bancotranquilo.model.Compra;
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.model.dto.CompraResponse;
+import com.bancotranquilo.model.dto.CompraResumo;
+import com.bancotranquilo.service.CompraMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapeamento de uma página de listarCompras para CompraResponse, a partir da entidade e
+ * da projeção lida pela listagem.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapeamentoCompraBenchmark {
+    
+    @Param({"50", "500"})
+    private int tamanhoPagina;
+    
+    private List<Compra> compras;
+    private List<CompraResumo> resumos;
+    
+    @Setup
+    public void preparar() {
+        StatusCompra[] status = StatusCompra.values();
+        LocalDateTime agora = LocalDateTime.now();
+        compras = new ArrayList<>(tamanhoPagina);
+        resumos = new ArrayList<>(tamanhoPagina);
+        for (int i = 0; i < tamanhoPagina; i++) {
+            StatusCompra statusCompra = status[i % status.length];
+            String mensagemErro = statusCompra == StatusCompra.REJEITADA ? "Saldo insuficiente" : null;
+            LocalDateTime dataConfirmacao = statusCompra == StatusCompra.CONFIRMADA ? agora : null;
+            
+            compras.add(new Compra((long) i, "4111111111111111", "123", "12/29", new BigDecimal("99.90"),
+                    "cliente" + i + "@exemplo.com", "Cliente " + i, statusCompra,
+                    agora.minusSeconds(i), dataConfirmacao, mensagemErro, null, null));
+            resumos.add(new CompraResumo((long) i, statusCompra, mensagemErro, agora.minusSeconds(i), dataConfirmacao));
+        }
+    }
+    
+    @Benchmark
+    public void mapearEntidades(Blackhole blackhole) {
+        for (Compra compra : compras) {
+            CompraResponse response = CompraMapper.paraResponse(compra);
+            blackhole.consume(response);
+        }
+    }
+    
+    @Benchmark
+    public void mapearResumos(Blackhole blackhole) {
+        for (CompraResumo resumo : resumos) {
+            CompraResponse response = CompraMapper.paraResponse(resumo);
+            blackhole.consume(response);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.bancotranquilo.benchmarks;
+
+import com.bancotranquilo.mensagem.ConversorMensagemTransacao;
+import com.bancotranquilo.mensagem.FormatoMensagem;
+import com.bancotranquilo.model.dto.TransacaoRequest;
+import com.bancotranquilo.model.dto.TransacaoResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Bytes por mensagem em cada formato: corpo e cabeçalhos adicionados pelo conversor.
+ * <p>
+ * Uso: {@code java -cp target/benchmarks.jar com.bancotranquilo.benchmarks.TamanhoMensagens}
+ */
+public class TamanhoMensagens {
+    
+    static TransacaoRequest request() {
+        return new TransacaoRequest(123456L, "4111111111111111", "123", "12/29",
+                new BigDecimal("149.90"), "cliente@exemplo.com", "Maria da Silva");
+    }
+    
+    static TransacaoResponse response() {
+        return new TransacaoResponse(123456L, true, "Transação aprovada com sucesso", "TXN1700000000000");
+    }
+    
+    public static void main(String[] args) {
+        System.out.printf("%-10s %-18s %8s %10s%n", "formato", "mensagem", "corpo", "cabecalhos");
+        for (FormatoMensagem formato : FormatoMensagem.values()) {
+            ConversorMensagemTransacao conversor = new ConversorMensagemTransacao(
+                    new Jackson2JsonMessageConverter(), formato, new SimpleMeterRegistry());
+            imprimir(formato, "TransacaoRequest", conversor.toMessage(request(), new MessageProperties()));
+            imprimir(formato, "TransacaoResponse", conversor.toMessage(response(), new MessageProperties()));
+        }
+    }
+    
+    private static void imprimir(FormatoMensagem formato, String tipo, Message mensagem) {
+        MessageProperties propriedades = mensagem.getMessageProperties();
+        int cabecalhos = propriedades.getContentType().getBytes(StandardCharsets.UTF_8).length;
+        for (Map.Entry<String, Object> header : propriedades.getHeaders().entrySet()) {
+            cabecalhos += header.getKey().getBytes(StandardCharsets.UTF_8).length
+                    + String.valueOf(header.getValue()).getBytes(StandardCharsets.UTF_8).length;
+        }
+        System.out.printf("%-10s %-18s %8d %10d%n", formato, tipo, mensagem.getBody().length, cabecalhos);
+    }
+}
@@ -0,0 +1,60 @@
+package com.bancotranquilo.benchmarks;
+
+import com.bancotranquilo.model.dto.CompraRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean validation de CompraRequest, incluindo o @Pattern de dataValidade, para um pedido
+ * válido e para um com todas as regras violadas (caminho que monta as mensagens).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidacaoCompraBenchmark {
+    
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private CompraRequest valida;
+    private CompraRequest invalida;
+    
+    @Setup
+    public void preparar() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        valida = new CompraRequest("4111111111111111", "123", "12/29", new BigDecimal("149.90"),
+                "cliente@exemplo.com", "Maria da Silva");
+        invalida = new CompraRequest("4111", "12", "13/2029", new BigDecimal("0"),
+                "cliente-sem-arroba", " ");
+    }
+    
+    @TearDown
+    public void encerrar() {
+        validatorFactory.close();
+    }
+    
+    @Benchmark
+    public Set<ConstraintViolation<CompraRequest>> validarCompraValida() {
+        return validator.validate(valida);
+    }
+    
+    @Benchmark
+    public Set<ConstraintViolation<CompraRequest>> validarCompraInvalida() {
+        return validator.validate(invalida);
+    }
+    
+    @Benchmark
+    public Set<ConstraintViolation<CompraRequest>> validarDataValidade() {
+        return validator.validateProperty(valida, "dataValidade");
+    }
+}
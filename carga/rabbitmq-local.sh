@@ -0,0 +1,19 @@
+#!/usr/bin/env bash
+# Sobe um RabbitMQ descartável para o teste de carga (requer rabbitmq-server instalado).
+# Uso: ./carga/rabbitmq-local.sh [porta]   (padrão: 5672)
+set -euo pipefail
+
+PORTA="${1:-5672}"
+BASE="$(mktemp -d -t rabbitmq-carga-XXXX)"
+
+export RABBITMQ_NODENAME="carga-${PORTA}@localhost"
+export RABBITMQ_NODE_PORT="${PORTA}"
+export RABBITMQ_DIST_PORT="$((PORTA + 20000))"
+export RABBITMQ_MNESIA_BASE="${BASE}/mnesia"
+export RABBITMQ_LOG_BASE="${BASE}/log"
+export RABBITMQ_ENABLED_PLUGINS_FILE="${BASE}/enabled_plugins"
+echo "[]." > "${RABBITMQ_ENABLED_PLUGINS_FILE}"
+
+trap 'rm -rf "${BASE}"' EXIT
+echo "RabbitMQ em localhost:${PORTA} (dados em ${BASE}); Ctrl+C para encerrar"
+rabbitmq-server
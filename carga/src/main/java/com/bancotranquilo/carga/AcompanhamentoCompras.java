@@ -0,0 +1,102 @@
+package com.bancotranquilo.carga;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Segue cada compra criada até o status final consultando o MySQL em lotes. A latência é
+ * medida a partir do instante previsto de envio (não do envio real), para não esconder o
+ * atraso do próprio gerador; a resolução é o intervalo de consulta.
+ */
+@Slf4j
+public class AcompanhamentoCompras {
+    
+    private static final int TAMANHO_CONSULTA = 1000;
+    
+    private final Map<Long, Long> emAndamento = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> latenciaPorStatus = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> statusFinais = new ConcurrentHashMap<>();
+    private final LongAdder concluidasNaJanela = new LongAdder();
+    private final long inicioMedicao;
+    private final long fimMedicao;
+    
+    public AcompanhamentoCompras(long inicioMedicaoNanos, long fimMedicaoNanos) {
+        this.inicioMedicao = inicioMedicaoNanos;
+        this.fimMedicao = fimMedicaoNanos;
+    }
+    
+    public void registrar(long compraId, long previstoNanos) {
+        emAndamento.put(compraId, previstoNanos);
+    }
+    
+    public int pendentes() {
+        return emAndamento.size();
+    }
+    
+    public void verificar(Connection conexao) throws SQLException {
+        List<Long> ids = new ArrayList<>(emAndamento.keySet());
+        for (int inicio = 0; inicio < ids.size(); inicio += TAMANHO_CONSULTA) {
+            verificarLote(conexao, ids.subList(inicio, Math.min(ids.size(), inicio + TAMANHO_CONSULTA)));
+        }
+    }
+    
+    private void verificarLote(Connection conexao, List<Long> ids) throws SQLException {
+        String marcadores = String.join(",", Collections.nCopies(ids.size(), "?"));
+        String sql = "SELECT id, status FROM compras WHERE id IN (" + marcadores + ") " +
+                     "AND status NOT IN ('PENDENTE', 'PROCESSANDO')";
+        try (PreparedStatement consulta = conexao.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                consulta.setLong(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = consulta.executeQuery()) {
+                long agora = System.nanoTime();
+                while (rs.next()) {
+                    concluir(rs.getLong("id"), rs.getString("status"), agora);
+                }
+            }
+        }
+    }
+    
+    private void concluir(long compraId, String status, long agora) {
+        Long previsto = emAndamento.remove(compraId);
+        if (previsto == null) {
+            return;
+        }
+        statusFinais.computeIfAbsent(status, chave -> new LongAdder()).increment();
+        if (agora >= inicioMedicao && agora < fimMedicao) {
+            concluidasNaJanela.increment();
+        }
+        if (previsto >= inicioMedicao) {
+            latenciaPorStatus.computeIfAbsent(status, chave -> new ConcurrentHistogram(3))
+                .recordValue(TimeUnit.NANOSECONDS.toMicros(agora - previsto));
+        }
+    }
+    
+    public Map<String, Histogram> getLatenciaPorStatus() {
+        return latenciaPorStatus;
+    }
+    
+    public Map<String, Long> getStatusFinais() {
+        Map<String, Long> resumo = new TreeMap<>();
+        statusFinais.forEach((status, contador) -> resumo.put(status, contador.sum()));
+        return resumo;
+    }
+    
+    public long getConcluidasNaJanela() {
+        return concluidasNaJanela.sum();
+    }
+}
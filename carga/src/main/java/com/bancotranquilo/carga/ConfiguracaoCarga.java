@@ -0,0 +1,80 @@
+package com.bancotranquilo.carga;
+
+import com.bancotranquilo.emulador.ConfiguracaoEmulador;
+import com.bancotranquilo.emulador.DistribuicaoLatencia;
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parâmetros do teste de carga, lidos de argumentos {@code --chave=valor}. Argumentos
+ * {@code --app.<propriedade>=valor} são repassados para a aplicação.
+ */
+@Data
+public class ConfiguracaoCarga {
+    
+    private double taxa = 100;
+    private int duracao = 60;
+    private int aquecimento = 10;
+    private int esperaFinal = 60;
+    private double aprovacao = 0.8;
+    private long latenciaBanco = 20;
+    private String distribuicaoBanco = "exponencial";
+    private double dispersaoBanco = 0.5;
+    private double erroBanco = 0;
+    private double timeoutBanco = 0;
+    private Long semente;
+    private String rabbitmqHost = "localhost";
+    private int rabbitmqPorta = 5672;
+    private long intervaloAcompanhamento = 100;
+    private String saida = "resultados";
+    private Map<String, Object> propriedadesApp = new LinkedHashMap<>();
+    
+    public static ConfiguracaoCarga de(String[] args) {
+        ConfiguracaoCarga configuracao = new ConfiguracaoCarga();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento inválido (use --chave=valor): " + arg);
+            }
+            String chave = arg.substring(2, arg.indexOf('='));
+            String valor = arg.substring(arg.indexOf('=') + 1);
+            
+            if (chave.startsWith("app.")) {
+                configuracao.propriedadesApp.put(chave.substring(4), valor);
+                continue;
+            }
+            switch (chave) {
+                case "taxa" -> configuracao.taxa = Double.parseDouble(valor);
+                case "duracao" -> configuracao.duracao = Integer.parseInt(valor);
+                case "aquecimento" -> configuracao.aquecimento = Integer.parseInt(valor);
+                case "espera-final" -> configuracao.esperaFinal = Integer.parseInt(valor);
+                case "aprovacao" -> configuracao.aprovacao = Double.parseDouble(valor);
+                case "latencia-banco" -> configuracao.latenciaBanco = Long.parseLong(valor);
+                case "distribuicao-banco" -> configuracao.distribuicaoBanco = valor;
+                case "dispersao-banco" -> configuracao.dispersaoBanco = Double.parseDouble(valor);
+                case "erro-banco" -> configuracao.erroBanco = Double.parseDouble(valor);
+                case "timeout-banco" -> configuracao.timeoutBanco = Double.parseDouble(valor);
+                case "semente" -> configuracao.semente = Long.parseLong(valor);
+                case "rabbitmq-host" -> configuracao.rabbitmqHost = valor;
+                case "rabbitmq-porta" -> configuracao.rabbitmqPorta = Integer.parseInt(valor);
+                case "intervalo-acompanhamento" -> configuracao.intervaloAcompanhamento = Long.parseLong(valor);
+                case "saida" -> configuracao.saida = valor;
+                default -> throw new IllegalArgumentException("Parâmetro desconhecido: " + chave);
+            }
+        }
+        return configuracao;
+    }
+    
+    public ConfiguracaoEmulador configuracaoEmulador() {
+        ConfiguracaoEmulador emulador = new ConfiguracaoEmulador();
+        emulador.setAprovacao(aprovacao);
+        emulador.setLatenciaMedia(latenciaBanco);
+        emulador.setDistribuicao(DistribuicaoLatencia.de(distribuicaoBanco));
+        emulador.setDispersao(dispersaoBanco);
+        emulador.setErro(erroBanco);
+        emulador.setTimeout(timeoutBanco);
+        emulador.setSemente(semente);
+        return emulador;
+    }
+}
@@ -0,0 +1,110 @@
+package com.bancotranquilo.carga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador em malha aberta: as compras são disparadas em instantes fixos ({@code 1/taxa}),
+ * independentemente de quanto a aplicação demora para responder.
+ */
+@Slf4j
+public class GeradorCarga {
+    
+    private final HttpClient httpClient;
+    private final URI uri;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AcompanhamentoCompras acompanhamento;
+    private final RegistroErros erros;
+    private final Histogram latenciaPost = new ConcurrentHistogram(3);
+    private final LongAdder enviadas = new LongAdder();
+    private final LongAdder aceitas = new LongAdder();
+    private final long inicioMedicao;
+    
+    public GeradorCarga(int portaAplicacao, AcompanhamentoCompras acompanhamento, RegistroErros erros,
+                        long inicioMedicaoNanos) {
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        this.uri = URI.create("http://127.0.0.1:" + portaAplicacao + "/api/compras");
+        this.acompanhamento = acompanhamento;
+        this.erros = erros;
+        this.inicioMedicao = inicioMedicaoNanos;
+    }
+    
+    public void executar(double taxa, long inicioNanos, long fimNanos) {
+        long intervalo = (long) (TimeUnit.SECONDS.toNanos(1) / taxa);
+        for (long i = 0; ; i++) {
+            long previsto = inicioNanos + i * intervalo;
+            if (previsto >= fimNanos) {
+                break;
+            }
+            long espera = previsto - System.nanoTime();
+            if (espera > 0) {
+                LockSupport.parkNanos(espera);
+            }
+            enviar(i, previsto);
+        }
+    }
+    
+    private void enviar(long sequencia, long previsto) {
+        enviadas.increment();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+            .timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(corpo(sequencia)))
+            .build();
+        
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            .whenComplete((response, erro) -> {
+                long agora = System.nanoTime();
+                if (previsto >= inicioMedicao) {
+                    latenciaPost.recordValue(TimeUnit.NANOSECONDS.toMicros(agora - previsto));
+                }
+                if (erro != null) {
+                    Throwable causa = erro.getCause() != null ? erro.getCause() : erro;
+                    erros.registrar("cliente:" + causa.getClass().getSimpleName());
+                } else if (response.statusCode() != 201) {
+                    erros.registrar("http:" + response.statusCode());
+                } else {
+                    try {
+                        long id = objectMapper.readTree(response.body()).path("id").asLong();
+                        aceitas.increment();
+                        acompanhamento.registrar(id, previsto);
+                    } catch (Exception e) {
+                        erros.registrar("resposta-invalida");
+                    }
+                }
+            });
+    }
+    
+    private String corpo(long sequencia) {
+        return String.format(Locale.ROOT,
+            "{\"numeroCartao\":\"4111111111111111\",\"cvv\":\"123\",\"dataValidade\":\"12/30\"," +
+            "\"valor\":%d.%02d,\"emailCliente\":\"cliente%d@carga.local\",\"nomeCliente\":\"Cliente %d\"}",
+            10 + sequencia % 990, sequencia % 100, sequencia % 10000, sequencia % 10000);
+    }
+    
+    public Histogram getLatenciaPost() {
+        return latenciaPost;
+    }
+    
+    public long getEnviadas() {
+        return enviadas.sum();
+    }
+    
+    public long getAceitas() {
+        return aceitas.sum();
+    }
+}
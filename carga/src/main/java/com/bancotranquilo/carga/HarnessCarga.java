@@ -0,0 +1,156 @@
+package com.bancotranquilo.carga;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import com.bancotranquilo.BancoTranquiloApplication;
+import com.bancotranquilo.emulador.EmuladorBanco;
+import com.bancotranquilo.mensagem.RoteamentoRequisicoes;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.bancotranquilo.config.RabbitMQConfig.QUEUE_ADIADAS;
+import static com.bancotranquilo.config.RabbitMQConfig.QUEUE_EMAILS;
+import static com.bancotranquilo.config.RabbitMQConfig.QUEUE_RESPOSTAS;
+
+/**
+ * Teste de carga ponta a ponta: sobe MySQL (MariaDB4j), SMTP (GreenMail) e o emulador da API do
+ * banco no próprio processo, inicia a aplicação apontando para eles e dispara compras em taxa
+ * fixa. O RabbitMQ é externo (ver {@code rabbitmq-local.sh}).
+ */
+@Slf4j
+public class HarnessCarga {
+    
+    private static final String BANCO_DADOS = "banco_tranquilo_db";
+    
+    public static void main(String[] args) throws Exception {
+        ConfiguracaoCarga configuracao = ConfiguracaoCarga.de(args);
+        
+        DBConfigurationBuilder configuracaoDb = DBConfigurationBuilder.newBuilder();
+        configuracaoDb.setPort(0);
+        DB db = DB.newEmbeddedDB(configuracaoDb.build());
+        db.start();
+        db.createDB(BANCO_DADOS);
+        String urlJdbc = "jdbc:mysql://localhost:" + db.getConfiguration().getPort() + "/" + BANCO_DADOS +
+                         "?useSSL=false&serverTimezone=UTC&rewriteBatchedStatements=true";
+        
+        GreenMail smtp = new GreenMail(new ServerSetup(portaLivre(), "127.0.0.1", ServerSetup.PROTOCOL_SMTP));
+        smtp.start();
+        
+        EmuladorBanco banco = new EmuladorBanco(configuracao.configuracaoEmulador());
+        ConfigurableApplicationContext aplicacao = null;
+        ScheduledExecutorService agendador = Executors.newScheduledThreadPool(2);
+        try {
+            aplicacao = new SpringApplicationBuilder(BancoTranquiloApplication.class)
+                .properties(propriedades(configuracao, urlJdbc, smtp, banco))
+                .run();
+            int portaAplicacao = Integer.parseInt(aplicacao.getEnvironment().getProperty("local.server.port"));
+            log.info("Aplicação iniciada na porta {}", portaAplicacao);
+            
+            long inicio = System.nanoTime();
+            long inicioMedicao = inicio + TimeUnit.SECONDS.toNanos(configuracao.getAquecimento());
+            long fim = inicioMedicao + TimeUnit.SECONDS.toNanos(configuracao.getDuracao());
+            
+            RegistroErros erros = new RegistroErros();
+            AcompanhamentoCompras acompanhamento = new AcompanhamentoCompras(inicioMedicao, fim);
+            GeradorCarga gerador = new GeradorCarga(portaAplicacao, acompanhamento, erros, inicioMedicao);
+            List<String> filas = new ArrayList<>(aplicacao.getBean(RoteamentoRequisicoes.class).getFilas());
+            filas.addAll(List.of(QUEUE_RESPOSTAS, QUEUE_EMAILS, QUEUE_ADIADAS));
+            MonitorFilas monitor = new MonitorFilas(aplicacao.getBean(AmqpAdmin.class), filas, inicio);
+            
+            try (Connection conexao = DriverManager.getConnection(urlJdbc, "root", "")) {
+                agendador.scheduleWithFixedDelay(() -> {
+                    try {
+                        synchronized (conexao) {
+                            acompanhamento.verificar(conexao);
+                        }
+                    } catch (Exception e) {
+                        log.warn("Erro ao consultar status das compras: {}", e.getMessage());
+                    }
+                }, configuracao.getIntervaloAcompanhamento(), configuracao.getIntervaloAcompanhamento(),
+                    TimeUnit.MILLISECONDS);
+                agendador.scheduleAtFixedRate(() -> {
+                    try {
+                        monitor.amostrar(acompanhamento.pendentes());
+                    } catch (Exception e) {
+                        log.warn("Erro ao amostrar filas: {}", e.getMessage());
+                    }
+                }, 0, 1, TimeUnit.SECONDS);
+                
+                log.info("Gerando {} compras/s por {}s (+{}s de aquecimento)",
+                         configuracao.getTaxa(), configuracao.getDuracao(), configuracao.getAquecimento());
+                gerador.executar(configuracao.getTaxa(), inicio, fim);
+                
+                long prazo = System.nanoTime() + TimeUnit.SECONDS.toNanos(configuracao.getEsperaFinal());
+                while (acompanhamento.pendentes() > 0 && System.nanoTime() < prazo) {
+                    Thread.sleep(200);
+                }
+                agendador.shutdown();
+                agendador.awaitTermination(5, TimeUnit.SECONDS);
+                synchronized (conexao) {
+                    acompanhamento.verificar(conexao);
+                }
+            }
+            
+            RelatorioCarga relatorio = new RelatorioCarga(configuracao, gerador, acompanhamento, monitor, erros);
+            Path diretorio = Path.of(configuracao.getSaida(),
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+            relatorio.imprimir(System.out);
+            relatorio.gravar(diretorio);
+            log.info("Resultados gravados em {}", diretorio.toAbsolutePath());
+        } finally {
+            agendador.shutdownNow();
+            if (aplicacao != null) {
+                aplicacao.close();
+            }
+            banco.close();
+            smtp.stop();
+            db.stop();
+        }
+    }
+    
+    private static Map<String, Object> propriedades(ConfiguracaoCarga configuracao, String urlJdbc,
+                                                    GreenMail smtp, EmuladorBanco banco) {
+        Map<String, Object> propriedades = new HashMap<>();
+        propriedades.put("server.port", 0);
+        propriedades.put("spring.datasource.url", urlJdbc);
+        propriedades.put("spring.datasource.username", "root");
+        propriedades.put("spring.datasource.password", "");
+        propriedades.put("spring.mail.host", "127.0.0.1");
+        propriedades.put("spring.mail.port", smtp.getSmtp().getPort());
+        propriedades.put("spring.mail.username", "");
+        propriedades.put("spring.mail.password", "");
+        propriedades.put("spring.mail.properties.mail.smtp.auth", false);
+        propriedades.put("spring.mail.properties.mail.smtp.starttls.enable", false);
+        propriedades.put("spring.mail.properties.mail.smtp.starttls.required", false);
+        propriedades.put("spring.rabbitmq.host", configuracao.getRabbitmqHost());
+        propriedades.put("spring.rabbitmq.port", configuracao.getRabbitmqPorta());
+        propriedades.put("banco.tranquilo.api.url", banco.url());
+        propriedades.put("logging.level.com.bancotranquilo", "WARN");
+        propriedades.putAll(configuracao.getPropriedadesApp());
+        return propriedades;
+    }
+    
+    private static int portaLivre() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
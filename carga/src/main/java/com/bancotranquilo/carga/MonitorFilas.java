@@ -0,0 +1,48 @@
+package com.bancotranquilo.carga;
+
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Amostra a profundidade das filas durante o teste.
+ */
+public class MonitorFilas {
+    
+    private final AmqpAdmin amqpAdmin;
+    private final List<String> filas;
+    private final long inicio;
+    private final List<Map<String, Object>> amostras = Collections.synchronizedList(new ArrayList<>());
+    
+    public MonitorFilas(AmqpAdmin amqpAdmin, List<String> filas, long inicioNanos) {
+        this.amqpAdmin = amqpAdmin;
+        this.filas = filas;
+        this.inicio = inicioNanos;
+    }
+    
+    public void amostrar(int comprasEmAndamento) {
+        Map<String, Object> amostra = new LinkedHashMap<>();
+        amostra.put("segundo", (System.nanoTime() - inicio) / 1_000_000_000.0);
+        amostra.put("em_andamento", comprasEmAndamento);
+        for (String fila : filas) {
+            QueueInformation informacao = amqpAdmin.getQueueInfo(fila);
+            amostra.put(fila, informacao != null ? informacao.getMessageCount() : -1);
+        }
+        amostras.add(amostra);
+    }
+    
+    public List<String> getFilas() {
+        return filas;
+    }
+    
+    public List<Map<String, Object>> getAmostras() {
+        synchronized (amostras) {
+            return new ArrayList<>(amostras);
+        }
+    }
+}
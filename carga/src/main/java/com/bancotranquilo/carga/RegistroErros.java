@@ -0,0 +1,24 @@
+package com.bancotranquilo.carga;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de erro por categoria (status HTTP, exceção do cliente, status final).
+ */
+public class RegistroErros {
+    
+    private final Map<String, LongAdder> contadores = new ConcurrentHashMap<>();
+    
+    public void registrar(String categoria) {
+        contadores.computeIfAbsent(categoria, chave -> new LongAdder()).increment();
+    }
+    
+    public Map<String, Long> resumo() {
+        Map<String, Long> resumo = new TreeMap<>();
+        contadores.forEach((categoria, contador) -> resumo.put(categoria, contador.sum()));
+        return resumo;
+    }
+}
@@ -0,0 +1,112 @@
+package com.bancotranquilo.carga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Consolida o resultado do teste: resumo no console, {@code resumo.json} e {@code filas.csv}.
+ */
+public class RelatorioCarga {
+    
+    private static final double[] PERCENTIS = {50.0, 99.0, 99.9};
+    
+    private final Map<String, Object> resumo = new LinkedHashMap<>();
+    private final List<Map<String, Object>> amostrasFilas;
+    private final List<String> filas;
+    
+    public RelatorioCarga(ConfiguracaoCarga configuracao, GeradorCarga gerador,
+                          AcompanhamentoCompras acompanhamento, MonitorFilas monitor, RegistroErros erros) {
+        this.amostrasFilas = monitor.getAmostras();
+        this.filas = monitor.getFilas();
+        
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        parametros.put("taxa", configuracao.getTaxa());
+        parametros.put("duracao_s", configuracao.getDuracao());
+        parametros.put("aquecimento_s", configuracao.getAquecimento());
+        parametros.put("aprovacao_banco", configuracao.getAprovacao());
+        parametros.put("latencia_banco_ms", configuracao.getLatenciaBanco());
+        parametros.put("distribuicao_banco", configuracao.getDistribuicaoBanco());
+        parametros.put("dispersao_banco", configuracao.getDispersaoBanco());
+        parametros.put("erro_banco", configuracao.getErroBanco());
+        parametros.put("timeout_banco", configuracao.getTimeoutBanco());
+        parametros.put("semente", configuracao.getSemente());
+        parametros.put("propriedades_app", configuracao.getPropriedadesApp());
+        resumo.put("parametros", parametros);
+        
+        Map<String, Object> vazao = new LinkedHashMap<>();
+        vazao.put("compras_enviadas", gerador.getEnviadas());
+        vazao.put("compras_aceitas", gerador.getAceitas());
+        vazao.put("aceitas_por_s", (double) gerador.getAceitas() / (configuracao.getAquecimento() + configuracao.getDuracao()));
+        vazao.put("concluidas_por_s", (double) acompanhamento.getConcluidasNaJanela() / configuracao.getDuracao());
+        resumo.put("vazao", vazao);
+        
+        resumo.put("latencia_post_ms", percentis(gerador.getLatenciaPost()));
+        Map<String, Object> latenciaConclusao = new LinkedHashMap<>();
+        acompanhamento.getLatenciaPorStatus().forEach((status, histograma) ->
+            latenciaConclusao.put(status, percentis(histograma)));
+        resumo.put("latencia_conclusao_ms", latenciaConclusao);
+        
+        resumo.put("status_finais", acompanhamento.getStatusFinais());
+        resumo.put("sem_status_final", acompanhamento.pendentes());
+        resumo.put("erros", erros.resumo());
+        resumo.put("profundidade_maxima_filas", profundidadeMaxima());
+    }
+    
+    public void imprimir(PrintStream saida) throws IOException {
+        saida.println("==== Resultado do teste de carga ====");
+        saida.println(new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(resumo));
+    }
+    
+    public void gravar(Path diretorio) throws IOException {
+        Files.createDirectories(diretorio);
+        new ObjectMapper().writerWithDefaultPrettyPrinter()
+            .writeValue(diretorio.resolve("resumo.json").toFile(), resumo);
+        
+        List<String> linhas = new ArrayList<>();
+        List<String> colunas = new ArrayList<>(List.of("segundo", "em_andamento"));
+        colunas.addAll(filas);
+        linhas.add(String.join(",", colunas));
+        for (Map<String, Object> amostra : amostrasFilas) {
+            List<String> valores = new ArrayList<>();
+            for (String coluna : colunas) {
+                valores.add(String.valueOf(amostra.get(coluna)));
+            }
+            linhas.add(String.join(",", valores));
+        }
+        Files.write(diretorio.resolve("filas.csv"), linhas, StandardCharsets.UTF_8);
+    }
+    
+    private Map<String, Object> percentis(Histogram histograma) {
+        Map<String, Object> valores = new LinkedHashMap<>();
+        valores.put("amostras", histograma.getTotalCount());
+        for (double percentil : PERCENTIS) {
+            String nome = "p" + String.format(Locale.ROOT, "%s", percentil).replace(".0", "").replace(".", "");
+            valores.put(nome, histograma.getValueAtPercentile(percentil) / 1000.0);
+        }
+        valores.put("max", histograma.getMaxValue() / 1000.0);
+        return valores;
+    }
+    
+    private Map<String, Long> profundidadeMaxima() {
+        Map<String, Long> maximos = new LinkedHashMap<>();
+        for (String fila : filas) {
+            long maximo = 0;
+            for (Map<String, Object> amostra : amostrasFilas) {
+                maximo = Math.max(maximo, ((Number) amostra.get(fila)).longValue());
+            }
+            maximos.put(fila, maximo);
+        }
+        return maximos;
+    }
+}
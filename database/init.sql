@@ -21,12 +21,53 @@ CREATE TABLE IF NOT EXISTS compras (
     status VARCHAR(20) NOT NULL,
     data_criacao DATETIME NOT NULL,
     data_confirmacao DATETIME,
-    mensagem_erro TEXT
+    mensagem_erro TEXT,
+    varredura_ate DATETIME,
+    varreduras INT
 );
 
 -- Índices para melhor performance
-CREATE INDEX IF NOT EXISTS idx_status ON compras(status);
+-- (status, data_criacao) também atende MIN(data_criacao) das pendentes sem varrer a tabela
+CREATE INDEX IF NOT EXISTS idx_status_data_criacao ON compras(status, data_criacao);
 CREATE INDEX IF NOT EXISTS idx_email_cliente ON compras(email_cliente);
 CREATE INDEX IF NOT EXISTS idx_data_criacao ON compras(data_criacao);
 
+-- Arquivo de compras finalizadas, particionado por mês de criação (sem os dados do cartão).
+-- Criado também pela aplicação; novas partições são adicionadas pelo ArquivamentoCompras
+CREATE TABLE IF NOT EXISTS compras_arquivo (
+    id BIGINT NOT NULL,
+    valor DECIMAL(10, 2) NOT NULL,
+    email_cliente VARCHAR(255) NOT NULL,
+    nome_cliente VARCHAR(255) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    data_criacao DATETIME(6) NOT NULL,
+    data_confirmacao DATETIME(6),
+    mensagem_erro TEXT,
+    PRIMARY KEY (id, data_criacao),
+    INDEX idx_arquivo_status_data_criacao (status, data_criacao),
+    INDEX idx_arquivo_email_cliente (email_cliente, data_criacao)
+) PARTITION BY RANGE COLUMNS (data_criacao) (
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
+
+-- Outbox de requisições de transação (gravado na mesma transação da compra)
+CREATE TABLE IF NOT EXISTS outbox_transacoes (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    compra_id BIGINT NOT NULL,
+    data_criacao DATETIME NOT NULL,
+    data_envio DATETIME
+);
 
+CREATE INDEX IF NOT EXISTS idx_outbox_pendentes ON outbox_transacoes(data_envio, id);
+-- Consultado pela varredura antes de reenviar uma compra
+CREATE INDEX IF NOT EXISTS idx_outbox_compra ON outbox_transacoes(compra_id, data_envio);
+
+-- Estatísticas agregadas (quantidade por status e valor aprovado por dia/hora)
+CREATE TABLE IF NOT EXISTS estatisticas_compras (
+    tipo VARCHAR(10) NOT NULL,
+    periodo DATETIME NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    quantidade BIGINT NOT NULL,
+    valor DECIMAL(19, 2) NOT NULL,
+    PRIMARY KEY (tipo, periodo, status)
+);
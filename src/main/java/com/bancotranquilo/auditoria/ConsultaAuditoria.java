@@ -0,0 +1,53 @@
+package com.bancotranquilo.auditoria;
+
+import com.bancotranquilo.model.dto.RegistroAuditoria;
+
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+
+/**
+ * Consulta o jornal de auditoria direto nos arquivos de segmento, sem subir a aplicação:
+ * <pre>
+ * java -cp target/classes com.bancotranquilo.auditoria.ConsultaAuditoria \
+ *     --diretorio=auditoria --compra=42 --de=2026-10-18T10:00 --ate=2026-10-18T11:00 --limite=1000
+ * </pre>
+ * Imprime um registro por linha, separado por tabulações.
+ */
+public class ConsultaAuditoria {
+    
+    public static void main(String[] args) throws Exception {
+        String diretorio = "auditoria";
+        Long compraId = null;
+        LocalDateTime de = null;
+        LocalDateTime ate = null;
+        int limite = 1000;
+        
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento inválido (use --chave=valor): " + arg);
+            }
+            String chave = arg.substring(2, arg.indexOf('='));
+            String valor = arg.substring(arg.indexOf('=') + 1);
+            
+            switch (chave) {
+                case "diretorio" -> diretorio = valor;
+                case "compra" -> compraId = Long.parseLong(valor);
+                case "de" -> de = LocalDateTime.parse(valor);
+                case "ate" -> ate = LocalDateTime.parse(valor);
+                case "limite" -> limite = Integer.parseInt(valor);
+                default -> throw new IllegalArgumentException("Parâmetro desconhecido: " + chave);
+            }
+        }
+        
+        LeitorJornalAuditoria leitor = new LeitorJornalAuditoria(Paths.get(diretorio));
+        for (RegistroAuditoria registro : leitor.buscar(compraId, de, ate, limite)) {
+            System.out.printf("%s\t%d\t%s\t%s\t%d\t%s%n",
+                registro.getDataHora(),
+                registro.getCompraId(),
+                registro.getEtapa(),
+                registro.getStatus() == null ? "-" : registro.getStatus(),
+                registro.getLatenciaMicros(),
+                registro.getCodigoTransacao() == null ? "-" : registro.getCodigoTransacao());
+        }
+    }
+}
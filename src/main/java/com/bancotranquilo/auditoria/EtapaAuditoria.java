@@ -0,0 +1,16 @@
+package com.bancotranquilo.auditoria;
+
+/**
+ * Etapas do ciclo de vida de uma compra registradas no jornal. São gravadas pelo ordinal:
+ * novas etapas só podem ser acrescentadas no final.
+ */
+public enum EtapaAuditoria {
+    CRIADA,
+    PUBLICADA,
+    RESPOSTA_BANCO,
+    FALHA_BANCO,
+    ADIADA,
+    REAGENDADA,
+    FINALIZADA,
+    REENVIADA
+}
@@ -0,0 +1,168 @@
+package com.bancotranquilo.auditoria;
+
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.model.dto.RegistroAuditoria;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Layout dos segmentos do jornal de auditoria ({@code auditoria-<sequência>.seg}). O primeiro
+ * bloco de 64 bytes é o cabeçalho (mágico, versão, criação do segmento em ms) e os demais são
+ * registros:
+ * <pre>
+ *  0  long   compraId
+ *  8  long   instante (epoch em ms)
+ * 16  long   latência (ns; 0 quando não se aplica)
+ * 24  byte   etapa ({@link EtapaAuditoria} pelo ordinal)
+ * 25  byte   status ({@link StatusCompra} pelo ordinal + 1; 0 = sem status)
+ * 26  byte   tamanho do código de transação
+ * 28  32 B   código de transação do banco (ASCII, truncado)
+ * 60  int    marcador, gravado por último: 0 enquanto o registro não está completo
+ * </pre>
+ */
+final class FormatoJornal {
+    
+    static final int TAMANHO_REGISTRO = 64;
+    static final String PREFIXO = "auditoria-";
+    static final String EXTENSAO = ".seg";
+    
+    private static final Pattern NOME_SEGMENTO = Pattern.compile(PREFIXO + "\\d{16}\\" + EXTENSAO);
+    private static final int MAGICO = 0x42544A41;
+    private static final int VERSAO = 1;
+    private static final int TAMANHO_CODIGO = 32;
+    private static final int MARCADOR = 1;
+    
+    private static final int COMPRA_ID = 0;
+    private static final int INSTANTE = 8;
+    private static final int LATENCIA = 16;
+    private static final int ETAPA = 24;
+    private static final int STATUS = 25;
+    private static final int TAMANHO_CODIGO_GRAVADO = 26;
+    private static final int CODIGO = 28;
+    private static final int COMPLETO = 60;
+    
+    private static final int CABECALHO_VERSAO = 4;
+    private static final int CABECALHO_CRIACAO = 8;
+    
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final EtapaAuditoria[] ETAPAS = EtapaAuditoria.values();
+    private static final StatusCompra[] STATUS_COMPRA = StatusCompra.values();
+    
+    private FormatoJornal() {
+    }
+    
+    static void gravarCabecalho(ByteBuffer buffer, long criacao) {
+        buffer.putInt(0, MAGICO);
+        buffer.putInt(CABECALHO_VERSAO, VERSAO);
+        buffer.putLong(CABECALHO_CRIACAO, criacao);
+        INT.setRelease(buffer, COMPLETO, MARCADOR);
+    }
+    
+    /**
+     * Criação do segmento em ms, ou -1 quando o cabeçalho não é de um segmento válido.
+     */
+    static long lerCriacao(ByteBuffer cabecalho) {
+        if (cabecalho.getInt(0) != MAGICO || cabecalho.getInt(CABECALHO_VERSAO) != VERSAO) {
+            return -1;
+        }
+        return cabecalho.getLong(CABECALHO_CRIACAO);
+    }
+    
+    static void gravar(ByteBuffer buffer, int posicao, long compraId, long instante, long latenciaNanos,
+                       EtapaAuditoria etapa, StatusCompra status, String codigoTransacao) {
+        buffer.putLong(posicao + COMPRA_ID, compraId);
+        buffer.putLong(posicao + INSTANTE, instante);
+        buffer.putLong(posicao + LATENCIA, latenciaNanos);
+        buffer.put(posicao + ETAPA, (byte) etapa.ordinal());
+        buffer.put(posicao + STATUS, (byte) (status == null ? 0 : status.ordinal() + 1));
+        int tamanho = codigoTransacao == null ? 0 : Math.min(codigoTransacao.length(), TAMANHO_CODIGO);
+        buffer.put(posicao + TAMANHO_CODIGO_GRAVADO, (byte) tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            buffer.put(posicao + CODIGO + i, (byte) codigoTransacao.charAt(i));
+        }
+        // Publica o registro: quem lê o marcador com acquire enxerga todos os campos acima
+        INT.setRelease(buffer, posicao + COMPLETO, MARCADOR);
+    }
+    
+    static boolean completo(ByteBuffer buffer, int posicao) {
+        return (int) INT.getAcquire(buffer, posicao + COMPLETO) == MARCADOR;
+    }
+    
+    /**
+     * Registro gravado na posição, ou {@code null} se ele ainda não está completo.
+     */
+    static RegistroAuditoria ler(ByteBuffer buffer, int posicao) {
+        if (!completo(buffer, posicao)) {
+            return null;
+        }
+        int etapa = buffer.get(posicao + ETAPA);
+        int status = buffer.get(posicao + STATUS);
+        if (etapa < 0 || etapa >= ETAPAS.length || status < 0 || status > STATUS_COMPRA.length) {
+            return null;
+        }
+        byte[] codigo = new byte[Math.min(buffer.get(posicao + TAMANHO_CODIGO_GRAVADO), TAMANHO_CODIGO)];
+        buffer.get(posicao + CODIGO, codigo);
+        
+        return new RegistroAuditoria(
+            buffer.getLong(posicao + COMPRA_ID),
+            ETAPAS[etapa],
+            status == 0 ? null : STATUS_COMPRA[status - 1],
+            dataHora(buffer.getLong(posicao + INSTANTE)),
+            buffer.getLong(posicao + LATENCIA) / 1000,
+            codigo.length == 0 ? null : new String(codigo, StandardCharsets.US_ASCII));
+    }
+    
+    static long compraId(ByteBuffer buffer, int posicao) {
+        return buffer.getLong(posicao + COMPRA_ID);
+    }
+    
+    static long instante(ByteBuffer buffer, int posicao) {
+        return buffer.getLong(posicao + INSTANTE);
+    }
+    
+    static LocalDateTime dataHora(long instante) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(instante), ZoneId.systemDefault());
+    }
+    
+    static long instante(LocalDateTime dataHora) {
+        return dataHora.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
+    static String nomeSegmento(long sequencia) {
+        return String.format("%s%016d%s", PREFIXO, sequencia, EXTENSAO);
+    }
+    
+    static long sequencia(Path segmento) {
+        String nome = segmento.getFileName().toString();
+        return Long.parseLong(nome.substring(PREFIXO.length(), nome.length() - EXTENSAO.length()));
+    }
+    
+    /**
+     * Segmentos do diretório em ordem de criação.
+     */
+    static List<Path> listarSegmentos(Path diretorio) throws IOException {
+        if (!Files.isDirectory(diretorio)) {
+            return List.of();
+        }
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos
+                .filter(arquivo -> NOME_SEGMENTO.matcher(arquivo.getFileName().toString()).matches())
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+}
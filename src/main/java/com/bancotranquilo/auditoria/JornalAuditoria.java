@@ -0,0 +1,178 @@
+package com.bancotranquilo.auditoria;
+
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.model.dto.RegistroAuditoria;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.bancotranquilo.auditoria.FormatoJornal.TAMANHO_REGISTRO;
+
+/**
+ * Trilha de auditoria do ciclo de vida das compras: cada etapa grava um registro binário de
+ * 64 bytes ({@link FormatoJornal}) em segmentos mapeados em memória. A gravação não usa locks
+ * nem aloca: cada thread reserva uma posição com um incremento atômico e publica o registro
+ * escrevendo o marcador por último. Só a troca de um segmento cheio é sincronizada.
+ * <p>
+ * Os dados ficam no page cache assim que gravados (sobrevivem a uma queda do processo) e são
+ * sincronizados com o disco a cada {@code intervalo-sincronizacao} ms. Uma falha de disco
+ * desativa o jornal, mas nunca interrompe o processamento das compras.
+ */
+@Component
+@Slf4j
+public class JornalAuditoria {
+    
+    // Sem capacidade: o primeiro registro abre o primeiro segmento
+    private static final Segmento SEM_SEGMENTO = new Segmento(null, 0, -1);
+    
+    private final Path diretorio;
+    private final int capacidade;
+    private final int segmentosMaximos;
+    
+    private volatile boolean ativo;
+    private volatile Segmento atual = SEM_SEGMENTO;
+    private volatile long registrosAnteriores;
+    
+    @Autowired
+    public JornalAuditoria(@Value("${banco.tranquilo.auditoria.habilitada:true}") boolean habilitada,
+                           @Value("${banco.tranquilo.auditoria.diretorio:auditoria}") String diretorio,
+                           @Value("${banco.tranquilo.auditoria.tamanho-segmento:67108864}") long tamanhoSegmento,
+                           @Value("${banco.tranquilo.auditoria.segmentos-maximos:32}") int segmentosMaximos,
+                           MeterRegistry meterRegistry) {
+        this.ativo = habilitada;
+        this.diretorio = Paths.get(diretorio);
+        this.capacidade = Math.max(1, (int) (Math.min(tamanhoSegmento, Integer.MAX_VALUE) / TAMANHO_REGISTRO) - 1);
+        this.segmentosMaximos = Math.max(1, segmentosMaximos);
+        
+        FunctionCounter.builder("auditoria.jornal.registros", this, JornalAuditoria::getRegistros)
+            .description("Registros gravados no jornal de auditoria")
+            .register(meterRegistry);
+    }
+    
+    public void registrar(long compraId, EtapaAuditoria etapa, StatusCompra status) {
+        registrar(compraId, etapa, status, 0, null);
+    }
+    
+    public void registrar(long compraId, EtapaAuditoria etapa, StatusCompra status,
+                          long latenciaNanos, String codigoTransacao) {
+        if (!ativo) {
+            return;
+        }
+        long instante = System.currentTimeMillis();
+        Segmento segmento = atual;
+        int posicao;
+        while ((posicao = segmento.proxima.getAndIncrement()) >= segmento.capacidade) {
+            segmento = rolar(segmento);
+            if (segmento == null) {
+                return;
+            }
+        }
+        FormatoJornal.gravar(segmento.buffer, (posicao + 1) * TAMANHO_REGISTRO,
+            compraId, instante, latenciaNanos, etapa, status, codigoTransacao);
+    }
+    
+    public List<RegistroAuditoria> buscar(Long compraId, LocalDateTime de, LocalDateTime ate, int limite)
+            throws IOException {
+        return new LeitorJornalAuditoria(diretorio).buscar(compraId, de, ate, limite);
+    }
+    
+    @Scheduled(fixedDelayString = "${banco.tranquilo.auditoria.intervalo-sincronizacao:1000}")
+    public void sincronizar() {
+        Segmento segmento = atual;
+        if (segmento.buffer != null) {
+            segmento.buffer.force();
+        }
+    }
+    
+    @PreDestroy
+    public void encerrar() {
+        sincronizar();
+    }
+    
+    private synchronized Segmento rolar(Segmento cheio) {
+        if (atual != cheio) {
+            // Outra thread já trocou o segmento
+            return atual;
+        }
+        if (!ativo) {
+            return null;
+        }
+        try {
+            long sequencia = cheio == SEM_SEGMENTO ? ultimaSequencia() + 1 : cheio.sequencia + 1;
+            Segmento novo = abrir(sequencia);
+            if (cheio.buffer != null) {
+                cheio.buffer.force();
+                registrosAnteriores += cheio.capacidade;
+            }
+            atual = novo;
+            aplicarRetencao();
+            return novo;
+        } catch (IOException | RuntimeException e) {
+            log.error("Jornal de auditoria desativado após falha ao abrir segmento em {}: {}",
+                     diretorio.toAbsolutePath(), e.getMessage(), e);
+            ativo = false;
+            return null;
+        }
+    }
+    
+    private Segmento abrir(long sequencia) throws IOException {
+        Files.createDirectories(diretorio);
+        Path arquivo = diretorio.resolve(FormatoJornal.nomeSegmento(sequencia));
+        try (FileChannel canal = FileChannel.open(arquivo,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // O mapeamento continua válido depois que o canal é fechado
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0,
+                (long) (capacidade + 1) * TAMANHO_REGISTRO);
+            FormatoJornal.gravarCabecalho(buffer, System.currentTimeMillis());
+            log.debug("Segmento de auditoria {} aberto", arquivo);
+            return new Segmento(buffer, capacidade, sequencia);
+        }
+    }
+    
+    private long ultimaSequencia() throws IOException {
+        List<Path> segmentos = FormatoJornal.listarSegmentos(diretorio);
+        return segmentos.isEmpty() ? 0 : FormatoJornal.sequencia(segmentos.get(segmentos.size() - 1));
+    }
+    
+    private void aplicarRetencao() throws IOException {
+        List<Path> segmentos = FormatoJornal.listarSegmentos(diretorio);
+        for (int i = 0; i < segmentos.size() - segmentosMaximos; i++) {
+            Files.deleteIfExists(segmentos.get(i));
+        }
+    }
+    
+    private long getRegistros() {
+        Segmento segmento = atual;
+        return registrosAnteriores + Math.min(segmento.proxima.get(), segmento.capacidade);
+    }
+    
+    private static final class Segmento {
+        
+        private final MappedByteBuffer buffer;
+        private final int capacidade;
+        private final long sequencia;
+        private final AtomicInteger proxima = new AtomicInteger();
+        
+        private Segmento(MappedByteBuffer buffer, int capacidade, long sequencia) {
+            this.buffer = buffer;
+            this.capacidade = capacidade;
+            this.sequencia = sequencia;
+        }
+    }
+}
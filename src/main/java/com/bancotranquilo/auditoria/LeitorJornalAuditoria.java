@@ -0,0 +1,105 @@
+package com.bancotranquilo.auditoria;
+
+import com.bancotranquilo.model.dto.RegistroAuditoria;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.bancotranquilo.auditoria.FormatoJornal.TAMANHO_REGISTRO;
+
+/**
+ * Varre os segmentos do jornal de auditoria em ordem de gravação. Não depende do contexto
+ * Spring: é usado tanto pelo endpoint quanto por {@link ConsultaAuditoria}.
+ * <p>
+ * Todo registro de um segmento foi gravado antes da criação do segmento seguinte, por isso
+ * os segmentos fora do período pedido são descartados só pelo cabeçalho.
+ */
+public class LeitorJornalAuditoria {
+    
+    private final Path diretorio;
+    
+    public LeitorJornalAuditoria(Path diretorio) {
+        this.diretorio = diretorio;
+    }
+    
+    /**
+     * Registros da compra (ou de todas, se {@code compraId} for nulo) gravados no período,
+     * dos mais antigos para os mais recentes, até o limite.
+     */
+    public List<RegistroAuditoria> buscar(Long compraId, LocalDateTime de, LocalDateTime ate, int limite)
+            throws IOException {
+        long inicio = de == null ? Long.MIN_VALUE : FormatoJornal.instante(de);
+        long fim = ate == null ? Long.MAX_VALUE : FormatoJornal.instante(ate);
+        
+        List<Path> segmentos = FormatoJornal.listarSegmentos(diretorio);
+        long[] criacoes = new long[segmentos.size()];
+        for (int i = 0; i < segmentos.size(); i++) {
+            criacoes[i] = lerCriacao(segmentos.get(i));
+        }
+        
+        List<RegistroAuditoria> registros = new ArrayList<>();
+        for (int i = 0; i < segmentos.size() && registros.size() < limite; i++) {
+            if (criacoes[i] < 0) {
+                continue;
+            }
+            if (criacoes[i] > fim) {
+                break;
+            }
+            if (i + 1 < segmentos.size() && criacoes[i + 1] >= 0 && criacoes[i + 1] < inicio) {
+                continue;
+            }
+            varrer(segmentos.get(i), compraId, inicio, fim, limite, registros);
+        }
+        return registros;
+    }
+    
+    private void varrer(Path segmento, Long compraId, long inicio, long fim, int limite,
+                        List<RegistroAuditoria> registros) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.READ)) {
+            buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        } catch (NoSuchFileException e) {
+            // Removido pela retenção durante a varredura
+            return;
+        }
+        
+        int fimSegmento = buffer.capacity() - buffer.capacity() % TAMANHO_REGISTRO;
+        for (int posicao = TAMANHO_REGISTRO; posicao < fimSegmento; posicao += TAMANHO_REGISTRO) {
+            if (!FormatoJornal.completo(buffer, posicao)) {
+                continue;
+            }
+            if (compraId != null && FormatoJornal.compraId(buffer, posicao) != compraId) {
+                continue;
+            }
+            long instante = FormatoJornal.instante(buffer, posicao);
+            if (instante < inicio || instante > fim) {
+                continue;
+            }
+            RegistroAuditoria registro = FormatoJornal.ler(buffer, posicao);
+            if (registro != null) {
+                registros.add(registro);
+                if (registros.size() >= limite) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    private long lerCriacao(Path segmento) throws IOException {
+        ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_REGISTRO);
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.READ)) {
+            canal.read(cabecalho);
+        } catch (NoSuchFileException e) {
+            return -1;
+        }
+        return cabecalho.hasRemaining() ? -1 : FormatoJornal.lerCriacao(cabecalho);
+    }
+}
@@ -0,0 +1,51 @@
+package com.bancotranquilo.config;
+
+import com.bancotranquilo.emulador.ConfiguracaoEmulador;
+import com.bancotranquilo.emulador.DistribuicaoLatencia;
+import com.bancotranquilo.emulador.EmuladorBanco;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * Modo emulador: sobe o {@link EmuladorBanco} dentro da aplicação e direciona as chamadas ao
+ * banco para ele. O caminho é o mesmo de produção (cliente HTTP, pool, circuito e limitador);
+ * só o outro lado da conexão é emulado. Somente para desenvolvimento e testes.
+ */
+@Configuration
+@ConditionalOnProperty(name = "banco.tranquilo.emulador.habilitado", havingValue = "true")
+public class EmuladorConfig {
+    
+    @Bean(destroyMethod = "close")
+    public EmuladorBanco emuladorBanco(
+            @Value("${banco.tranquilo.emulador.porta:0}") int porta,
+            @Value("${banco.tranquilo.emulador.threads:8}") int threads,
+            @Value("${banco.tranquilo.emulador.aprovacao:0.8}") double aprovacao,
+            @Value("${banco.tranquilo.emulador.erro:0}") double erro,
+            @Value("${banco.tranquilo.emulador.timeout:0}") double timeout,
+            @Value("${banco.tranquilo.emulador.espera-timeout:30000}") long esperaTimeout,
+            @Value("${banco.tranquilo.emulador.distribuicao:exponencial}") String distribuicao,
+            @Value("${banco.tranquilo.emulador.latencia-media:20}") double latenciaMedia,
+            @Value("${banco.tranquilo.emulador.dispersao:0.5}") double dispersao,
+            @Value("${banco.tranquilo.emulador.semente:}") String semente,
+            @Value("${banco.tranquilo.emulador.lote.habilitado:true}") boolean loteHabilitado,
+            @Value("${banco.tranquilo.emulador.lote.latencia-por-item:0}") double latenciaPorItem) throws IOException {
+        ConfiguracaoEmulador configuracao = new ConfiguracaoEmulador();
+        configuracao.setPorta(porta);
+        configuracao.setThreads(threads);
+        configuracao.setAprovacao(aprovacao);
+        configuracao.setErro(erro);
+        configuracao.setTimeout(timeout);
+        configuracao.setEsperaTimeout(esperaTimeout);
+        configuracao.setDistribuicao(DistribuicaoLatencia.de(distribuicao));
+        configuracao.setLatenciaMedia(latenciaMedia);
+        configuracao.setDispersao(dispersao);
+        configuracao.setSemente(semente.isBlank() ? null : Long.parseLong(semente.trim()));
+        configuracao.setLoteHabilitado(loteHabilitado);
+        configuracao.setLatenciaPorItem(latenciaPorItem);
+        return new EmuladorBanco(configuracao);
+    }
+}
@@ -1,14 +1,26 @@
 package com.bancotranquilo.config;
 
+import com.bancotranquilo.mensagem.ConversorMensagemTransacao;
+import com.bancotranquilo.mensagem.FormatoMensagem;
+import com.bancotranquilo.mensagem.RoteamentoRequisicoes;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 public class RabbitMQConfig {
     
@@ -17,28 +29,163 @@ public class RabbitMQConfig {
     public static final String QUEUE_RESPOSTAS = "transacoes.respostas";
     public static final String ROUTING_KEY_REQUISICOES = "transacoes.requisicao";
     public static final String ROUTING_KEY_RESPOSTAS = "transacoes.resposta";
+    public static final String QUEUE_ADIADAS = "transacoes.requisicoes.adiadas";
+    public static final String QUEUE_EMAILS = "emails.confirmacao";
+    public static final String ROUTING_KEY_EMAILS = "emails.confirmacao";
+    public static final String EXCHANGE_EVENTOS = "compras.eventos";
+    public static final String EXCHANGE_REQUISICOES = "transacoes.requisicoes.shards";
+    public static final String HEADER_SHARD = "x-shard";
+    public static final String SHARD_PRIORITARIO = "prioritaria";
+    
+    /**
+     * Filas de origem que têm retentativas com atraso e fila de parking.
+     */
+    public static final Map<String, String> FILAS_COM_RETRY = Map.of(
+            QUEUE_REQUISICOES, ROUTING_KEY_REQUISICOES,
+            QUEUE_RESPOSTAS, ROUTING_KEY_RESPOSTAS);
+    
+    /**
+     * Filas com parking: as de {@link #FILAS_COM_RETRY} e a de e-mails, cujo envio já tem
+     * novas tentativas com backoff e estaciona os e-mails que as esgotam.
+     */
+    public static final Map<String, String> FILAS_COM_PARKING = Map.of(
+            QUEUE_REQUISICOES, ROUTING_KEY_REQUISICOES,
+            QUEUE_RESPOSTAS, ROUTING_KEY_RESPOSTAS,
+            QUEUE_EMAILS, ROUTING_KEY_EMAILS);
+    
+    public static String filaRetry(String filaOrigem, long atraso) {
+        return filaOrigem + ".retry." + atraso;
+    }
+    
+    public static String filaParking(String filaOrigem) {
+        return filaOrigem + ".parking";
+    }
+    
+    public static String filaShard(String shard) {
+        return QUEUE_REQUISICOES + "." + shard;
+    }
+    
+    /**
+     * Exchange para onde voltam as mensagens de uma fila com retry: as requisições voltam pelo
+     * exchange de shards, que usa o header {@code x-shard} da própria mensagem.
+     */
+    public static String exchangeRetorno(String filaOrigem) {
+        return QUEUE_REQUISICOES.equals(filaOrigem) ? EXCHANGE_REQUISICOES : EXCHANGE_TRANSACOES;
+    }
     
     @Bean
     public DirectExchange transacoesExchange() {
         return new DirectExchange(EXCHANGE_TRANSACOES);
     }
     
+    /**
+     * Roteia as requisições pelo header {@code x-shard}. Mensagens sem o header (ou de um shard
+     * que não existe mais) seguem para o exchange alternativo e caem no shard 0.
+     */
+    @Bean
+    public HeadersExchange requisicoesExchange() {
+        return ExchangeBuilder.headersExchange(EXCHANGE_REQUISICOES)
+                .durable(true)
+                .alternate(EXCHANGE_TRANSACOES)
+                .build();
+    }
+    
+    @Bean
+    public Declarables requisicoesDeclarables(RoteamentoRequisicoes roteamento) {
+        HeadersExchange exchange = requisicoesExchange();
+        List<Declarable> declarables = new ArrayList<>();
+        for (String shard : roteamento.getShards()) {
+            // Mensagens rejeitadas sem reenfileirar (ex.: conteúdo inválido) vão para o parking
+            Queue fila = QueueBuilder.durable(filaShard(shard))
+                    .deadLetterExchange("")
+                    .deadLetterRoutingKey(filaParking(QUEUE_REQUISICOES))
+                    .build();
+            declarables.add(fila);
+            declarables.add(BindingBuilder.bind(fila).to(exchange).where(HEADER_SHARD).matches(shard));
+            if ("0".equals(shard)) {
+                declarables.add(BindingBuilder.bind(fila).to(transacoesExchange()).with(ROUTING_KEY_REQUISICOES));
+            }
+        }
+        return new Declarables(declarables);
+    }
+    
+    /**
+     * Fila única anterior aos shards, declarada sem argumentos como nas instalações existentes
+     * para ser drenada (ver {@link RoteamentoRequisicoes}); o dead letter para o parking vem de
+     * uma policy. Não tem binding: nenhuma publicação nova chega a ela.
+     */
     @Bean
-    public Queue requisicoesQueue() {
+    @ConditionalOnProperty(name = "banco.tranquilo.requisicoes.legada.habilitada", havingValue = "true", matchIfMissing = true)
+    public Queue requisicoesLegadaQueue() {
         return QueueBuilder.durable(QUEUE_REQUISICOES).build();
     }
     
+    /**
+     * Declarada sem argumentos, como nas instalações existentes: o RabbitMQ recusa redeclarar
+     * uma fila com argumentos diferentes. O dead letter para o parking vem de uma policy.
+     */
     @Bean
     public Queue respostasQueue() {
         return QueueBuilder.durable(QUEUE_RESPOSTAS).build();
     }
     
+    /**
+     * Para cada fila com retry, uma fila de espera por atraso configurado (TTL + dead letter de
+     * volta para a origem), e uma fila de parking para cada fila com parking. Nenhuma delas tem
+     * consumidores: a espera acontece no broker, não em uma thread do listener.
+     */
+    @Bean
+    public Declarables retryDeclarables(
+            @Value("${banco.tranquilo.retry.atrasos:1000,5000,30000,120000}") long[] atrasos) {
+        List<Declarable> declarables = new ArrayList<>();
+        FILAS_COM_RETRY.forEach((filaOrigem, routingKey) -> {
+            for (long atraso : atrasos) {
+                declarables.add(QueueBuilder.durable(filaRetry(filaOrigem, atraso))
+                        .ttl((int) atraso)
+                        .deadLetterExchange(exchangeRetorno(filaOrigem))
+                        .deadLetterRoutingKey(routingKey)
+                        .build());
+            }
+        });
+        FILAS_COM_PARKING.keySet().forEach(filaOrigem ->
+            declarables.add(QueueBuilder.durable(filaParking(filaOrigem)).build()));
+        return new Declarables(declarables);
+    }
+    
+    @Bean
+    public Queue adiadasQueue(@Value("${banco.tranquilo.adiamento.atraso:10000}") long atraso) {
+        // Sem consumidores: expirado o TTL, a mensagem volta para o seu shard
+        return QueueBuilder.durable(QUEUE_ADIADAS)
+                .ttl((int) atraso)
+                .deadLetterExchange(EXCHANGE_REQUISICOES)
+                .deadLetterRoutingKey(ROUTING_KEY_REQUISICOES)
+                .build();
+    }
+    
+    @Bean
+    public Queue emailsQueue() {
+        return QueueBuilder.durable(QUEUE_EMAILS).build();
+    }
+    
     @Bean
-    public Binding requisicoesBinding() {
+    public FanoutExchange eventosCompraExchange() {
+        return new FanoutExchange(EXCHANGE_EVENTOS);
+    }
+    
+    /**
+     * Fila exclusiva de cada instância para receber as mudanças de status processadas por
+     * qualquer instância; removida quando a conexão é encerrada.
+     */
+    @Bean
+    public Queue eventosCompraQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy(EXCHANGE_EVENTOS + "."));
+    }
+    
+    @Bean
+    public Binding eventosCompraBinding() {
         return BindingBuilder
-                .bind(requisicoesQueue())
-                .to(transacoesExchange())
-                .with(ROUTING_KEY_REQUISICOES);
+                .bind(eventosCompraQueue())
+                .to(eventosCompraExchange());
     }
     
     @Bean
@@ -50,16 +197,115 @@ public class RabbitMQConfig {
     }
     
     @Bean
-    public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public Binding emailsBinding() {
+        return BindingBuilder
+                .bind(emailsQueue())
+                .to(transacoesExchange())
+                .with(ROUTING_KEY_EMAILS);
+    }
+    
+    /**
+     * Consumidores aceitam JSON e binário; o formato só define o que é publicado.
+     */
+    @Bean
+    public MessageConverter messageConverter(
+            @Value("${banco.tranquilo.amqp.formato:json}") FormatoMensagem formato,
+            MeterRegistry meterRegistry) {
+        return new ConversorMensagemTransacao(new Jackson2JsonMessageConverter(), formato, meterRegistry);
     }
     
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter messageConverter) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
-        template.setMessageConverter(jsonMessageConverter());
+        template.setMessageConverter(messageConverter);
+        // Timestamp de publicação usado para medir o tempo de espera em fila
+        template.setBeforePublishPostProcessors(mensagem -> {
+            if (mensagem.getMessageProperties().getTimestamp() == null) {
+                mensagem.getMessageProperties().setTimestamp(new Date());
+            }
+            return mensagem;
+        });
         return template;
     }
+    
+    /**
+     * Containers dos shards de requisições consumidas uma a uma; a concorrência vem de cada
+     * endpoint e o prefetch é definido por fila.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory requisicaoListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            RoteamentoRequisicoes roteamento) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setContainerCustomizer(container ->
+                container.setPrefetchCount(roteamento.getPrefetch(container.getQueueNames()[0])));
+        return factory;
+    }
+    
+    @Bean
+    public SimpleRabbitListenerContainerFactory loteListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            RoteamentoRequisicoes roteamento,
+            @Value("${banco.tranquilo.listener.lote.tamanho:50}") int tamanhoLote,
+            @Value("${banco.tranquilo.listener.lote.espera-maxima:200}") long esperaMaxima) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(tamanhoLote);
+        // Tempo máximo de espera por cada próxima mensagem antes de entregar um lote incompleto
+        factory.setReceiveTimeout(esperaMaxima);
+        factory.setContainerCustomizer(container -> container.setPrefetchCount(
+                Math.max(tamanhoLote, roteamento.getPrefetch(container.getQueueNames()[0]))));
+        // Ack/nack é feito mensagem a mensagem pelo listener
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+    
+    @Bean
+    public SimpleRabbitListenerContainerFactory respostaListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            @Value("${banco.tranquilo.respostas.lote.tamanho:100}") int tamanhoLote,
+            @Value("${banco.tranquilo.respostas.lote.espera-maxima:50}") long esperaMaxima,
+            @Value("${banco.tranquilo.respostas.concorrencia:1}") int concorrencia,
+            @Value("${banco.tranquilo.respostas.prefetch:200}") int prefetch) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        // A pressão de escrita no banco é definida pelo tamanho do lote, não pela taxa de mensagens
+        factory.setBatchSize(tamanhoLote);
+        factory.setReceiveTimeout(esperaMaxima);
+        factory.setPrefetchCount(Math.max(prefetch, tamanhoLote));
+        factory.setConcurrentConsumers(concorrencia);
+        factory.setMaxConcurrentConsumers(concorrencia);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+    
+    @Bean
+    public SimpleRabbitListenerContainerFactory emailListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            MessageConverter messageConverter,
+            @Value("${banco.tranquilo.email.lote.tamanho:20}") int tamanhoLote,
+            @Value("${banco.tranquilo.email.lote.espera-maxima:500}") long esperaMaxima,
+            @Value("${banco.tranquilo.email.concorrencia:2}") int concorrencia) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(messageConverter);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(tamanhoLote);
+        factory.setReceiveTimeout(esperaMaxima);
+        factory.setPrefetchCount(tamanhoLote);
+        // Limita o número de conexões SMTP simultâneas
+        factory.setConcurrentConsumers(concorrencia);
+        factory.setMaxConcurrentConsumers(concorrencia);
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
 }
-
-
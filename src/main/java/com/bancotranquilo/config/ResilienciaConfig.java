@@ -0,0 +1,60 @@
+package com.bancotranquilo.config;
+
+import com.bancotranquilo.resiliencia.CircuitBreaker;
+import com.bancotranquilo.resiliencia.LimitadorAdaptativo;
+import com.bancotranquilo.resiliencia.LimitadorTaxa;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ResilienciaConfig {
+    
+    @Bean
+    public CircuitBreaker bancoCircuitBreaker(
+            MeterRegistry meterRegistry,
+            @Value("${banco.tranquilo.circuito.janela:50}") int janela,
+            @Value("${banco.tranquilo.circuito.taxa-falha:0.5}") double taxaFalha,
+            @Value("${banco.tranquilo.circuito.chamadas-minimas:20}") int chamadasMinimas,
+            @Value("${banco.tranquilo.circuito.tempo-aberto:10000}") long tempoAberto,
+            @Value("${banco.tranquilo.circuito.chamadas-semi-aberto:3}") int chamadasSemiAberto) {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("banco-tranquilo", janela, taxaFalha,
+                chamadasMinimas, tempoAberto, chamadasSemiAberto);
+        
+        Gauge.builder("banco.circuito.estado", circuitBreaker, cb -> cb.getEstado().ordinal())
+                .description("0 = fechado, 1 = semiaberto, 2 = aberto")
+                .register(meterRegistry);
+        Gauge.builder("banco.circuito.taxa_falha", circuitBreaker, CircuitBreaker::taxaFalha)
+                .register(meterRegistry);
+        Gauge.builder("banco.circuito.rejeitadas", circuitBreaker, CircuitBreaker::getRejeitadas)
+                .description("Chamadas não feitas por circuito aberto desde o início")
+                .register(meterRegistry);
+        return circuitBreaker;
+    }
+    
+    @Bean
+    public LimitadorAdaptativo bancoLimitador(
+            MeterRegistry meterRegistry,
+            @Value("${banco.tranquilo.limitador.inicial:8}") int inicial,
+            @Value("${banco.tranquilo.limitador.minimo:2}") int minimo,
+            @Value("${banco.tranquilo.api.paralelismo:16}") int maximo,
+            @Value("${banco.tranquilo.limitador.latencia-alvo:500}") long latenciaAlvo,
+            @Value("${banco.tranquilo.limitador.fator-reducao:0.7}") double fatorReducao) {
+        LimitadorAdaptativo limitador = new LimitadorAdaptativo(inicial, minimo, maximo, latenciaAlvo, fatorReducao);
+        
+        Gauge.builder("banco.limitador.limite", limitador, LimitadorAdaptativo::getLimite)
+                .register(meterRegistry);
+        Gauge.builder("banco.limitador.em_voo", limitador, LimitadorAdaptativo::getEmVoo)
+                .register(meterRegistry);
+        return limitador;
+    }
+    
+    @Bean
+    public LimitadorTaxa comprasLimitadorTaxa(
+            @Value("${banco.tranquilo.limite-taxa.por-segundo:5}") double porSegundo,
+            @Value("${banco.tranquilo.limite-taxa.rajada:20}") int rajada) {
+        return new LimitadorTaxa(porSegundo, rajada);
+    }
+}
@@ -1,28 +1,225 @@
 package com.bancotranquilo.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.client5.http.nio.AsyncConnectionEndpoint;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 @Configuration
 public class RestTemplateConfig {
     
+    private static final String CLIENTE_SINCRONO = "sincrono";
+    private static final String CLIENTE_ASSINCRONO = "assincrono";
+    
+    @Value("${banco.tranquilo.api.timeout}")
+    private int timeout;
+    
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager bancoConnectionManager(
+            MeterRegistry meterRegistry,
+            @Value("${banco.tranquilo.http.pool.max-total:200}") int maxTotal,
+            @Value("${banco.tranquilo.http.pool.max-por-rota:50}") int maxPorRota,
+            @Value("${banco.tranquilo.http.pool.tempo-de-vida:300000}") long tempoDeVida) {
+        Timer esperaPool = timerEsperaPool(meterRegistry, CLIENTE_SINCRONO);
+        
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager() {
+            @Override
+            public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+                LeaseRequest leaseRequest = super.lease(id, route, requestTimeout, state);
+                return new LeaseRequest() {
+                    @Override
+                    public ConnectionEndpoint get(Timeout timeout)
+                            throws InterruptedException, ExecutionException, TimeoutException {
+                        long inicio = System.nanoTime();
+                        try {
+                            return leaseRequest.get(timeout);
+                        } finally {
+                            esperaPool.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                        }
+                    }
+                    
+                    @Override
+                    public boolean cancel() {
+                        return leaseRequest.cancel();
+                    }
+                };
+            }
+        };
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPorRota);
+        connectionManager.setDefaultConnectionConfig(configuracaoConexao(tempoDeVida));
+        registrarGaugesPool(meterRegistry, CLIENTE_SINCRONO, connectionManager, PoolingHttpClientConnectionManager::getTotalStats);
+        
+        return connectionManager;
+    }
+    
+    /**
+     * Pool das chamadas assíncronas, com os mesmos limites e métricas do pool síncrono. Negocia
+     * HTTP/2 por ALPN quando a API usa TLS e o servidor suporta; sem TLS fica em HTTP/1.1.
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingAsyncClientConnectionManager bancoAsyncConnectionManager(
+            MeterRegistry meterRegistry,
+            @Value("${banco.tranquilo.http.pool.max-total:200}") int maxTotal,
+            @Value("${banco.tranquilo.http.pool.max-por-rota:50}") int maxPorRota,
+            @Value("${banco.tranquilo.http.pool.tempo-de-vida:300000}") long tempoDeVida) {
+        Timer esperaPool = timerEsperaPool(meterRegistry, CLIENTE_ASSINCRONO);
+        
+        PoolingAsyncClientConnectionManager connectionManager = new PoolingAsyncClientConnectionManager() {
+            @Override
+            public Future<AsyncConnectionEndpoint> lease(String id, HttpRoute route, Object state,
+                                                         Timeout requestTimeout,
+                                                         FutureCallback<AsyncConnectionEndpoint> callback) {
+                long inicio = System.nanoTime();
+                return super.lease(id, route, state, requestTimeout, new FutureCallback<>() {
+                    @Override
+                    public void completed(AsyncConnectionEndpoint endpoint) {
+                        esperaPool.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                        if (callback != null) {
+                            callback.completed(endpoint);
+                        }
+                    }
+                    
+                    @Override
+                    public void failed(Exception e) {
+                        esperaPool.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                        if (callback != null) {
+                            callback.failed(e);
+                        }
+                    }
+                    
+                    @Override
+                    public void cancelled() {
+                        esperaPool.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                        if (callback != null) {
+                            callback.cancelled();
+                        }
+                    }
+                });
+            }
+        };
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPorRota);
+        connectionManager.setDefaultConnectionConfig(configuracaoConexao(tempoDeVida));
+        connectionManager.setDefaultTlsConfig(TlsConfig.custom()
+                .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                .build());
+        registrarGaugesPool(meterRegistry, CLIENTE_ASSINCRONO, connectionManager, PoolingAsyncClientConnectionManager::getTotalStats);
+        
+        return connectionManager;
+    }
+    
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient bancoHttpClient(
+            PoolingHttpClientConnectionManager bancoConnectionManager,
+            @Value("${banco.tranquilo.http.pool.keep-alive:30000}") long keepAlive,
+            @Value("${banco.tranquilo.http.pool.ociosidade-maxima:60000}") long ociosidadeMaxima,
+            @Value("${banco.tranquilo.http.pool.espera-conexao:1000}") long esperaConexao) {
+        return HttpClients.custom()
+                .setConnectionManager(bancoConnectionManager)
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofMilliseconds(keepAlive))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(ociosidadeMaxima))
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(esperaConexao))
+                        .setResponseTimeout(Timeout.ofMilliseconds(timeout))
+                        .build())
+                .build();
+    }
+    
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(5000);
-        factory.setReadTimeout(5000);
+    public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient bancoHttpClient) {
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(bancoHttpClient);
         
         return builder
                 .requestFactory(() -> factory)
-                .setConnectTimeout(Duration.ofSeconds(5))
-                .setReadTimeout(Duration.ofSeconds(5))
                 .build();
     }
+    
+    @Bean(destroyMethod = "close")
+    public CloseableHttpAsyncClient bancoHttpClientAsync(
+            PoolingAsyncClientConnectionManager bancoAsyncConnectionManager,
+            @Value("${banco.tranquilo.http.pool.keep-alive:30000}") long keepAlive,
+            @Value("${banco.tranquilo.http.pool.ociosidade-maxima:60000}") long ociosidadeMaxima,
+            @Value("${banco.tranquilo.http.pool.espera-conexao:1000}") long esperaConexao) {
+        CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(bancoAsyncConnectionManager)
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofMilliseconds(keepAlive))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(ociosidadeMaxima))
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(esperaConexao))
+                        .setResponseTimeout(Timeout.ofMilliseconds(timeout))
+                        .build())
+                .build();
+        httpClient.start();
+        return httpClient;
+    }
+    
+    private ConnectionConfig configuracaoConexao(long tempoDeVida) {
+        return ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(timeout))
+                .setSocketTimeout(Timeout.ofMilliseconds(timeout))
+                .setTimeToLive(TimeValue.ofMilliseconds(tempoDeVida))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build();
+    }
+    
+    private static Timer timerEsperaPool(MeterRegistry meterRegistry, String cliente) {
+        return Timer.builder("banco.http.pool.espera")
+                .description("Tempo de espera por uma conexão livre no pool")
+                .tag("cliente", cliente)
+                .register(meterRegistry);
+    }
+    
+    private static <T> void registrarGaugesPool(MeterRegistry meterRegistry, String cliente, T connectionManager,
+                                                Function<T, PoolStats> estatisticas) {
+        registrarGaugePool(meterRegistry, cliente, connectionManager, estatisticas, "alugadas", PoolStats::getLeased);
+        registrarGaugePool(meterRegistry, cliente, connectionManager, estatisticas, "disponiveis", PoolStats::getAvailable);
+        registrarGaugePool(meterRegistry, cliente, connectionManager, estatisticas, "aguardando", PoolStats::getPending);
+        registrarGaugePool(meterRegistry, cliente, connectionManager, estatisticas, "maximo", PoolStats::getMax);
+    }
+    
+    private static <T> void registrarGaugePool(MeterRegistry meterRegistry,
+                                               String cliente,
+                                               T connectionManager,
+                                               Function<T, PoolStats> estatisticas,
+                                               String estado,
+                                               ToIntFunction<PoolStats> valor) {
+        Gauge.builder("banco.http.pool.conexoes", connectionManager,
+                        cm -> valor.applyAsInt(estatisticas.apply(cm)))
+                .tag("cliente", cliente)
+                .tag("estado", estado)
+                .register(meterRegistry);
+    }
 }
-
-
@@ -0,0 +1,67 @@
+package com.bancotranquilo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.amqp.rabbit.config.AbstractRabbitListenerContainerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Modo opcional em que requisições HTTP e consumidores AMQP rodam em threads virtuais. Exige
+ * Java 21+ em tempo de execução; o build continua em Java 17, por isso o executor é obtido
+ * por reflexão.
+ */
+@Configuration
+@ConditionalOnProperty(name = "banco.tranquilo.threads.virtuais.habilitado", havingValue = "true")
+@Slf4j
+public class ThreadsVirtuaisConfig {
+    
+    /**
+     * Executor único do modo: Tomcat e todos os containers de listener usam a mesma instância,
+     * encerrada com o contexto ({@code close} espera as tarefas em andamento).
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService threadsVirtuaisExecutor() {
+        return criarExecutorVirtual();
+    }
+    
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> tomcatThreadsVirtuais(ExecutorService threadsVirtuaisExecutor) {
+        log.info("Requisições HTTP serão atendidas em threads virtuais");
+        return protocolHandler -> protocolHandler.setExecutor(threadsVirtuaisExecutor);
+    }
+    
+    @Bean
+    public static BeanPostProcessor listenerThreadsVirtuais(
+            @Qualifier("threadsVirtuaisExecutor") ObjectProvider<ExecutorService> threadsVirtuaisExecutor) {
+        // O executor é buscado só quando a primeira factory aparece: um BeanPostProcessor sobe antes dos outros beans
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractRabbitListenerContainerFactory<?> factory) {
+                    log.info("Consumidores de '{}' serão executados em threads virtuais", beanName);
+                    factory.setTaskExecutor(threadsVirtuaisExecutor.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+    
+    private static ExecutorService criarExecutorVirtual() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Threads virtuais exigem Java 21 ou superior", e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Erro ao criar executor de threads virtuais: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.bancotranquilo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Execução de treino do arquivo CDS ({@code -XX:ArchiveClassesAtExit}) feita no build do perfil
+ * {@code inicio-rapido}: encerra a JVM logo depois de criar todos os beans, antes de iniciar
+ * consumidores, agendamentos e o servidor HTTP, sem abrir conexão com o RabbitMQ.
+ * <p>
+ * A propriedade é lida em tempo de execução e não por condição no bean, porque no modo AOT as
+ * condições são avaliadas uma única vez, no build.
+ */
+@Component
+@Slf4j
+public class TreinoCds implements SmartLifecycle {
+    
+    @Value("${banco.tranquilo.cds.treino:false}")
+    private boolean treino;
+    
+    @Override
+    public void start() {
+        if (treino) {
+            log.info("Classes do contexto carregadas, encerrando o treino do CDS");
+            // halt e não exit: os hooks de encerramento fechariam um contexto que ainda não terminou de iniciar
+            Runtime.getRuntime().halt(0);
+        }
+    }
+    
+    @Override
+    public void stop() {
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return false;
+    }
+    
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+}
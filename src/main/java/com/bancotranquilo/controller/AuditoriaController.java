@@ -0,0 +1,50 @@
+package com.bancotranquilo.controller;
+
+import com.bancotranquilo.auditoria.JornalAuditoria;
+import com.bancotranquilo.model.dto.RegistroAuditoria;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/auditoria")
+@Slf4j
+public class AuditoriaController {
+    
+    private static final int LIMITE_MAXIMO = 10000;
+    
+    private final JornalAuditoria jornalAuditoria;
+    
+    @Autowired
+    public AuditoriaController(JornalAuditoria jornalAuditoria) {
+        this.jornalAuditoria = jornalAuditoria;
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<RegistroAuditoria>> buscar(
+            @RequestParam(required = false) Long compraId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime de,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime ate,
+            @RequestParam(defaultValue = "1000") int limite) {
+        // Sem compra nem período a consulta varreria o jornal inteiro
+        if ((compraId == null && de == null && ate == null) || limite < 1 || limite > LIMITE_MAXIMO) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(jornalAuditoria.buscar(compraId, de, ate, limite));
+        } catch (IOException e) {
+            log.error("Erro ao ler o jornal de auditoria: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -1,32 +1,93 @@
 package com.bancotranquilo.controller;
 
+import com.bancotranquilo.model.StatusCompra;
 import com.bancotranquilo.model.dto.CompraRequest;
 import com.bancotranquilo.model.dto.CompraResponse;
+import com.bancotranquilo.model.dto.FiltroCompras;
+import com.bancotranquilo.model.dto.PaginaCompras;
+import com.bancotranquilo.model.dto.ResultadoLote;
+import com.bancotranquilo.model.dto.ResumoEstatisticas;
+import com.bancotranquilo.service.AdmissaoCompras;
+import com.bancotranquilo.service.CompraLoteService;
 import com.bancotranquilo.service.CompraService;
+import com.bancotranquilo.service.EstatisticasCompras;
+import com.bancotranquilo.service.EsperaResultadoCompra;
+import com.bancotranquilo.service.EventosCompraService;
+import com.bancotranquilo.service.LoteExcedidoException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/compras")
 @Slf4j
 public class CompraController {
     
+    private static final int LIMITE_MAXIMO_PAGINA = 500;
+    private static final int LIMITE_COMPRAS_EVENTOS = 100;
+    private static final String HEADER_CLIENTE_API = "X-Cliente-Api";
+    private static final String HEADER_ACCEPT_POST = "Accept-Post";
+    
+    @Value("${banco.tranquilo.compras.aguardar.maximo:30s}")
+    private Duration esperaMaxima;
+    
     private final CompraService compraService;
+    private final CompraLoteService compraLoteService;
+    private final EstatisticasCompras estatisticasCompras;
+    private final EventosCompraService eventosCompraService;
+    private final EsperaResultadoCompra esperaResultadoCompra;
+    private final AdmissaoCompras admissaoCompras;
+    private final ObjectMapper objectMapper;
     
     @Autowired
-    public CompraController(CompraService compraService) {
+    public CompraController(CompraService compraService,
+                            CompraLoteService compraLoteService,
+                            EstatisticasCompras estatisticasCompras,
+                            EventosCompraService eventosCompraService,
+                            EsperaResultadoCompra esperaResultadoCompra,
+                            AdmissaoCompras admissaoCompras,
+                            ObjectMapper objectMapper) {
         this.compraService = compraService;
+        this.compraLoteService = compraLoteService;
+        this.estatisticasCompras = estatisticasCompras;
+        this.eventosCompraService = eventosCompraService;
+        this.esperaResultadoCompra = esperaResultadoCompra;
+        this.admissaoCompras = admissaoCompras;
+        this.objectMapper = objectMapper;
     }
     
     @PostMapping
-    public ResponseEntity<CompraResponse> criarCompra(@Valid @RequestBody CompraRequest request) {
-        log.info("Recebida requisição para criar compra");
+    public ResponseEntity<CompraResponse> criarCompra(
+            @Valid @RequestBody CompraRequest request,
+            @RequestHeader(value = HEADER_CLIENTE_API, required = false) String clienteApi) {
+        log.debug("Recebida requisição para criar compra");
+        Optional<Duration> recusa = admissaoCompras.avaliar(request, clienteApi);
+        if (recusa.isPresent()) {
+            return recusar(recusa.get());
+        }
         try {
             CompraResponse response = compraService.criarCompra(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
@@ -36,6 +97,89 @@ public class CompraController {
         }
     }
     
+    /**
+     * Com {@code aguardar} (ex.: 5s, 800ms, PT10S) a resposta só é enviada quando a compra chega
+     * a um status final ou o tempo acaba (a compra volta em andamento). Valores abaixo de 1 ms
+     * ou acima do máximo configurado são recusados com 400.
+     */
+    @PostMapping(params = "aguardar")
+    public DeferredResult<ResponseEntity<CompraResponse>> criarCompraAguardando(
+            @Valid @RequestBody CompraRequest request,
+            @RequestParam String aguardar,
+            @RequestHeader(value = HEADER_CLIENTE_API, required = false) String clienteApi) {
+        Duration espera;
+        try {
+            espera = DurationStyle.detectAndParse(aguardar, ChronoUnit.MILLIS);
+        } catch (IllegalArgumentException e) {
+            return resultado(ResponseEntity.badRequest().build());
+        }
+        // Abaixo de 1 ms o DeferredResult ficaria sem timeout
+        if (espera.toMillis() < 1 || espera.compareTo(esperaMaxima) > 0) {
+            return resultado(ResponseEntity.badRequest().build());
+        }
+        Optional<Duration> recusa = admissaoCompras.avaliar(request, clienteApi);
+        if (recusa.isPresent()) {
+            return resultado(recusar(recusa.get()));
+        }
+        
+        try {
+            CompraResponse response = compraService.criarCompra(request);
+            return esperaResultadoCompra.aguardar(response, espera);
+        } catch (Exception e) {
+            log.error("Erro ao criar compra: {}", e.getMessage(), e);
+            return resultado(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+        }
+    }
+    
+    /**
+     * Lote em array JSON, limitado a {@code banco.tranquilo.lote.itens-maximos} itens: acima
+     * disso responde 413 com {@code Accept-Post: application/x-ndjson}, sem gravar nenhuma compra.
+     */
+    @PostMapping(value = "/lote", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ResultadoLote> criarComprasLote(InputStream corpo) {
+        log.info("Recebido lote JSON de compras");
+        Optional<Duration> recusa = admissaoCompras.avaliarAcumulo();
+        if (recusa.isPresent()) {
+            return recusar(recusa.get());
+        }
+        try {
+            return ResponseEntity.ok(compraLoteService.criarComprasJson(corpo));
+        } catch (LoteExcedidoException e) {
+            log.warn("Lote JSON recusado: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .header(HEADER_ACCEPT_POST, MediaType.APPLICATION_NDJSON_VALUE)
+                .build();
+        } catch (JsonProcessingException e) {
+            log.warn("Lote JSON inválido: {}", e.getOriginalMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Erro ao criar lote de compras: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    @PostMapping(value = "/lote", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResultadoLote> criarComprasLoteNdjson(InputStream corpo) {
+        log.info("Recebido lote NDJSON de compras");
+        Optional<Duration> recusa = admissaoCompras.avaliarAcumulo();
+        if (recusa.isPresent()) {
+            return recusar(recusa.get());
+        }
+        try {
+            return ResponseEntity.ok(compraLoteService.criarComprasNdjson(corpo));
+        } catch (Exception e) {
+            log.error("Erro ao criar lote de compras: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    @GetMapping("/estatisticas")
+    public ResponseEntity<ResumoEstatisticas> estatisticas(
+            @RequestParam(defaultValue = "7") int dias,
+            @RequestParam(defaultValue = "24") int horas) {
+        return ResponseEntity.ok(estatisticasCompras.consultar(dias, horas));
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<CompraResponse> buscarCompra(@PathVariable Long id) {
         try {
@@ -47,16 +191,92 @@ public class CompraController {
         }
     }
     
+    @GetMapping(value = "/{id}/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> eventosCompra(
+            @PathVariable Long id,
+            @RequestHeader(value = "Last-Event-ID", required = false) String ultimoEventoId) {
+        try {
+            compraService.buscarCompraPorId(id);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return respostaEventos(eventosCompraService.abrir(List.of(id), ultimoEventoId));
+    }
+    
+    @GetMapping(value = "/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> eventosCompras(
+            @RequestParam List<Long> ids,
+            @RequestHeader(value = "Last-Event-ID", required = false) String ultimoEventoId) {
+        List<Long> distintos = ids.stream().distinct().collect(Collectors.toList());
+        if (distintos.isEmpty() || distintos.size() > LIMITE_COMPRAS_EVENTOS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return respostaEventos(eventosCompraService.abrir(distintos, ultimoEventoId));
+    }
+    
     @GetMapping
-    public ResponseEntity<List<CompraResponse>> listarCompras() {
+    public ResponseEntity<PaginaCompras> listarCompras(
+            @RequestParam(required = false) StatusCompra status,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime de,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime ate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limite) {
         try {
-            List<CompraResponse> compras = compraService.listarCompras();
-            return ResponseEntity.ok(compras);
+            FiltroCompras filtro = new FiltroCompras(status, email, de, ate, null, null);
+            int limiteValido = Math.max(1, Math.min(limite, LIMITE_MAXIMO_PAGINA));
+            return ResponseEntity.ok(compraService.listarCompras(filtro, cursor, limiteValido));
+        } catch (IllegalArgumentException e) {
+            log.warn("Parâmetros de listagem inválidos: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Erro ao listar compras: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+    
+    @GetMapping(value = "/exportar", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarCompras(
+            @RequestParam(required = false) StatusCompra status,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime de,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime ate) {
+        FiltroCompras filtro = new FiltroCompras(status, email, de, ate, null, null);
+        
+        StreamingResponseBody corpo = saida -> {
+            try (Stream<CompraResponse> compras = compraService.streamCompras(filtro)) {
+                Iterator<CompraResponse> iterator = compras.iterator();
+                while (iterator.hasNext()) {
+                    saida.write(objectMapper.writeValueAsBytes(iterator.next()));
+                    saida.write('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(corpo);
+    }
+    
+    /**
+     * 429 com Retry-After em segundos inteiros, arredondado para cima.
+     */
+    private static <T> ResponseEntity<T> recusar(Duration retryAfter) {
+        long segundos = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(segundos))
+            .build();
+    }
+    
+    private static DeferredResult<ResponseEntity<CompraResponse>> resultado(ResponseEntity<CompraResponse> response) {
+        DeferredResult<ResponseEntity<CompraResponse>> resultado = new DeferredResult<>();
+        resultado.setResult(response);
+        return resultado;
+    }
+    
+    private ResponseEntity<SseEmitter> respostaEventos(SseEmitter emitter) {
+        // Desativa o buffer de proxies (nginx) para que cada evento chegue imediatamente
+        return ResponseEntity.ok()
+            .header("X-Accel-Buffering", "no")
+            .body(emitter);
+    }
 }
-
-
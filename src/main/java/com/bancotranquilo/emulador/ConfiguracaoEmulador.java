@@ -0,0 +1,66 @@
+package com.bancotranquilo.emulador;
+
+import lombok.Data;
+
+/**
+ * Comportamento do {@link EmuladorBanco}. Latências em ms; proporções entre 0 e 1. As chamadas
+ * que não caem em timeout nem em erro são respondidas e aprovadas na proporção {@code aprovacao}.
+ */
+@Data
+public class ConfiguracaoEmulador {
+    
+    private int porta = 0;
+    private int threads = 8;
+    private double aprovacao = 0.8;
+    private double erro = 0;
+    private double timeout = 0;
+    private long esperaTimeout = 30000;
+    private DistribuicaoLatencia distribuicao = DistribuicaoLatencia.EXPONENCIAL;
+    private double latenciaMedia = 20;
+    private double dispersao = 0.5;
+    private Long semente;
+    private boolean loteHabilitado = true;
+    private double latenciaPorItem = 0;
+    
+    /**
+     * Lê argumentos {@code --chave=valor}, com as mesmas chaves das propriedades
+     * {@code banco.tranquilo.emulador.*}.
+     */
+    public static ConfiguracaoEmulador de(String[] args) {
+        ConfiguracaoEmulador configuracao = new ConfiguracaoEmulador();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento inválido (use --chave=valor): " + arg);
+            }
+            String chave = arg.substring(2, arg.indexOf('='));
+            String valor = arg.substring(arg.indexOf('=') + 1);
+            
+            switch (chave) {
+                case "porta" -> configuracao.porta = Integer.parseInt(valor);
+                case "threads" -> configuracao.threads = Integer.parseInt(valor);
+                case "aprovacao" -> configuracao.aprovacao = Double.parseDouble(valor);
+                case "erro" -> configuracao.erro = Double.parseDouble(valor);
+                case "timeout" -> configuracao.timeout = Double.parseDouble(valor);
+                case "espera-timeout" -> configuracao.esperaTimeout = Long.parseLong(valor);
+                case "distribuicao" -> configuracao.distribuicao = DistribuicaoLatencia.de(valor);
+                case "latencia-media" -> configuracao.latenciaMedia = Double.parseDouble(valor);
+                case "dispersao" -> configuracao.dispersao = Double.parseDouble(valor);
+                case "semente" -> configuracao.semente = valor.isBlank() ? null : Long.parseLong(valor);
+                case "lote.habilitado" -> configuracao.loteHabilitado = Boolean.parseBoolean(valor);
+                case "lote.latencia-por-item" -> configuracao.latenciaPorItem = Double.parseDouble(valor);
+                default -> throw new IllegalArgumentException("Parâmetro desconhecido: " + chave);
+            }
+        }
+        return configuracao;
+    }
+    
+    void validar() {
+        if (aprovacao < 0 || aprovacao > 1 || erro < 0 || timeout < 0 || erro + timeout > 1) {
+            throw new IllegalArgumentException(
+                "Proporções do emulador inválidas: aprovacao, erro e timeout devem estar entre 0 e 1 e erro + timeout <= 1");
+        }
+        if (latenciaMedia < 0 || dispersao < 0 || latenciaPorItem < 0 || esperaTimeout < 0) {
+            throw new IllegalArgumentException("Latências e dispersão do emulador não podem ser negativas");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.bancotranquilo.emulador;
+
+import java.util.Locale;
+import java.util.random.RandomGenerator;
+
+/**
+ * Distribuições de latência do emulador. {@code media} está em qualquer unidade (o emulador
+ * usa microssegundos); o significado de {@code dispersao} depende da distribuição.
+ */
+public enum DistribuicaoLatencia {
+    
+    /** Sempre a média; ignora a dispersão. */
+    CONSTANTE {
+        @Override
+        public double amostrar(double media, double dispersao, RandomGenerator aleatorio) {
+            return media;
+        }
+    },
+    
+    /** Uniforme entre {@code media * (1 - dispersao)} e {@code media * (1 + dispersao)}. */
+    UNIFORME {
+        @Override
+        public double amostrar(double media, double dispersao, RandomGenerator aleatorio) {
+            return Math.max(0, media * (1 + dispersao * (2 * aleatorio.nextDouble() - 1)));
+        }
+    },
+    
+    /** Exponencial com a média dada; ignora a dispersão. */
+    EXPONENCIAL {
+        @Override
+        public double amostrar(double media, double dispersao, RandomGenerator aleatorio) {
+            return -Math.log(1 - aleatorio.nextDouble()) * media;
+        }
+    },
+    
+    /**
+     * Log-normal com a média dada e {@code dispersao} como desvio padrão do logaritmo. Com
+     * dispersão acima de 1 a cauda fica longa, como a de um banco lento.
+     */
+    LOGNORMAL {
+        @Override
+        public double amostrar(double media, double dispersao, RandomGenerator aleatorio) {
+            double mu = Math.log(media) - dispersao * dispersao / 2;
+            return Math.exp(mu + dispersao * aleatorio.nextGaussian());
+        }
+    };
+    
+    public abstract double amostrar(double media, double dispersao, RandomGenerator aleatorio);
+    
+    public static DistribuicaoLatencia de(String nome) {
+        return valueOf(nome.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,196 @@
+package com.bancotranquilo.emulador;
+
+import com.bancotranquilo.model.dto.TransacaoRequest;
+import com.bancotranquilo.model.dto.TransacaoResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+/**
+ * Emulador HTTP da API do Banco Tranquilo ({@code /api/transacoes/processar} e
+ * {@code /api/transacoes/processar-lote}), usado no modo emulador da aplicação, no teste de
+ * carga e de forma avulsa:
+ * <pre>
+ * java -cp target/banco-tranquilo-integration-1.0.0.jar \
+ *     -Dloader.main=com.bancotranquilo.emulador.EmuladorBanco org.springframework.boot.loader.PropertiesLauncher \
+ *     --porta=8081 --distribuicao=lognormal --latencia-media=200 --dispersao=1.5 --timeout=0.05 --semente=42
+ * </pre>
+ * Cada chamada cai em timeout (HTTP 504 depois de {@code esperaTimeout} ms), em erro (HTTP 503)
+ * ou é respondida, depois de uma latência sorteada, aprovada ou recusada. A espera é agendada,
+ * sem ocupar uma thread por requisição.
+ * <p>
+ * Com {@code semente}, os sorteios dependem só da semente, da compra e da tentativa: a mesma
+ * carga produz as mesmas aprovações, falhas e latências em qualquer ordem de chegada. A
+ * aprovação de uma compra não muda entre tentativas.
+ */
+@Slf4j
+public class EmuladorBanco implements AutoCloseable {
+    
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_SERVICE_UNAVAILABLE = 503;
+    private static final int HTTP_GATEWAY_TIMEOUT = 504;
+    private static final byte[] SEM_CORPO = new byte[0];
+    
+    private final ConfiguracaoEmulador configuracao;
+    private final HttpServer servidor;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService agendador;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Falhas já sorteadas por compra; a entrada some quando a compra recebe resposta
+    private final Map<Long, Integer> tentativas = new ConcurrentHashMap<>();
+    
+    public EmuladorBanco(ConfiguracaoEmulador configuracao) throws IOException {
+        configuracao.validar();
+        this.configuracao = configuracao;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, configuracao.getThreads()));
+        this.agendador = Executors.newScheduledThreadPool(Math.max(1, configuracao.getThreads() / 2));
+        this.servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", configuracao.getPorta()), 1024);
+        servidor.setExecutor(executor);
+        servidor.createContext("/api/transacoes/processar", this::processar);
+        servidor.createContext("/api/transacoes/processar-lote", this::processarLote);
+        servidor.start();
+        log.info("Emulador do Banco Tranquilo ouvindo na porta {} (latência {} média {} ms, aprovação {}, erro {}, timeout {}, semente {})",
+                porta(), configuracao.getDistribuicao(), configuracao.getLatenciaMedia(), configuracao.getAprovacao(),
+                configuracao.getErro(), configuracao.getTimeout(), configuracao.getSemente());
+    }
+    
+    public static void main(String[] args) throws Exception {
+        ConfiguracaoEmulador configuracao = ConfiguracaoEmulador.de(args);
+        if (configuracao.getPorta() == 0) {
+            configuracao.setPorta(8081);
+        }
+        EmuladorBanco emulador = new EmuladorBanco(configuracao);
+        Runtime.getRuntime().addShutdownHook(new Thread(emulador::close));
+        Thread.currentThread().join();
+    }
+    
+    public int porta() {
+        return servidor.getAddress().getPort();
+    }
+    
+    /** URL base no formato de {@code banco.tranquilo.api.url}. */
+    public String url() {
+        return "http://127.0.0.1:" + porta() + "/api";
+    }
+    
+    private void processar(HttpExchange exchange) throws IOException {
+        Desfecho desfecho = sortear(ler(exchange, TransacaoRequest.class));
+        byte[] corpo = desfecho.resposta() == null ? SEM_CORPO : objectMapper.writeValueAsBytes(desfecho.resposta());
+        responderDepois(exchange, desfecho.status(), corpo, desfecho.latenciaMicros());
+    }
+    
+    private void processarLote(HttpExchange exchange) throws IOException {
+        TransacaoRequest[] requests = ler(exchange, TransacaoRequest[].class);
+        if (!configuracao.isLoteHabilitado()) {
+            responderDepois(exchange, HTTP_NOT_FOUND, SEM_CORPO, 0);
+            return;
+        }
+        
+        // O lote responde quando a transação mais lenta termina; as que falharam ficam de fora
+        List<TransacaoResponse> respostas = new ArrayList<>(requests.length);
+        long latencia = 0;
+        for (TransacaoRequest request : requests) {
+            Desfecho desfecho = sortear(request);
+            if (desfecho.resposta() != null) {
+                respostas.add(desfecho.resposta());
+                latencia = Math.max(latencia, desfecho.latenciaMicros());
+            }
+        }
+        latencia += (long) (configuracao.getLatenciaPorItem() * 1000 * requests.length);
+        responderDepois(exchange, HTTP_OK, objectMapper.writeValueAsBytes(respostas), latencia);
+    }
+    
+    private Desfecho sortear(TransacaoRequest request) {
+        long compraId = request.getCompraId();
+        RandomGenerator aleatorio = aleatorio(compraId,
+            configuracao.getSemente() == null ? 0 : tentativas.merge(compraId, 1, Integer::sum));
+        
+        double falha = aleatorio.nextDouble();
+        if (falha < configuracao.getTimeout()) {
+            return new Desfecho(HTTP_GATEWAY_TIMEOUT, configuracao.getEsperaTimeout() * 1000, null);
+        }
+        long latencia = (long) configuracao.getDistribuicao()
+            .amostrar(configuracao.getLatenciaMedia() * 1000, configuracao.getDispersao(), aleatorio);
+        if (falha < configuracao.getTimeout() + configuracao.getErro()) {
+            return new Desfecho(HTTP_SERVICE_UNAVAILABLE, latencia, null);
+        }
+        tentativas.remove(compraId);
+        return new Desfecho(HTTP_OK, latencia, responder(request));
+    }
+    
+    private TransacaoResponse responder(TransacaoRequest request) {
+        TransacaoResponse response = new TransacaoResponse();
+        response.setCompraId(request.getCompraId());
+        // Tentativa 0: a aprovação é a mesma em todas as tentativas da compra
+        if (aleatorio(request.getCompraId(), 0).nextDouble() < configuracao.getAprovacao()) {
+            response.setSucesso(true);
+            response.setMensagem("Transação aprovada com sucesso");
+            response.setCodigoTransacao("TXN" + request.getCompraId());
+        } else {
+            response.setSucesso(false);
+            response.setMensagem("Transação rejeitada: Saldo insuficiente");
+        }
+        return response;
+    }
+    
+    private RandomGenerator aleatorio(long compraId, int tentativa) {
+        Long semente = configuracao.getSemente();
+        if (semente == null) {
+            return ThreadLocalRandom.current();
+        }
+        return new SplittableRandom(misturar(misturar(semente ^ compraId) + tentativa));
+    }
+    
+    // Finalizador do MurmurHash3: sementes vizinhas geram sequências sem relação entre si
+    private static long misturar(long valor) {
+        valor = (valor ^ (valor >>> 33)) * 0xff51afd7ed558ccdL;
+        valor = (valor ^ (valor >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return valor ^ (valor >>> 33);
+    }
+    
+    private <T> T ler(HttpExchange exchange, Class<T> tipo) throws IOException {
+        try (InputStream corpo = exchange.getRequestBody()) {
+            return objectMapper.readValue(corpo, tipo);
+        }
+    }
+    
+    private void responderDepois(HttpExchange exchange, int status, byte[] corpo, long latenciaMicros) {
+        agendador.schedule(() -> {
+            try (OutputStream saida = exchange.getResponseBody()) {
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, corpo.length == 0 ? -1 : corpo.length);
+                saida.write(corpo);
+            } catch (IOException e) {
+                log.debug("Cliente desconectou antes da resposta do emulador: {}", e.getMessage());
+            }
+        }, latenciaMicros, TimeUnit.MICROSECONDS);
+    }
+    
+    @Override
+    public void close() {
+        servidor.stop(0);
+        agendador.shutdownNow();
+        executor.shutdownNow();
+    }
+    
+    private record Desfecho(int status, long latenciaMicros, TransacaoResponse resposta) {
+    }
+}
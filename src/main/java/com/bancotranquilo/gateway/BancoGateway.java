@@ -0,0 +1,30 @@
+package com.bancotranquilo.gateway;
+
+import com.bancotranquilo.model.dto.TransacaoRequest;
+import com.bancotranquilo.model.dto.TransacaoResponse;
+import com.bancotranquilo.resiliencia.BancoIndisponivelException;
+import com.bancotranquilo.resiliencia.RespostaBancoPerdidaException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transporte das transações até a API do Banco Tranquilo. Uma recusa do banco volta como
+ * resposta sem sucesso; {@link BancoIndisponivelException} indica que a chamada não chegou ao
+ * banco e {@link RespostaBancoPerdidaException} que ela chegou mas a resposta se perdeu (timeout
+ * de leitura, erro 5xx, corpo inválido). Circuito, limite de concorrência, métricas e
+ * auditoria ficam com quem chama.
+ */
+public interface BancoGateway {
+    
+    TransacaoResponse processar(TransacaoRequest request);
+    
+    CompletableFuture<TransacaoResponse> processarAsync(TransacaoRequest request);
+    
+    /**
+     * Envia o lote em uma única chamada. A resposta pode não trazer todas as transações;
+     * uma lista vazia indica que o banco recusou o lote. {@link RespostaBancoPerdidaException}
+     * indica que o lote pode ter sido processado sem que a resposta chegasse.
+     */
+    List<TransacaoResponse> processarLote(List<TransacaoRequest> requests);
+}
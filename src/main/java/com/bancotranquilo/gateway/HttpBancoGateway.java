@@ -0,0 +1,207 @@
+package com.bancotranquilo.gateway;
+
+import com.bancotranquilo.emulador.EmuladorBanco;
+import com.bancotranquilo.model.dto.TransacaoRequest;
+import com.bancotranquilo.model.dto.TransacaoResponse;
+import com.bancotranquilo.resiliencia.BancoIndisponivelException;
+import com.bancotranquilo.resiliencia.RespostaBancoPerdidaException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.apache.hc.core5.http.ContentType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Chamadas HTTP a {@code /transacoes/processar} e {@code /transacoes/processar-lote}. Com o
+ * emulador habilitado, as chamadas vão para ele em vez de {@code banco.tranquilo.api.url}.
+ */
+@Component
+@Slf4j
+public class HttpBancoGateway implements BancoGateway {
+    
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    
+    private final RestTemplate restTemplate;
+    private final CloseableHttpAsyncClient httpClientAsync;
+    private final ObjectMapper objectMapper;
+    private final String apiUrl;
+    
+    @Autowired
+    public HttpBancoGateway(RestTemplate restTemplate,
+                            CloseableHttpAsyncClient bancoHttpClientAsync,
+                            ObjectMapper objectMapper,
+                            ObjectProvider<EmuladorBanco> emulador,
+                            @Value("${banco.tranquilo.api.url}") String apiUrl) {
+        this.restTemplate = restTemplate;
+        this.httpClientAsync = bancoHttpClientAsync;
+        this.objectMapper = objectMapper;
+        
+        EmuladorBanco emuladorBanco = emulador.getIfAvailable();
+        this.apiUrl = emuladorBanco != null ? emuladorBanco.url() : apiUrl;
+        if (emuladorBanco != null) {
+            log.warn("Chamadas ao Banco Tranquilo direcionadas ao emulador em {}", this.apiUrl);
+        }
+    }
+    
+    @Override
+    public TransacaoResponse processar(TransacaoRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Content-Type", "application/json");
+        
+        HttpEntity<TransacaoRequest> entity = new HttpEntity<>(request, headers);
+        
+        try {
+            ResponseEntity<TransacaoResponse> response = restTemplate.exchange(
+                apiUrl + "/transacoes/processar",
+                HttpMethod.POST,
+                entity,
+                TransacaoResponse.class
+            );
+            
+            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+                return response.getBody();
+            }
+            throw new RespostaBancoPerdidaException("Resposta vazia da API do Banco Tranquilo");
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode().value() == HTTP_TOO_MANY_REQUESTS) {
+                throw new BancoIndisponivelException("API do Banco Tranquilo sobrecarregada", e);
+            }
+            // O banco respondeu e recusou a requisição: não é indisponibilidade
+            return criarRespostaErro(request.getCompraId(), "Transação recusada pelo banco: " + e.getStatusCode());
+        } catch (RestClientException e) {
+            if (naoConectou(e)) {
+                throw new BancoIndisponivelException("API do Banco Tranquilo indisponível: " + e.getMessage(), e);
+            }
+            throw new RespostaBancoPerdidaException("Transação enviada ao Banco Tranquilo sem resposta: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public CompletableFuture<TransacaoResponse> processarAsync(TransacaoRequest request) {
+        SimpleHttpRequest httpRequest;
+        try {
+            httpRequest = SimpleRequestBuilder.post(apiUrl + "/transacoes/processar")
+                .setBody(objectMapper.writeValueAsBytes(request), ContentType.APPLICATION_JSON)
+                .build();
+        } catch (Exception e) {
+            log.error("Erro ao processar transação: {}", e.getMessage(), e);
+            return CompletableFuture.completedFuture(
+                criarRespostaErro(request.getCompraId(), "Erro ao processar transação: " + e.getMessage()));
+        }
+        
+        CompletableFuture<TransacaoResponse> resultado = new CompletableFuture<>();
+        httpClientAsync.execute(httpRequest, new FutureCallback<>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                try {
+                    resultado.complete(lerResposta(request, response));
+                } catch (RuntimeException e) {
+                    resultado.completeExceptionally(e);
+                }
+            }
+            
+            @Override
+            public void failed(Exception erro) {
+                resultado.completeExceptionally(naoConectou(erro)
+                    ? new BancoIndisponivelException("API do Banco Tranquilo indisponível: " + erro.getMessage(), erro)
+                    : new RespostaBancoPerdidaException("Transação enviada ao Banco Tranquilo sem resposta: " + erro.getMessage(), erro));
+            }
+            
+            @Override
+            public void cancelled() {
+                resultado.completeExceptionally(new RespostaBancoPerdidaException("Chamada ao Banco Tranquilo cancelada"));
+            }
+        });
+        return resultado;
+    }
+    
+    private TransacaoResponse lerResposta(TransacaoRequest request, SimpleHttpResponse response) {
+        int status = response.getCode();
+        byte[] corpo = response.getBodyBytes();
+        if (status == HTTP_TOO_MANY_REQUESTS) {
+            throw new BancoIndisponivelException("API do Banco Tranquilo sobrecarregada");
+        }
+        if (status / 100 == 4) {
+            return criarRespostaErro(request.getCompraId(), "Transação recusada pelo banco: HTTP " + status);
+        }
+        // Erro do servidor ou corpo vazio/inválido: o banco pode ter processado a transação
+        if (status / 100 != 2 || corpo == null || corpo.length == 0) {
+            throw new RespostaBancoPerdidaException("API do Banco Tranquilo respondeu HTTP " + status);
+        }
+        try {
+            return objectMapper.readValue(corpo, TransacaoResponse.class);
+        } catch (Exception e) {
+            throw new RespostaBancoPerdidaException("Resposta inválida da API do Banco Tranquilo", e);
+        }
+    }
+    
+    @Override
+    public List<TransacaoResponse> processarLote(List<TransacaoRequest> requests) {
+        try {
+            TransacaoResponse[] corpo = restTemplate.postForObject(
+                apiUrl + "/transacoes/processar-lote",
+                requests,
+                TransacaoResponse[].class
+            );
+            return corpo == null ? List.of() : Arrays.asList(corpo);
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode().value() == HTTP_TOO_MANY_REQUESTS) {
+                throw new BancoIndisponivelException("API do Banco Tranquilo sobrecarregada", e);
+            }
+            // Endpoint de lote ausente ou recusado: o banco está no ar
+            log.warn("Endpoint de lote do Banco Tranquilo recusou a chamada, usando chamadas paralelas: {}", e.getMessage());
+            return List.of();
+        } catch (RestClientException e) {
+            if (naoConectou(e)) {
+                throw new BancoIndisponivelException("Endpoint de lote do Banco Tranquilo indisponível: " + e.getMessage(), e);
+            }
+            throw new RespostaBancoPerdidaException("Lote enviado ao Banco Tranquilo sem resposta: " + e.getMessage(), e);
+        }
+    }
+    
+    private static boolean naoConectou(RestClientException e) {
+        return e instanceof ResourceAccessException && naoConectou(e.getCause());
+    }
+    
+    // Só uma falha ao conectar (ou ao obter conexão do pool) garante que o banco não recebeu a chamada
+    private static boolean naoConectou(Throwable causa) {
+        return causa instanceof ConnectException
+            || causa instanceof NoRouteToHostException
+            || causa instanceof UnknownHostException
+            || causa instanceof ConnectTimeoutException
+            || causa instanceof ConnectionRequestTimeoutException;
+    }
+    
+    private TransacaoResponse criarRespostaErro(Long compraId, String mensagem) {
+        TransacaoResponse response = new TransacaoResponse();
+        response.setCompraId(compraId);
+        response.setSucesso(false);
+        response.setMensagem(mensagem);
+        response.setCodigoTransacao(null);
+        return response;
+    }
+}
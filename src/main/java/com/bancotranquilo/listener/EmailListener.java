@@ -0,0 +1,30 @@
+package com.bancotranquilo.listener;
+
+import com.bancotranquilo.model.dto.EmailConfirmacao;
+import com.bancotranquilo.service.EmailService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+import static com.bancotranquilo.config.RabbitMQConfig.QUEUE_EMAILS;
+
+@Component
+@Slf4j
+public class EmailListener {
+    
+    private final EmailService emailService;
+    
+    @Autowired
+    public EmailListener(EmailService emailService) {
+        this.emailService = emailService;
+    }
+    
+    @RabbitListener(queues = QUEUE_EMAILS, containerFactory = "emailListenerContainerFactory")
+    public void enviarEmailsConfirmacao(List<EmailConfirmacao> emails) {
+        log.debug("Processando lote de {} e-mails de confirmação", emails.size());
+        emailService.enviarEmailsConfirmacao(emails);
+    }
+}
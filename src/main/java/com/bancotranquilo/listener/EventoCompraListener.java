@@ -0,0 +1,23 @@
+package com.bancotranquilo.listener;
+
+import com.bancotranquilo.model.dto.CompraResponse;
+import com.bancotranquilo.service.NotificacoesCompra;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class EventoCompraListener {
+    
+    private final NotificacoesCompra notificacoes;
+    
+    @Autowired
+    public EventoCompraListener(NotificacoesCompra notificacoes) {
+        this.notificacoes = notificacoes;
+    }
+    
+    @RabbitListener(queues = "#{eventosCompraQueue.name}")
+    public void receberEvento(CompraResponse compra) {
+        notificacoes.notificar(compra);
+    }
+}
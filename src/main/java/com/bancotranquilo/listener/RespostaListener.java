@@ -0,0 +1,97 @@
+package com.bancotranquilo.listener;
+
+import com.bancotranquilo.model.dto.TransacaoResponse;
+import com.bancotranquilo.service.CompraService;
+import com.bancotranquilo.service.MetricasPipeline;
+import com.bancotranquilo.service.RetentativaTransacaoPublisher;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.bancotranquilo.config.RabbitMQConfig.QUEUE_RESPOSTAS;
+
+/**
+ * Segundo estágio do pipeline: aplica as respostas do banco às compras em lotes,
+ * com updates condicionais e sem carregar as entidades.
+ */
+@Component
+@Slf4j
+public class RespostaListener {
+    
+    private final CompraService compraService;
+    private final RetentativaTransacaoPublisher retentativaPublisher;
+    private final MessageConverter messageConverter;
+    private final MetricasPipeline metricas;
+    
+    @Autowired
+    public RespostaListener(CompraService compraService,
+                            RetentativaTransacaoPublisher retentativaPublisher,
+                            MessageConverter messageConverter,
+                            MetricasPipeline metricas) {
+        this.compraService = compraService;
+        this.retentativaPublisher = retentativaPublisher;
+        this.messageConverter = messageConverter;
+        this.metricas = metricas;
+    }
+    
+    @RabbitListener(queues = QUEUE_RESPOSTAS, containerFactory = "respostaListenerContainerFactory")
+    public void processarRespostas(List<Message> mensagens, Channel channel) throws IOException {
+        log.debug("Aplicando lote de {} respostas de transação", mensagens.size());
+        metricas.registrarEsperaFila(QUEUE_RESPOSTAS, mensagens);
+        
+        List<Message> validas = new ArrayList<>(mensagens.size());
+        List<TransacaoResponse> respostas = new ArrayList<>(mensagens.size());
+        for (Message mensagem : mensagens) {
+            try {
+                respostas.add((TransacaoResponse) messageConverter.fromMessage(mensagem));
+                validas.add(mensagem);
+            } catch (Exception e) {
+                log.error("Resposta inválida enviada para o parking: {}", e.getMessage());
+                channel.basicNack(mensagem.getMessageProperties().getDeliveryTag(), false, false);
+            }
+        }
+        if (respostas.isEmpty()) {
+            return;
+        }
+        
+        try {
+            compraService.processarRespostasTransacao(respostas);
+            for (Message mensagem : validas) {
+                channel.basicAck(mensagem.getMessageProperties().getDeliveryTag(), false);
+            }
+        } catch (Exception e) {
+            log.error("Erro ao aplicar lote de respostas, aplicando individualmente: {}", e.getMessage(), e);
+            for (int i = 0; i < validas.size(); i++) {
+                aplicarIndividualmente(channel, validas.get(i), respostas.get(i));
+            }
+        }
+    }
+    
+    private void aplicarIndividualmente(Channel channel, Message mensagem, TransacaoResponse resposta)
+            throws IOException {
+        long deliveryTag = mensagem.getMessageProperties().getDeliveryTag();
+        try {
+            compraService.processarRespostaTransacao(resposta);
+            channel.basicAck(deliveryTag, false);
+        } catch (Exception e) {
+            log.error("Erro ao aplicar resposta da compra ID {}, agendando nova tentativa: {}",
+                     resposta.getCompraId(), e.getMessage(), e);
+            try {
+                retentativaPublisher.agendar(mensagem, QUEUE_RESPOSTAS, e);
+                channel.basicAck(deliveryTag, false);
+            } catch (Exception erroAgendamento) {
+                log.error("Erro ao agendar nova tentativa, devolvendo resposta para a fila: {}",
+                         erroAgendamento.getMessage());
+                channel.basicNack(deliveryTag, false, true);
+            }
+        }
+    }
+}
@@ -1,60 +1,116 @@
 package com.bancotranquilo.listener;
 
+import com.bancotranquilo.auditoria.EtapaAuditoria;
+import com.bancotranquilo.auditoria.JornalAuditoria;
+import com.bancotranquilo.mensagem.RoteamentoRequisicoes;
+import com.bancotranquilo.model.StatusCompra;
 import com.bancotranquilo.model.dto.TransacaoRequest;
 import com.bancotranquilo.model.dto.TransacaoResponse;
+import com.bancotranquilo.resiliencia.BancoIndisponivelException;
+import com.bancotranquilo.service.AdiamentoTransacaoPublisher;
 import com.bancotranquilo.service.BancoTranquiloService;
 import com.bancotranquilo.service.CompraService;
+import com.bancotranquilo.service.MetricasPipeline;
+import com.bancotranquilo.service.RespostaTransacaoPublisher;
+import com.bancotranquilo.service.RetentativaTransacaoPublisher;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 import static com.bancotranquilo.config.RabbitMQConfig.QUEUE_REQUISICOES;
 
+/**
+ * Consome as requisições uma a uma, com um container por shard (ver {@link RoteamentoRequisicoes}).
+ */
 @Component
+@ConditionalOnProperty(name = "banco.tranquilo.listener.lote.habilitado", havingValue = "false", matchIfMissing = true)
 @Slf4j
-public class TransacaoListener {
+public class TransacaoListener implements RabbitListenerConfigurer {
     
     private final BancoTranquiloService bancoTranquiloService;
     private final CompraService compraService;
+    private final RespostaTransacaoPublisher respostaPublisher;
+    private final AdiamentoTransacaoPublisher adiamentoPublisher;
+    private final RetentativaTransacaoPublisher retentativaPublisher;
+    private final MetricasPipeline metricas;
+    private final RoteamentoRequisicoes roteamento;
+    private final JornalAuditoria jornal;
+    private final MessageConverter messageConverter;
+    private final SimpleRabbitListenerContainerFactory containerFactory;
     
     @Autowired
     public TransacaoListener(BancoTranquiloService bancoTranquiloService,
-                             CompraService compraService) {
+                             CompraService compraService,
+                             RespostaTransacaoPublisher respostaPublisher,
+                             AdiamentoTransacaoPublisher adiamentoPublisher,
+                             RetentativaTransacaoPublisher retentativaPublisher,
+                             MetricasPipeline metricas,
+                             RoteamentoRequisicoes roteamento,
+                             JornalAuditoria jornal,
+                             MessageConverter messageConverter,
+                             @Qualifier("requisicaoListenerContainerFactory") SimpleRabbitListenerContainerFactory containerFactory) {
         this.bancoTranquiloService = bancoTranquiloService;
         this.compraService = compraService;
+        this.respostaPublisher = respostaPublisher;
+        this.adiamentoPublisher = adiamentoPublisher;
+        this.retentativaPublisher = retentativaPublisher;
+        this.metricas = metricas;
+        this.roteamento = roteamento;
+        this.jornal = jornal;
+        this.messageConverter = messageConverter;
+        this.containerFactory = containerFactory;
+    }
+    
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        roteamento.registrarConsumidores(registrar, containerFactory, mensagem ->
+            processarRequisicaoTransacao((TransacaoRequest) messageConverter.fromMessage(mensagem), mensagem));
     }
     
-    @RabbitListener(queues = QUEUE_REQUISICOES)
-    public void processarRequisicaoTransacao(TransacaoRequest request) {
-        log.info("Processando requisição de transação recebida da fila RabbitMQ para compra ID: {}", 
-                request.getCompraId());
+    public void processarRequisicaoTransacao(TransacaoRequest request, Message mensagem) {
+        log.debug("Processando requisição de transação recebida da fila RabbitMQ para compra ID: {}",
+                 request.getCompraId());
+        metricas.registrarEsperaFila(mensagem.getMessageProperties().getConsumerQueue(), mensagem);
+        roteamento.registrarConsumidas(mensagem.getMessageProperties().getConsumerQueue(), 1);
         
+        TransacaoResponse response;
         try {
-            // Processar transação com a API do Banco Tranquilo
-            TransacaoResponse response = bancoTranquiloService.processarTransacao(request);
-            
-            // Processar resposta e atualizar compra
-            compraService.processarRespostaTransacao(response);
-            
-            log.info("Transação processada com sucesso para compra ID: {}", request.getCompraId());
+            // Cópias atrasadas (retry, adiamento, varredura) de compras já finalizadas não vão ao banco
+            if (compraService.iniciarProcessamento(List.of(request.getCompraId())).isEmpty()) {
+                return;
+            }
             
+            // Processar transação com a API do Banco Tranquilo
+            response = bancoTranquiloService.processarTransacao(request);
+        } catch (BancoIndisponivelException e) {
+            // Banco fora do ar, circuito aberto ou resposta perdida (RespostaBancoPerdidaException): a compra
+            // continua em andamento e a requisição só volta depois do adiamento, nunca pela fila de retry
+            log.warn("Requisição da compra ID {} adiada: {}", request.getCompraId(), e.getMessage());
+            adiamentoPublisher.adiar(request);
+            jornal.registrar(request.getCompraId(), EtapaAuditoria.ADIADA, StatusCompra.PROCESSANDO);
+            return;
         } catch (Exception e) {
-            log.error("Erro ao processar requisição de transação: {}", e.getMessage(), e);
-            
-            // Criar resposta de erro
-            TransacaoResponse errorResponse = new TransacaoResponse();
-            errorResponse.setCompraId(request.getCompraId());
-            errorResponse.setSucesso(false);
-            errorResponse.setMensagem("Erro ao processar transação: " + e.getMessage());
-            
-            try {
-                compraService.processarRespostaTransacao(errorResponse);
-            } catch (Exception ex) {
-                log.error("Erro ao processar resposta de erro: {}", ex.getMessage(), ex);
-            }
+            // Nova tentativa com atraso na fila de retry, sem segurar o consumidor.
+            // Se o agendamento também falhar, a exceção devolve a requisição para a fila.
+            log.error("Erro ao processar requisição de transação da compra ID {}: {}",
+                     request.getCompraId(), e.getMessage(), e);
+            retentativaPublisher.agendar(mensagem, QUEUE_REQUISICOES, e);
+            jornal.registrar(request.getCompraId(), EtapaAuditoria.REAGENDADA, StatusCompra.PROCESSANDO);
+            return;
         }
+        
+        // A atualização da compra é feita pelo estágio que consome transacoes.respostas. O banco já
+        // respondeu: uma falha daqui em diante nunca devolve a requisição para a fila
+        respostaPublisher.entregar(List.of(response));
+        log.debug("Resposta da transação publicada para compra ID: {}", request.getCompraId());
     }
 }
-
-
@@ -0,0 +1,203 @@
+package com.bancotranquilo.listener;
+
+import com.bancotranquilo.auditoria.EtapaAuditoria;
+import com.bancotranquilo.auditoria.JornalAuditoria;
+import com.bancotranquilo.mensagem.RoteamentoRequisicoes;
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.model.dto.TransacaoRequest;
+import com.bancotranquilo.model.dto.TransacaoResponse;
+import com.bancotranquilo.resiliencia.BancoIndisponivelException;
+import com.bancotranquilo.service.AdiamentoTransacaoPublisher;
+import com.bancotranquilo.service.BancoTranquiloService;
+import com.bancotranquilo.service.CompraService;
+import com.bancotranquilo.service.MetricasPipeline;
+import com.bancotranquilo.service.RespostaTransacaoPublisher;
+import com.bancotranquilo.service.RetentativaTransacaoPublisher;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareBatchMessageListener;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static com.bancotranquilo.config.RabbitMQConfig.QUEUE_REQUISICOES;
+
+/**
+ * Consome as requisições em lotes, com um container por shard (ver {@link RoteamentoRequisicoes}).
+ */
+@Component
+@ConditionalOnProperty(name = "banco.tranquilo.listener.lote.habilitado", havingValue = "true")
+@Slf4j
+public class TransacaoLoteListener implements RabbitListenerConfigurer {
+    
+    private final BancoTranquiloService bancoTranquiloService;
+    private final CompraService compraService;
+    private final RespostaTransacaoPublisher respostaPublisher;
+    private final AdiamentoTransacaoPublisher adiamentoPublisher;
+    private final RetentativaTransacaoPublisher retentativaPublisher;
+    private final MessageConverter messageConverter;
+    private final MetricasPipeline metricas;
+    private final RoteamentoRequisicoes roteamento;
+    private final JornalAuditoria jornal;
+    private final SimpleRabbitListenerContainerFactory containerFactory;
+    
+    @Autowired
+    public TransacaoLoteListener(BancoTranquiloService bancoTranquiloService,
+                                 CompraService compraService,
+                                 RespostaTransacaoPublisher respostaPublisher,
+                                 AdiamentoTransacaoPublisher adiamentoPublisher,
+                                 RetentativaTransacaoPublisher retentativaPublisher,
+                                 MessageConverter messageConverter,
+                                 MetricasPipeline metricas,
+                                 RoteamentoRequisicoes roteamento,
+                                 JornalAuditoria jornal,
+                                 @Qualifier("loteListenerContainerFactory") SimpleRabbitListenerContainerFactory containerFactory) {
+        this.bancoTranquiloService = bancoTranquiloService;
+        this.compraService = compraService;
+        this.respostaPublisher = respostaPublisher;
+        this.adiamentoPublisher = adiamentoPublisher;
+        this.retentativaPublisher = retentativaPublisher;
+        this.messageConverter = messageConverter;
+        this.metricas = metricas;
+        this.roteamento = roteamento;
+        this.jornal = jornal;
+        this.containerFactory = containerFactory;
+    }
+    
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        roteamento.registrarConsumidores(registrar, containerFactory, new ChannelAwareBatchMessageListener() {
+            @Override
+            public void onMessageBatch(List<Message> mensagens, Channel channel) {
+                try {
+                    processarLoteRequisicoes(mensagens, channel);
+                } catch (IOException e) {
+                    throw new AmqpIOException(e);
+                }
+            }
+        });
+    }
+    
+    public void processarLoteRequisicoes(List<Message> mensagens, Channel channel) throws IOException {
+        log.debug("Processando lote de {} requisições de transação", mensagens.size());
+        String fila = mensagens.get(0).getMessageProperties().getConsumerQueue();
+        metricas.registrarEsperaFila(fila, mensagens);
+        roteamento.registrarConsumidas(fila, mensagens.size());
+        
+        List<Message> recebidas = new ArrayList<>(mensagens.size());
+        List<TransacaoRequest> convertidas = new ArrayList<>(mensagens.size());
+        for (Message mensagem : mensagens) {
+            try {
+                convertidas.add((TransacaoRequest) messageConverter.fromMessage(mensagem));
+                recebidas.add(mensagem);
+            } catch (Exception e) {
+                log.error("Mensagem inválida enviada para o parking: {}", e.getMessage());
+                rejeitar(channel, mensagem);
+            }
+        }
+        if (convertidas.isEmpty()) {
+            return;
+        }
+        
+        Set<Long> emAndamento;
+        try {
+            emAndamento = compraService.iniciarProcessamento(
+                convertidas.stream().map(TransacaoRequest::getCompraId).toList());
+        } catch (Exception e) {
+            log.error("Erro ao marcar compras em processamento, devolvendo requisições para a fila: {}", e.getMessage());
+            for (Message mensagem : recebidas) {
+                channel.basicNack(mensagem.getMessageProperties().getDeliveryTag(), false, true);
+            }
+            return;
+        }
+        
+        // Cópias atrasadas (retry, adiamento, varredura) de compras já finalizadas não vão ao banco
+        List<Message> validas = new ArrayList<>(recebidas.size());
+        List<TransacaoRequest> requests = new ArrayList<>(recebidas.size());
+        for (int i = 0; i < convertidas.size(); i++) {
+            if (emAndamento.contains(convertidas.get(i).getCompraId())) {
+                validas.add(recebidas.get(i));
+                requests.add(convertidas.get(i));
+            } else {
+                confirmar(channel, recebidas.get(i));
+            }
+        }
+        if (requests.isEmpty()) {
+            return;
+        }
+        
+        List<CompletableFuture<TransacaoResponse>> resultados = bancoTranquiloService.processarTransacoes(requests);
+        
+        List<TransacaoResponse> respostas = new ArrayList<>(requests.size());
+        List<TransacaoRequest> adiadas = new ArrayList<>();
+        boolean[] respondidas = new boolean[requests.size()];
+        List<Message> comErro = new ArrayList<>();
+        List<Long> idsComErro = new ArrayList<>();
+        Throwable ultimoErro = null;
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                respostas.add(resultados.get(i).join());
+                respondidas[i] = true;
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof BancoIndisponivelException) {
+                    // Sem resposta do banco a compra continua em andamento e a requisição volta depois
+                    adiadas.add(requests.get(i));
+                } else {
+                    comErro.add(validas.get(i));
+                    idsComErro.add(requests.get(i).getCompraId());
+                    ultimoErro = e.getCause();
+                }
+            }
+        }
+        
+        // O banco já respondeu estas: uma falha na publicação nunca devolve as requisições para a fila
+        if (!respostas.isEmpty()) {
+            respostaPublisher.entregar(respostas);
+        }
+        
+        boolean devolverSemResposta = false;
+        try {
+            if (!adiadas.isEmpty()) {
+                adiamentoPublisher.adiar(adiadas);
+                adiadas.forEach(request -> jornal.registrar(request.getCompraId(), EtapaAuditoria.ADIADA, StatusCompra.PROCESSANDO));
+            }
+            if (!comErro.isEmpty()) {
+                retentativaPublisher.agendar(comErro, QUEUE_REQUISICOES, ultimoErro);
+                idsComErro.forEach(id -> jornal.registrar(id, EtapaAuditoria.REAGENDADA, StatusCompra.PROCESSANDO));
+            }
+        } catch (Exception e) {
+            // Só as requisições sem resposta do banco voltam para a fila
+            log.error("Erro ao adiar requisições sem resposta, devolvendo-as para a fila: {}", e.getMessage(), e);
+            devolverSemResposta = true;
+        }
+        for (int i = 0; i < validas.size(); i++) {
+            if (devolverSemResposta && !respondidas[i]) {
+                channel.basicNack(validas.get(i).getMessageProperties().getDeliveryTag(), false, true);
+            } else {
+                confirmar(channel, validas.get(i));
+            }
+        }
+    }
+    
+    private void confirmar(Channel channel, Message mensagem) throws IOException {
+        channel.basicAck(mensagem.getMessageProperties().getDeliveryTag(), false);
+    }
+    
+    private void rejeitar(Channel channel, Message mensagem) throws IOException {
+        channel.basicNack(mensagem.getMessageProperties().getDeliveryTag(), false, false);
+    }
+}
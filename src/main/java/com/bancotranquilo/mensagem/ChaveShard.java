@@ -0,0 +1,10 @@
+package com.bancotranquilo.mensagem;
+
+/**
+ * Valor usado para escolher o shard de uma requisição: por compra distribui a carga de forma
+ * uniforme; por cliente mantém as compras de um mesmo cliente na mesma fila, em ordem.
+ */
+public enum ChaveShard {
+    COMPRA,
+    CLIENTE
+}
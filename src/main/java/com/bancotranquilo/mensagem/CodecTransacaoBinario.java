@@ -0,0 +1,230 @@
+package com.bancotranquilo.mensagem;
+
+import com.bancotranquilo.model.dto.TransacaoRequest;
+import com.bancotranquilo.model.dto.TransacaoResponse;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Formato binário de {@link TransacaoRequest} e {@link TransacaoResponse}.
+ * <p>
+ * Layout: versão do esquema (1 byte), tipo (1 byte) e os campos na ordem da classe, sem nomes.
+ * Inteiros usam varint zigzag; strings usam varint (tamanho + 1, 0 = nulo) seguido de UTF-8;
+ * {@code valor} é gravado como escala + valor não escalado, sem passar por texto.
+ */
+public final class CodecTransacaoBinario {
+    
+    public static final byte VERSAO_ESQUEMA = 1;
+    
+    static final byte TIPO_REQUEST = 1;
+    static final byte TIPO_RESPONSE = 2;
+    
+    private static final byte NULO = 0;
+    private static final byte LONGO = 1;
+    private static final byte BIG_INTEGER = 2;
+    
+    private CodecTransacaoBinario() {
+    }
+    
+    public static byte[] codificar(TransacaoRequest request) {
+        Escritor escritor = new Escritor(96);
+        escritor.escreverByte(VERSAO_ESQUEMA);
+        escritor.escreverByte(TIPO_REQUEST);
+        escritor.escreverLong(request.getCompraId());
+        escritor.escreverString(request.getNumeroCartao());
+        escritor.escreverString(request.getCvv());
+        escritor.escreverString(request.getDataValidade());
+        escritor.escreverDecimal(request.getValor());
+        escritor.escreverString(request.getEmailCliente());
+        escritor.escreverString(request.getNomeCliente());
+        return escritor.bytes();
+    }
+    
+    public static byte[] codificar(TransacaoResponse response) {
+        Escritor escritor = new Escritor(64);
+        escritor.escreverByte(VERSAO_ESQUEMA);
+        escritor.escreverByte(TIPO_RESPONSE);
+        escritor.escreverLong(response.getCompraId());
+        escritor.escreverByte(response.isSucesso() ? (byte) 1 : (byte) 0);
+        escritor.escreverString(response.getMensagem());
+        escritor.escreverString(response.getCodigoTransacao());
+        return escritor.bytes();
+    }
+    
+    public static Object decodificar(byte[] corpo) {
+        Leitor leitor = new Leitor(corpo);
+        byte versao = leitor.lerByte();
+        if (versao != VERSAO_ESQUEMA) {
+            throw new IllegalArgumentException("Versão de esquema não suportada: " + versao);
+        }
+        byte tipo = leitor.lerByte();
+        return switch (tipo) {
+            case TIPO_REQUEST -> new TransacaoRequest(
+                    leitor.lerLong(),
+                    leitor.lerString(),
+                    leitor.lerString(),
+                    leitor.lerString(),
+                    leitor.lerDecimal(),
+                    leitor.lerString(),
+                    leitor.lerString());
+            case TIPO_RESPONSE -> new TransacaoResponse(
+                    leitor.lerLong(),
+                    leitor.lerByte() != 0,
+                    leitor.lerString(),
+                    leitor.lerString());
+            default -> throw new IllegalArgumentException("Tipo de mensagem desconhecido: " + tipo);
+        };
+    }
+    
+    private static final class Escritor {
+        
+        private byte[] buffer;
+        private int posicao;
+        
+        Escritor(int capacidade) {
+            this.buffer = new byte[capacidade];
+        }
+        
+        void escreverByte(byte valor) {
+            garantir(1);
+            buffer[posicao++] = valor;
+        }
+        
+        void escreverVarint(long valor) {
+            garantir(10);
+            while ((valor & ~0x7FL) != 0) {
+                buffer[posicao++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            buffer[posicao++] = (byte) valor;
+        }
+        
+        void escreverZigZag(long valor) {
+            escreverVarint((valor << 1) ^ (valor >> 63));
+        }
+        
+        void escreverLong(Long valor) {
+            if (valor == null) {
+                escreverByte(NULO);
+                return;
+            }
+            escreverByte(LONGO);
+            escreverZigZag(valor);
+        }
+        
+        void escreverString(String valor) {
+            if (valor == null) {
+                escreverVarint(0);
+                return;
+            }
+            byte[] utf8 = valor.getBytes(StandardCharsets.UTF_8);
+            escreverVarint(utf8.length + 1L);
+            garantir(utf8.length);
+            System.arraycopy(utf8, 0, buffer, posicao, utf8.length);
+            posicao += utf8.length;
+        }
+        
+        void escreverDecimal(BigDecimal valor) {
+            if (valor == null) {
+                escreverByte(NULO);
+                return;
+            }
+            BigInteger naoEscalado = valor.unscaledValue();
+            if (naoEscalado.bitLength() < 64) {
+                escreverByte(LONGO);
+                escreverZigZag(valor.scale());
+                escreverZigZag(naoEscalado.longValue());
+            } else {
+                byte[] magnitude = naoEscalado.toByteArray();
+                escreverByte(BIG_INTEGER);
+                escreverZigZag(valor.scale());
+                escreverVarint(magnitude.length);
+                garantir(magnitude.length);
+                System.arraycopy(magnitude, 0, buffer, posicao, magnitude.length);
+                posicao += magnitude.length;
+            }
+        }
+        
+        byte[] bytes() {
+            return Arrays.copyOf(buffer, posicao);
+        }
+        
+        private void garantir(int tamanho) {
+            if (posicao + tamanho > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, posicao + tamanho));
+            }
+        }
+    }
+    
+    private static final class Leitor {
+        
+        private final byte[] buffer;
+        private int posicao;
+        
+        Leitor(byte[] buffer) {
+            this.buffer = buffer;
+        }
+        
+        byte lerByte() {
+            if (posicao >= buffer.length) {
+                throw new IllegalArgumentException("Mensagem binária truncada");
+            }
+            return buffer[posicao++];
+        }
+        
+        long lerVarint() {
+            long valor = 0;
+            for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+                byte b = lerByte();
+                valor |= (long) (b & 0x7F) << deslocamento;
+                if ((b & 0x80) == 0) {
+                    return valor;
+                }
+            }
+            throw new IllegalArgumentException("Varint inválido");
+        }
+        
+        long lerZigZag() {
+            long valor = lerVarint();
+            return (valor >>> 1) ^ -(valor & 1);
+        }
+        
+        Long lerLong() {
+            return lerByte() == NULO ? null : lerZigZag();
+        }
+        
+        String lerString() {
+            int tamanho = (int) lerVarint() - 1;
+            if (tamanho < 0) {
+                return null;
+            }
+            if (tamanho > buffer.length - posicao) {
+                throw new IllegalArgumentException("Mensagem binária truncada");
+            }
+            String valor = new String(buffer, posicao, tamanho, StandardCharsets.UTF_8);
+            posicao += tamanho;
+            return valor;
+        }
+        
+        BigDecimal lerDecimal() {
+            byte marcador = lerByte();
+            if (marcador == NULO) {
+                return null;
+            }
+            int escala = (int) lerZigZag();
+            if (marcador == LONGO) {
+                return BigDecimal.valueOf(lerZigZag(), escala);
+            }
+            int tamanho = (int) lerVarint();
+            if (tamanho > buffer.length - posicao) {
+                throw new IllegalArgumentException("Mensagem binária truncada");
+            }
+            byte[] magnitude = Arrays.copyOfRange(buffer, posicao, posicao + tamanho);
+            posicao += tamanho;
+            return new BigDecimal(new BigInteger(magnitude), escala);
+        }
+    }
+}
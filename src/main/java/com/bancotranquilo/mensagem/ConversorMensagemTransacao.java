@@ -0,0 +1,75 @@
+package com.bancotranquilo.mensagem;
+
+import com.bancotranquilo.model.dto.TransacaoRequest;
+import com.bancotranquilo.model.dto.TransacaoResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+/**
+ * Escolhe o formato pelo content type: na leitura aceita JSON e binário, na escrita usa o
+ * formato configurado para transações. Outros tipos (e-mails) continuam em JSON.
+ */
+public class ConversorMensagemTransacao implements MessageConverter {
+    
+    public static final String CONTENT_TYPE_BINARIO = "application/x-banco-transacao";
+    
+    private final MessageConverter conversorJson;
+    private final FormatoMensagem formato;
+    private final DistributionSummary bytesJson;
+    private final DistributionSummary bytesBinario;
+    
+    public ConversorMensagemTransacao(MessageConverter conversorJson, FormatoMensagem formato,
+                                      MeterRegistry meterRegistry) {
+        this.conversorJson = conversorJson;
+        this.formato = formato;
+        this.bytesJson = tamanhoMensagem(meterRegistry, FormatoMensagem.JSON);
+        this.bytesBinario = tamanhoMensagem(meterRegistry, FormatoMensagem.BINARIO);
+    }
+    
+    @Override
+    public Message toMessage(Object objeto, MessageProperties propriedades) {
+        if (formato == FormatoMensagem.BINARIO) {
+            byte[] corpo = null;
+            if (objeto instanceof TransacaoRequest request) {
+                corpo = CodecTransacaoBinario.codificar(request);
+            } else if (objeto instanceof TransacaoResponse response) {
+                corpo = CodecTransacaoBinario.codificar(response);
+            }
+            if (corpo != null) {
+                propriedades.setContentType(CONTENT_TYPE_BINARIO);
+                propriedades.setContentLength(corpo.length);
+                bytesBinario.record(corpo.length);
+                return new Message(corpo, propriedades);
+            }
+        }
+        Message mensagem = conversorJson.toMessage(objeto, propriedades);
+        if (objeto instanceof TransacaoRequest || objeto instanceof TransacaoResponse) {
+            bytesJson.record(mensagem.getBody().length);
+        }
+        return mensagem;
+    }
+    
+    @Override
+    public Object fromMessage(Message mensagem) {
+        String contentType = mensagem.getMessageProperties().getContentType();
+        if (contentType != null && contentType.startsWith(CONTENT_TYPE_BINARIO)) {
+            try {
+                return CodecTransacaoBinario.decodificar(mensagem.getBody());
+            } catch (IllegalArgumentException e) {
+                throw new MessageConversionException("Mensagem binária inválida: " + e.getMessage(), e);
+            }
+        }
+        return conversorJson.fromMessage(mensagem);
+    }
+    
+    private static DistributionSummary tamanhoMensagem(MeterRegistry meterRegistry, FormatoMensagem formato) {
+        return DistributionSummary.builder("transacoes.mensagem.tamanho")
+                .baseUnit("bytes")
+                .tag("formato", formato.name().toLowerCase())
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,6 @@
+package com.bancotranquilo.mensagem;
+
+public enum FormatoMensagem {
+    JSON,
+    BINARIO
+}
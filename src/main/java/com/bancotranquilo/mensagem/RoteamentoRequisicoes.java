@@ -0,0 +1,252 @@
+package com.bancotranquilo.mensagem;
+
+import com.bancotranquilo.config.RabbitMQConfig;
+import com.bancotranquilo.model.dto.TransacaoRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.RabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static com.bancotranquilo.config.RabbitMQConfig.EXCHANGE_TRANSACOES;
+import static com.bancotranquilo.config.RabbitMQConfig.HEADER_SHARD;
+import static com.bancotranquilo.config.RabbitMQConfig.QUEUE_REQUISICOES;
+import static com.bancotranquilo.config.RabbitMQConfig.ROUTING_KEY_REQUISICOES;
+import static com.bancotranquilo.config.RabbitMQConfig.SHARD_PRIORITARIO;
+import static com.bancotranquilo.config.RabbitMQConfig.filaShard;
+
+/**
+ * Distribui as requisições de transação entre {@code banco.tranquilo.requisicoes.shards} filas
+ * pelo hash da compra ou do cliente, e envia as compras de valor alto para uma fila prioritária
+ * com consumidores próprios. O shard vai no header {@code x-shard}, por isso retentativas,
+ * adiamentos e o parking devolvem a mensagem para a mesma fila.
+ * <p>
+ * Concorrência e prefetch podem ser definidos por shard em
+ * {@code banco.tranquilo.requisicoes.shard.<shard>.concorrencia|prefetch}.
+ * <p>
+ * A fila única anterior aos shards ({@code transacoes.requisicoes}) continua com um consumidor
+ * enquanto {@code banco.tranquilo.requisicoes.legada.habilitada}: ela pode guardar mensagens
+ * antigas e cópias de retry ou adiamento que voltam por {@code transacoes.exchange}. Na
+ * inicialização o binding antigo é removido, então nada novo entra nela.
+ */
+@Component
+@Slf4j
+public class RoteamentoRequisicoes {
+    
+    private static final String PREFIXO_SHARD = "banco.tranquilo.requisicoes.shard.";
+    
+    private final AmqpAdmin amqpAdmin;
+    private final List<String> shards;
+    private final ChaveShard chave;
+    private final boolean prioritariaHabilitada;
+    private final BigDecimal valorMinimoPrioritario;
+    private final boolean legadaHabilitada;
+    private final int prefetchPadrao;
+    private final Map<String, Integer> concorrencia = new LinkedHashMap<>();
+    private final Map<String, Integer> prefetch = new LinkedHashMap<>();
+    private final Map<String, Counter> roteadas = new LinkedHashMap<>();
+    private final Map<String, Counter> consumidas = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> profundidade = new LinkedHashMap<>();
+    private final AtomicLong legada;
+    
+    @Autowired
+    public RoteamentoRequisicoes(AmqpAdmin amqpAdmin,
+                                 Environment environment,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${banco.tranquilo.requisicoes.shards:4}") int quantidade,
+                                 @Value("${banco.tranquilo.requisicoes.chave-shard:compra}") ChaveShard chave,
+                                 @Value("${banco.tranquilo.requisicoes.concorrencia:1}") int concorrenciaPadrao,
+                                 @Value("${banco.tranquilo.requisicoes.prefetch:250}") int prefetchPadrao,
+                                 @Value("${banco.tranquilo.requisicoes.prioritaria.habilitada:true}") boolean prioritariaHabilitada,
+                                 @Value("${banco.tranquilo.requisicoes.prioritaria.valor-minimo:5000.00}") BigDecimal valorMinimoPrioritario,
+                                 @Value("${banco.tranquilo.requisicoes.legada.habilitada:true}") boolean legadaHabilitada) {
+        if (quantidade < 1) {
+            throw new IllegalArgumentException("banco.tranquilo.requisicoes.shards deve ser maior que zero");
+        }
+        this.amqpAdmin = amqpAdmin;
+        this.chave = chave;
+        this.prioritariaHabilitada = prioritariaHabilitada;
+        this.valorMinimoPrioritario = valorMinimoPrioritario;
+        this.legadaHabilitada = legadaHabilitada;
+        this.prefetchPadrao = prefetchPadrao;
+        
+        List<String> todos = new ArrayList<>();
+        if (prioritariaHabilitada) {
+            todos.add(SHARD_PRIORITARIO);
+        }
+        for (int i = 0; i < quantidade; i++) {
+            todos.add(String.valueOf(i));
+        }
+        this.shards = Collections.unmodifiableList(todos);
+        
+        for (String shard : shards) {
+            String fila = filaShard(shard);
+            concorrencia.put(shard, environment.getProperty(PREFIXO_SHARD + shard + ".concorrencia", Integer.class, concorrenciaPadrao));
+            prefetch.put(shard, environment.getProperty(PREFIXO_SHARD + shard + ".prefetch", Integer.class, prefetchPadrao));
+            roteadas.put(shard, meterRegistry.counter("transacoes.requisicoes.roteadas", "fila", fila));
+            consumidas.put(fila, meterRegistry.counter("transacoes.requisicoes.consumidas", "fila", fila));
+            profundidade.put(shard, meterRegistry.gauge("transacoes.requisicoes.profundidade",
+                Tags.of("fila", fila), new AtomicLong()));
+        }
+        if (legadaHabilitada) {
+            consumidas.put(QUEUE_REQUISICOES, meterRegistry.counter("transacoes.requisicoes.consumidas", "fila", QUEUE_REQUISICOES));
+            legada = meterRegistry.gauge("transacoes.requisicoes.profundidade", Tags.of("fila", QUEUE_REQUISICOES), new AtomicLong());
+        } else {
+            legada = new AtomicLong();
+        }
+        log.info("Requisições distribuídas em {} shard(s) por {}{}", quantidade, chave.name().toLowerCase(Locale.ROOT),
+                 prioritariaHabilitada ? ", prioritária a partir de " + valorMinimoPrioritario : "");
+    }
+    
+    public String shard(TransacaoRequest request) {
+        if (prioritariaHabilitada && request.getValor() != null
+                && request.getValor().compareTo(valorMinimoPrioritario) >= 0) {
+            return SHARD_PRIORITARIO;
+        }
+        int quantidade = prioritariaHabilitada ? shards.size() - 1 : shards.size();
+        int hash = chave == ChaveShard.CLIENTE && request.getEmailCliente() != null
+            ? request.getEmailCliente().toLowerCase(Locale.ROOT).hashCode()
+            : Long.hashCode(request.getCompraId());
+        return String.valueOf(Math.floorMod(hash, quantidade));
+    }
+    
+    /**
+     * Grava o shard no header da mensagem publicada; usado em cada publicação da requisição.
+     */
+    public MessagePostProcessor marcar(TransacaoRequest request) {
+        String shard = shard(request);
+        return mensagem -> {
+            mensagem.getMessageProperties().setHeader(HEADER_SHARD, shard);
+            roteadas.get(shard).increment();
+            return mensagem;
+        };
+    }
+    
+    /**
+     * Conta as mensagens entregues ao consumidor de uma fila de requisições; comparado com
+     * {@code transacoes.requisicoes.roteadas}, mostra a vazão de cada shard.
+     */
+    public void registrarConsumidas(String fila, int quantidade) {
+        Counter contador = consumidas.get(fila);
+        if (contador != null) {
+            contador.increment(quantidade);
+        }
+    }
+    
+    /**
+     * Registra um container por shard, cada um com a sua concorrência, e um consumidor para a
+     * fila legada. O prefetch é aplicado pela fábrica (ver {@link #getPrefetch(String)}).
+     */
+    public void registrarConsumidores(RabbitListenerEndpointRegistrar registrar,
+                                      RabbitListenerContainerFactory<?> fabrica,
+                                      MessageListener listener) {
+        for (String shard : shards) {
+            int consumidores = concorrencia.get(shard);
+            SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+            endpoint.setId(filaShard(shard));
+            endpoint.setQueueNames(filaShard(shard));
+            endpoint.setConcurrency(consumidores + "-" + consumidores);
+            endpoint.setMessageListener(listener);
+            registrar.registerEndpoint(endpoint, fabrica);
+        }
+        if (legadaHabilitada) {
+            SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+            endpoint.setId(QUEUE_REQUISICOES);
+            endpoint.setQueueNames(QUEUE_REQUISICOES);
+            endpoint.setConcurrency("1-1");
+            endpoint.setMessageListener(listener);
+            registrar.registerEndpoint(endpoint, fabrica);
+        }
+    }
+    
+    /**
+     * Remove o binding da fila legada em {@code transacoes.exchange}, criado antes dos shards:
+     * sem isso cada cópia que volta por ele seria entregue também ao shard 0.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void desligarFilaLegada() {
+        try {
+            amqpAdmin.removeBinding(new Binding(QUEUE_REQUISICOES, Binding.DestinationType.QUEUE,
+                EXCHANGE_TRANSACOES, ROUTING_KEY_REQUISICOES, null));
+        } catch (Exception e) {
+            log.warn("Não foi possível remover o binding da fila {}: {}", QUEUE_REQUISICOES, e.getMessage());
+        }
+    }
+    
+    public int getPrefetch(String fila) {
+        if (QUEUE_REQUISICOES.equals(fila)) {
+            return prefetchPadrao;
+        }
+        for (String shard : shards) {
+            if (filaShard(shard).equals(fila)) {
+                return prefetch.get(shard);
+            }
+        }
+        throw new IllegalArgumentException("Fila de requisições desconhecida: " + fila);
+    }
+    
+    /**
+     * Mensagens prontas em todas as filas de requisições na última consulta ao broker.
+     */
+    public long getProfundidadeTotal() {
+        return profundidade.values().stream().mapToLong(AtomicLong::get).sum() + legada.get();
+    }
+    
+    public List<String> getShards() {
+        return shards;
+    }
+    
+    public List<String> getFilas() {
+        return shards.stream().map(RabbitMQConfig::filaShard).collect(Collectors.toList());
+    }
+    
+    // Consulta periódica em vez de a cada scrape: cada leitura é um passive declare no broker
+    @Scheduled(fixedDelayString = "${banco.tranquilo.requisicoes.intervalo-metricas:5000}")
+    public void atualizarProfundidade() {
+        for (String shard : shards) {
+            try {
+                QueueInformation informacao = amqpAdmin.getQueueInfo(filaShard(shard));
+                profundidade.get(shard).set(informacao != null ? informacao.getMessageCount() : 0);
+            } catch (Exception e) {
+                log.debug("Não foi possível consultar a fila {}: {}", filaShard(shard), e.getMessage());
+            }
+        }
+        if (legadaHabilitada) {
+            try {
+                QueueInformation informacao = amqpAdmin.getQueueInfo(QUEUE_REQUISICOES);
+                long mensagens = informacao != null ? informacao.getMessageCount() : 0;
+                if (mensagens == 0 && legada.get() > 0) {
+                    log.info("Fila legada {} vazia: pode ser removida e banco.tranquilo.requisicoes.legada.habilitada desligada",
+                             QUEUE_REQUISICOES);
+                }
+                legada.set(mensagens);
+            } catch (Exception e) {
+                log.debug("Não foi possível consultar a fila {}: {}", QUEUE_REQUISICOES, e.getMessage());
+            }
+        }
+    }
+}
@@ -48,6 +48,11 @@ public class Compra {
     
     private String mensagemErro;
     
+    // Até quando a compra fica reservada para a última varredura (ver VarreduraCompras)
+    private LocalDateTime varreduraAte;
+    
+    private Integer varreduras;
+    
     @PrePersist
     protected void onCreate() {
         dataCriacao = LocalDateTime.now();
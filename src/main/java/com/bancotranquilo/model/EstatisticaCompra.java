@@ -0,0 +1,41 @@
+package com.bancotranquilo.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Contadores agregados de compras: TOTAL guarda a quantidade atual em cada status,
+ * DIA e HORA guardam quantidade e valor aprovados no período.
+ */
+@Entity
+@Table(name = "estatisticas_compras")
+@IdClass(EstatisticaCompraId.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstatisticaCompra {
+    
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10)
+    private TipoEstatistica tipo;
+    
+    @Id
+    private LocalDateTime periodo;
+    
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private StatusCompra status;
+    
+    @Column(nullable = false)
+    private long quantidade;
+    
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal valor;
+}
@@ -0,0 +1,17 @@
+package com.bancotranquilo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstatisticaCompraId implements Serializable {
+    private TipoEstatistica tipo;
+    private LocalDateTime periodo;
+    private StatusCompra status;
+}
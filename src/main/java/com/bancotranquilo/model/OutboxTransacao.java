@@ -0,0 +1,41 @@
+package com.bancotranquilo.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "outbox_transacoes",
+       indexes = {
+           @Index(name = "idx_outbox_pendentes", columnList = "data_envio, id"),
+           @Index(name = "idx_outbox_compra", columnList = "compra_id, data_envio")
+       })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxTransacao {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long compraId;
+    
+    @Column(nullable = false)
+    private LocalDateTime dataCriacao;
+    
+    private LocalDateTime dataEnvio;
+    
+    public OutboxTransacao(Long compraId) {
+        this.compraId = compraId;
+    }
+    
+    @PrePersist
+    protected void onCreate() {
+        dataCriacao = LocalDateTime.now();
+    }
+}
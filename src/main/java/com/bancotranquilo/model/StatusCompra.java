@@ -5,7 +5,9 @@ public enum StatusCompra {
     PROCESSANDO,
     CONFIRMADA,
     REJEITADA,
-    ERRO
+    ERRO;
+    
+    public boolean isFinalizada() {
+        return this == CONFIRMADA || this == REJEITADA || this == ERRO;
+    }
 }
-
-
@@ -0,0 +1,7 @@
+package com.bancotranquilo.model;
+
+public enum TipoEstatistica {
+    TOTAL,
+    DIA,
+    HORA
+}
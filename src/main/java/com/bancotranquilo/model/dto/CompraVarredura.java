@@ -0,0 +1,16 @@
+package com.bancotranquilo.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompraVarredura {
+    private Long id;
+    private LocalDateTime dataCriacao;
+    private int varreduras;
+}
@@ -0,0 +1,19 @@
+package com.bancotranquilo.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailConfirmacao {
+    private Long compraId;
+    private String emailCliente;
+    private String nomeCliente;
+    private BigDecimal valor;
+    private LocalDateTime dataConfirmacao;
+}
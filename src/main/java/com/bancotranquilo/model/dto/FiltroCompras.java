@@ -0,0 +1,20 @@
+package com.bancotranquilo.model.dto;
+
+import com.bancotranquilo.model.StatusCompra;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroCompras {
+    private StatusCompra status;
+    private String emailCliente;
+    private LocalDateTime de;
+    private LocalDateTime ate;
+    private LocalDateTime cursorDataCriacao;
+    private Long cursorId;
+}
@@ -0,0 +1,18 @@
+package com.bancotranquilo.model.dto;
+
+import com.bancotranquilo.model.StatusCompra;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemLoteResultado {
+    private int indice;
+    private Long id;
+    private StatusCompra status;
+    private List<String> erros;
+}
@@ -0,0 +1,15 @@
+package com.bancotranquilo.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaCompras {
+    private List<CompraResponse> compras;
+    private String proximoCursor;
+}
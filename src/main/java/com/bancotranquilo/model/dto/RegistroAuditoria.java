@@ -0,0 +1,21 @@
+package com.bancotranquilo.model.dto;
+
+import com.bancotranquilo.auditoria.EtapaAuditoria;
+import com.bancotranquilo.model.StatusCompra;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistroAuditoria {
+    private Long compraId;
+    private EtapaAuditoria etapa;
+    private StatusCompra status;
+    private LocalDateTime dataHora;
+    private Long latenciaMicros;
+    private String codigoTransacao;
+}
@@ -0,0 +1,17 @@
+package com.bancotranquilo.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoLote {
+    private int total;
+    private int aceitas;
+    private int rejeitadas;
+    private List<ItemLoteResultado> itens;
+}
@@ -0,0 +1,20 @@
+package com.bancotranquilo.model.dto;
+
+import com.bancotranquilo.model.StatusCompra;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumoEstatisticas {
+    private Map<StatusCompra, Long> porStatus;
+    private List<ValorPeriodo> aprovadoPorDia;
+    private List<ValorPeriodo> aprovadoPorHora;
+    private LocalDateTime ultimaGravacao;
+}
@@ -0,0 +1,17 @@
+package com.bancotranquilo.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValorPeriodo {
+    private LocalDateTime periodo;
+    private long quantidade;
+    private BigDecimal valor;
+}
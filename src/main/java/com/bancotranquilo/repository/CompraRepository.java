@@ -3,15 +3,23 @@ package com.bancotranquilo.repository;
 import com.bancotranquilo.model.Compra;
 import com.bancotranquilo.model.StatusCompra;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CompraRepository extends JpaRepository<Compra, Long> {
+public interface CompraRepository extends JpaRepository<Compra, Long>, CompraRepositoryCustom {
     List<Compra> findByStatus(StatusCompra status);
     Optional<Compra> findByIdAndStatus(Long id, StatusCompra status);
+    
+    @Query("SELECT MIN(c.dataCriacao) FROM Compra c WHERE c.status IN (com.bancotranquilo.model.StatusCompra.PENDENTE, com.bancotranquilo.model.StatusCompra.PROCESSANDO)")
+    LocalDateTime buscarMaisAntigaPendente();
+    
+    @Query("SELECT MIN(c.dataCriacao) FROM Compra c")
+    LocalDateTime buscarMaisAntiga();
 }
 
 
@@ -0,0 +1,43 @@
+package com.bancotranquilo.repository;
+
+import com.bancotranquilo.model.Compra;
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.model.dto.CompraResumo;
+import com.bancotranquilo.model.dto.CompraVarredura;
+import com.bancotranquilo.model.dto.EmailConfirmacao;
+import com.bancotranquilo.model.dto.FiltroCompras;
+import com.bancotranquilo.model.dto.TransacaoResponse;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface CompraRepositoryCustom {
+    List<CompraResumo> buscarResumos(FiltroCompras filtro, int limite);
+    Stream<CompraResumo> streamResumos(FiltroCompras filtro);
+    int[] aplicarRespostas(List<TransacaoResponse> respostas, StatusCompra statusAtual, LocalDateTime dataConfirmacao);
+    Map<Long, StatusCompra> travarEmAndamento(Collection<Long> ids);
+    void marcarProcessando(Collection<Long> ids, LocalDateTime varreduraAte);
+    List<EmailConfirmacao> buscarDadosEmail(Collection<Long> ids, LocalDateTime dataConfirmacao);
+    void inserirEmLote(List<Compra> compras);
+    Map<Long, LocalDateTime> buscarDatasCriacao(Collection<Long> ids);
+    List<CompraVarredura> travarParaVarredura(StatusCompra status, LocalDateTime criadaAntesDe, LocalDateTime agora,
+                                              LocalDateTime publicadaAntesDe, LocalDateTime cursorDataCriacao,
+                                              Long cursorId, int limite);
+    void reenfileirar(Collection<Long> ids, LocalDateTime varreduraAte);
+    int marcarErro(Collection<Long> ids, StatusCompra statusAtual, String mensagem);
+    
+    // Arquivo de compras finalizadas (compras_arquivo)
+    Optional<CompraResumo> buscarArquivada(Long id);
+    List<CompraResumo> buscarResumosArquivados(FiltroCompras filtro, int limite);
+    Stream<CompraResumo> streamResumosArquivados(FiltroCompras filtro);
+    List<Long> travarParaArquivamento(StatusCompra status, LocalDateTime criadaAntesDe, int limite);
+    int arquivar(Collection<Long> ids);
+    void criarArquivoSeNecessario();
+    List<YearMonth> buscarParticoesArquivo();
+    void criarParticoesArquivo(List<YearMonth> meses);
+}
@@ -0,0 +1,395 @@
+package com.bancotranquilo.repository;
+
+import com.bancotranquilo.model.Compra;
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.model.dto.CompraResumo;
+import com.bancotranquilo.model.dto.CompraVarredura;
+import com.bancotranquilo.model.dto.EmailConfirmacao;
+import com.bancotranquilo.model.dto.FiltroCompras;
+import com.bancotranquilo.model.dto.TransacaoResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Consultas de listagem que leem apenas as colunas exibidas (nunca os dados do cartão),
+ * paginadas por cursor em (data_criacao, id) para aproveitar idx_data_criacao.
+ */
+public class CompraRepositoryCustomImpl implements CompraRepositoryCustom {
+    
+    private static final RowMapper<CompraResumo> RESUMO_MAPPER = (rs, rowNum) -> new CompraResumo(
+        rs.getLong("id"),
+        StatusCompra.valueOf(rs.getString("status")),
+        rs.getString("mensagem_erro"),
+        rs.getObject("data_criacao", LocalDateTime.class),
+        rs.getObject("data_confirmacao", LocalDateTime.class)
+    );
+    
+    // Só altera compras no status informado: respostas duplicadas não sobrescrevem um status final
+    private static final String SQL_APLICAR_RESPOSTA =
+        "UPDATE compras SET status = ?, data_confirmacao = ?, mensagem_erro = ? WHERE id = ? AND status = ?";
+    
+    private static final String SQL_TRAVAR_EM_ANDAMENTO =
+        "SELECT id, status FROM compras WHERE id IN (:ids) AND status IN ('PENDENTE', 'PROCESSANDO') FOR UPDATE";
+    
+    // Nunca antecipa a reserva feita pela varredura
+    private static final String SQL_MARCAR_PROCESSANDO =
+        "UPDATE compras SET status = 'PROCESSANDO', " +
+        "varredura_ate = GREATEST(COALESCE(varredura_ate, :varreduraAte), :varreduraAte) WHERE id IN (:ids)";
+    
+    private static final String SQL_INSERIR_COMPRA =
+        "INSERT INTO compras (numero_cartao, cvv, data_validade, valor, email_cliente, nome_cliente, status, data_criacao) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String SQL_INSERIR_OUTBOX =
+        "INSERT INTO outbox_transacoes (compra_id, data_criacao) VALUES (?, ?)";
+    
+    // Keyset em (data_criacao, id) sobre idx_status_data_criacao; SKIP LOCKED evita que duas instâncias
+    // esperem pelas mesmas linhas e varredura_ate impede que elas sejam varridas de novo após o commit.
+    // Compras com requisição ainda no outbox ou publicada há pouco podem ter uma cópia nas filas
+    private static final String SQL_TRAVAR_VARREDURA =
+        "SELECT id, data_criacao, varreduras FROM compras " +
+        "WHERE status = :status AND data_criacao < :criadaAntesDe " +
+        "AND (data_criacao > :cursorData OR (data_criacao = :cursorData AND id > :cursorId)) " +
+        "AND (varredura_ate IS NULL OR varredura_ate < :agora) " +
+        "AND NOT EXISTS (SELECT 1 FROM outbox_transacoes o WHERE o.compra_id = compras.id " +
+        "AND (o.data_envio IS NULL OR o.data_envio > :publicadaAntesDe)) " +
+        "ORDER BY data_criacao, id LIMIT :limite FOR UPDATE SKIP LOCKED";
+    
+    // Mesma ordem do keyset da varredura; as linhas travadas são removidas, então não há cursor
+    private static final String SQL_TRAVAR_ARQUIVAMENTO =
+        "SELECT id FROM compras WHERE status = :status AND data_criacao < :criadaAntesDe " +
+        "ORDER BY data_criacao, id LIMIT :limite FOR UPDATE SKIP LOCKED";
+    
+    // Os dados do cartão não são copiados: uma compra finalizada não volta a ser enviada ao banco
+    private static final String SQL_ARQUIVAR =
+        "INSERT INTO compras_arquivo " +
+        "(id, valor, email_cliente, nome_cliente, status, data_criacao, data_confirmacao, mensagem_erro) " +
+        "SELECT id, valor, email_cliente, nome_cliente, status, data_criacao, data_confirmacao, mensagem_erro " +
+        "FROM compras WHERE id IN (:ids)";
+    
+    // A chave de partição precisa fazer parte da chave primária; a busca por id usa o prefixo da PK em cada partição
+    private static final String SQL_CRIAR_ARQUIVO =
+        "CREATE TABLE IF NOT EXISTS compras_arquivo (" +
+        "id BIGINT NOT NULL, " +
+        "valor DECIMAL(10, 2) NOT NULL, " +
+        "email_cliente VARCHAR(255) NOT NULL, " +
+        "nome_cliente VARCHAR(255) NOT NULL, " +
+        "status VARCHAR(20) NOT NULL, " +
+        "data_criacao DATETIME(6) NOT NULL, " +
+        "data_confirmacao DATETIME(6), " +
+        "mensagem_erro TEXT, " +
+        "PRIMARY KEY (id, data_criacao), " +
+        "INDEX idx_arquivo_status_data_criacao (status, data_criacao), " +
+        "INDEX idx_arquivo_email_cliente (email_cliente, data_criacao)" +
+        ") PARTITION BY RANGE COLUMNS (data_criacao) (PARTITION pmax VALUES LESS THAN (MAXVALUE))";
+    
+    private static final String SQL_PARTICOES_ARQUIVO =
+        "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'compras_arquivo' AND PARTITION_NAME LIKE 'p______'";
+    
+    private static final DateTimeFormatter NOME_PARTICAO = DateTimeFormatter.ofPattern("'p'uuuuMM");
+    
+    private static final LocalDateTime INICIO_VARREDURA = LocalDateTime.of(1970, 1, 1, 0, 0);
+    
+    private static final int TAMANHO_MAXIMO_MENSAGEM_ERRO = 255;
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamJdbcTemplate;
+    
+    public CompraRepositoryCustomImpl(DataSource dataSource,
+                                      @Value("${banco.tranquilo.compras.stream.fetch-size:-2147483648}") int fetchSize) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        // Integer.MIN_VALUE faz o driver MySQL ler o result set linha a linha, sem carregá-lo na memória
+        JdbcTemplate streamTemplate = new JdbcTemplate(dataSource);
+        streamTemplate.setFetchSize(fetchSize);
+        this.streamJdbcTemplate = new NamedParameterJdbcTemplate(streamTemplate);
+    }
+    
+    @Override
+    public List<CompraResumo> buscarResumos(FiltroCompras filtro, int limite) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = montarConsulta("compras", filtro, params) + " LIMIT :limite";
+        params.addValue("limite", limite);
+        return jdbcTemplate.query(sql, params, RESUMO_MAPPER);
+    }
+    
+    @Override
+    public Stream<CompraResumo> streamResumos(FiltroCompras filtro) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        return streamJdbcTemplate.queryForStream(montarConsulta("compras", filtro, params), params, RESUMO_MAPPER);
+    }
+    
+    @Override
+    public int[] aplicarRespostas(List<TransacaoResponse> respostas, StatusCompra statusAtual, LocalDateTime dataConfirmacao) {
+        List<Object[]> parametros = new ArrayList<>(respostas.size());
+        for (TransacaoResponse resposta : respostas) {
+            if (resposta.isSucesso()) {
+                parametros.add(new Object[] {
+                    StatusCompra.CONFIRMADA.name(), dataConfirmacao, null, resposta.getCompraId(), statusAtual.name()
+                });
+            } else {
+                parametros.add(new Object[] {
+                    StatusCompra.REJEITADA.name(), null, truncar(resposta.getMensagem()), resposta.getCompraId(), statusAtual.name()
+                });
+            }
+        }
+        return jdbcTemplate.getJdbcTemplate().batchUpdate(SQL_APLICAR_RESPOSTA, parametros);
+    }
+    
+    @Override
+    public Map<Long, StatusCompra> travarEmAndamento(Collection<Long> ids) {
+        Map<Long, StatusCompra> status = new HashMap<>();
+        jdbcTemplate.query(SQL_TRAVAR_EM_ANDAMENTO, new MapSqlParameterSource("ids", ids), rs -> {
+            status.put(rs.getLong("id"), StatusCompra.valueOf(rs.getString("status")));
+        });
+        return status;
+    }
+    
+    @Override
+    public void marcarProcessando(Collection<Long> ids, LocalDateTime varreduraAte) {
+        jdbcTemplate.update(SQL_MARCAR_PROCESSANDO,
+            new MapSqlParameterSource("ids", ids).addValue("varreduraAte", varreduraAte));
+    }
+    
+    @Override
+    public List<EmailConfirmacao> buscarDadosEmail(Collection<Long> ids, LocalDateTime dataConfirmacao) {
+        return jdbcTemplate.query(
+            "SELECT id, email_cliente, nome_cliente, valor FROM compras WHERE id IN (:ids)",
+            new MapSqlParameterSource("ids", ids),
+            (rs, rowNum) -> new EmailConfirmacao(
+                rs.getLong("id"),
+                rs.getString("email_cliente"),
+                rs.getString("nome_cliente"),
+                rs.getBigDecimal("valor"),
+                dataConfirmacao
+            ));
+    }
+    
+    /**
+     * Insere as compras e seus registros de outbox em lotes JDBC. Com rewriteBatchedStatements o
+     * driver MySQL envia cada lote como um INSERT multi-linha e devolve todas as chaves geradas,
+     * mantendo o AUTO_INCREMENT da tabela.
+     */
+    @Override
+    public void inserirEmLote(List<Compra> compras) {
+        jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement insert = connection.prepareStatement(SQL_INSERIR_COMPRA, Statement.RETURN_GENERATED_KEYS)) {
+                for (Compra compra : compras) {
+                    insert.setString(1, compra.getNumeroCartao());
+                    insert.setString(2, compra.getCvv());
+                    insert.setString(3, compra.getDataValidade());
+                    insert.setBigDecimal(4, compra.getValor());
+                    insert.setString(5, compra.getEmailCliente());
+                    insert.setString(6, compra.getNomeCliente());
+                    insert.setString(7, compra.getStatus().name());
+                    insert.setTimestamp(8, Timestamp.valueOf(compra.getDataCriacao()));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                
+                try (ResultSet chaves = insert.getGeneratedKeys()) {
+                    int i = 0;
+                    while (chaves.next()) {
+                        compras.get(i++).setId(chaves.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+        
+        List<Object[]> outbox = new ArrayList<>(compras.size());
+        for (Compra compra : compras) {
+            outbox.add(new Object[] { compra.getId(), Timestamp.valueOf(compra.getDataCriacao()) });
+        }
+        jdbcTemplate.getJdbcTemplate().batchUpdate(SQL_INSERIR_OUTBOX, outbox);
+    }
+    
+    @Override
+    public Map<Long, LocalDateTime> buscarDatasCriacao(Collection<Long> ids) {
+        Map<Long, LocalDateTime> datas = new HashMap<>();
+        jdbcTemplate.query(
+            "SELECT id, data_criacao FROM compras WHERE id IN (:ids)",
+            new MapSqlParameterSource("ids", ids),
+            rs -> {
+                datas.put(rs.getLong("id"), rs.getObject("data_criacao", LocalDateTime.class));
+            });
+        return datas;
+    }
+    
+    @Override
+    public List<CompraVarredura> travarParaVarredura(StatusCompra status, LocalDateTime criadaAntesDe, LocalDateTime agora,
+                                                     LocalDateTime publicadaAntesDe, LocalDateTime cursorDataCriacao,
+                                                     Long cursorId, int limite) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("status", status.name())
+            .addValue("criadaAntesDe", criadaAntesDe)
+            .addValue("agora", agora)
+            .addValue("publicadaAntesDe", publicadaAntesDe)
+            .addValue("cursorData", cursorDataCriacao != null ? cursorDataCriacao : INICIO_VARREDURA)
+            .addValue("cursorId", cursorId != null ? cursorId : 0L)
+            .addValue("limite", limite);
+        return jdbcTemplate.query(SQL_TRAVAR_VARREDURA, params, (rs, rowNum) -> new CompraVarredura(
+            rs.getLong("id"),
+            rs.getObject("data_criacao", LocalDateTime.class),
+            rs.getInt("varreduras")
+        ));
+    }
+    
+    /**
+     * Grava um novo registro de outbox para cada compra (publicado pelo OutboxRelay) e reserva
+     * as compras até {@code varreduraAte}.
+     */
+    @Override
+    public void reenfileirar(Collection<Long> ids, LocalDateTime varreduraAte) {
+        jdbcTemplate.update(
+            "UPDATE compras SET varredura_ate = :varreduraAte, varreduras = COALESCE(varreduras, 0) + 1 WHERE id IN (:ids)",
+            new MapSqlParameterSource("ids", ids).addValue("varreduraAte", varreduraAte));
+        
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> outbox = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            outbox.add(new Object[] { id, agora });
+        }
+        jdbcTemplate.getJdbcTemplate().batchUpdate(SQL_INSERIR_OUTBOX, outbox);
+    }
+    
+    @Override
+    public int marcarErro(Collection<Long> ids, StatusCompra statusAtual, String mensagem) {
+        return jdbcTemplate.update(
+            "UPDATE compras SET status = 'ERRO', mensagem_erro = :mensagem WHERE id IN (:ids) AND status = :status",
+            new MapSqlParameterSource("ids", ids)
+                .addValue("status", statusAtual.name())
+                .addValue("mensagem", truncar(mensagem)));
+    }
+    
+    @Override
+    public Optional<CompraResumo> buscarArquivada(Long id) {
+        return jdbcTemplate.query(
+            "SELECT id, status, mensagem_erro, data_criacao, data_confirmacao FROM compras_arquivo WHERE id = :id",
+            new MapSqlParameterSource("id", id),
+            RESUMO_MAPPER).stream().findFirst();
+    }
+    
+    @Override
+    public List<CompraResumo> buscarResumosArquivados(FiltroCompras filtro, int limite) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = montarConsulta("compras_arquivo", filtro, params) + " LIMIT :limite";
+        params.addValue("limite", limite);
+        return jdbcTemplate.query(sql, params, RESUMO_MAPPER);
+    }
+    
+    @Override
+    public Stream<CompraResumo> streamResumosArquivados(FiltroCompras filtro) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        return streamJdbcTemplate.queryForStream(montarConsulta("compras_arquivo", filtro, params), params, RESUMO_MAPPER);
+    }
+    
+    @Override
+    public List<Long> travarParaArquivamento(StatusCompra status, LocalDateTime criadaAntesDe, int limite) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("status", status.name())
+            .addValue("criadaAntesDe", criadaAntesDe)
+            .addValue("limite", limite);
+        return jdbcTemplate.queryForList(SQL_TRAVAR_ARQUIVAMENTO, params, Long.class);
+    }
+    
+    /**
+     * Copia as compras para compras_arquivo e as remove de compras na mesma transação.
+     */
+    @Override
+    public int arquivar(Collection<Long> ids) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+        int arquivadas = jdbcTemplate.update(SQL_ARQUIVAR, params);
+        jdbcTemplate.update("DELETE FROM compras WHERE id IN (:ids)", params);
+        return arquivadas;
+    }
+    
+    @Override
+    public void criarArquivoSeNecessario() {
+        jdbcTemplate.getJdbcTemplate().execute(SQL_CRIAR_ARQUIVO);
+    }
+    
+    @Override
+    public List<YearMonth> buscarParticoesArquivo() {
+        return jdbcTemplate.getJdbcTemplate().queryForList(SQL_PARTICOES_ARQUIVO, String.class).stream()
+            .map(nome -> YearMonth.parse(nome, NOME_PARTICAO))
+            .sorted()
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Divide a partição pmax em uma partição por mês. Os meses devem ser posteriores à última
+     * partição mensal existente.
+     */
+    @Override
+    public void criarParticoesArquivo(List<YearMonth> meses) {
+        if (meses.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder("ALTER TABLE compras_arquivo REORGANIZE PARTITION pmax INTO (");
+        for (YearMonth mes : meses) {
+            sql.append("PARTITION ").append(mes.format(NOME_PARTICAO))
+                .append(" VALUES LESS THAN ('").append(mes.plusMonths(1).atDay(1)).append(" 00:00:00'), ");
+        }
+        sql.append("PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+        jdbcTemplate.getJdbcTemplate().execute(sql.toString());
+    }
+    
+    private static String truncar(String mensagem) {
+        if (mensagem == null || mensagem.length() <= TAMANHO_MAXIMO_MENSAGEM_ERRO) {
+            return mensagem;
+        }
+        return mensagem.substring(0, TAMANHO_MAXIMO_MENSAGEM_ERRO);
+    }
+    
+    private String montarConsulta(String tabela, FiltroCompras filtro, MapSqlParameterSource params) {
+        StringBuilder sql = new StringBuilder(
+            "SELECT id, status, mensagem_erro, data_criacao, data_confirmacao FROM " + tabela + " WHERE 1 = 1");
+        
+        if (filtro.getStatus() != null) {
+            sql.append(" AND status = :status");
+            params.addValue("status", filtro.getStatus().name());
+        }
+        if (filtro.getEmailCliente() != null) {
+            sql.append(" AND email_cliente = :emailCliente");
+            params.addValue("emailCliente", filtro.getEmailCliente());
+        }
+        if (filtro.getDe() != null) {
+            sql.append(" AND data_criacao >= :de");
+            params.addValue("de", filtro.getDe());
+        }
+        if (filtro.getAte() != null) {
+            sql.append(" AND data_criacao < :ate");
+            params.addValue("ate", filtro.getAte());
+        }
+        if (filtro.getCursorDataCriacao() != null && filtro.getCursorId() != null) {
+            sql.append(" AND (data_criacao < :cursorData OR (data_criacao = :cursorData AND id < :cursorId))");
+            params.addValue("cursorData", filtro.getCursorDataCriacao());
+            params.addValue("cursorId", filtro.getCursorId());
+        }
+        
+        sql.append(" ORDER BY data_criacao DESC, id DESC");
+        return sql.toString();
+    }
+}
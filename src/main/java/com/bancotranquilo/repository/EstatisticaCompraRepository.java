@@ -0,0 +1,58 @@
+package com.bancotranquilo.repository;
+
+import com.bancotranquilo.model.EstatisticaCompra;
+import com.bancotranquilo.model.EstatisticaCompraId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EstatisticaCompraRepository extends JpaRepository<EstatisticaCompra, EstatisticaCompraId> {
+    
+    // Soma o delta no valor gravado: várias instâncias podem descarregar seus contadores sem se sobrescrever
+    @Modifying
+    @Query(value = "INSERT INTO estatisticas_compras (tipo, periodo, status, quantidade, valor) " +
+                   "VALUES (:tipo, :periodo, :status, :quantidade, :valor) " +
+                   "ON DUPLICATE KEY UPDATE quantidade = quantidade + VALUES(quantidade), valor = valor + VALUES(valor)",
+           nativeQuery = true)
+    int acumular(@Param("tipo") String tipo, @Param("periodo") LocalDateTime periodo, @Param("status") String status,
+                 @Param("quantidade") long quantidade, @Param("valor") BigDecimal valor);
+    
+    @Query("SELECT e FROM EstatisticaCompra e WHERE e.tipo = com.bancotranquilo.model.TipoEstatistica.TOTAL " +
+           "OR (e.tipo = com.bancotranquilo.model.TipoEstatistica.DIA AND e.periodo >= :desdeDia) " +
+           "OR (e.tipo = com.bancotranquilo.model.TipoEstatistica.HORA AND e.periodo >= :desdeHora)")
+    List<EstatisticaCompra> buscarRecentes(@Param("desdeDia") LocalDateTime desdeDia,
+                                           @Param("desdeHora") LocalDateTime desdeHora);
+    
+    @Modifying
+    @Query("DELETE FROM EstatisticaCompra e WHERE e.tipo = com.bancotranquilo.model.TipoEstatistica.HORA AND e.periodo < :limite")
+    int removerHorasAntigas(@Param("limite") LocalDateTime limite);
+    
+    // Carga inicial a partir de compras, usada apenas quando a tabela de estatísticas está vazia
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO estatisticas_compras (tipo, periodo, status, quantidade, valor) " +
+                   "SELECT 'TOTAL', :periodo, status, COUNT(*), 0 FROM compras GROUP BY status",
+           nativeQuery = true)
+    int inicializarTotais(@Param("periodo") LocalDateTime periodo);
+    
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO estatisticas_compras (tipo, periodo, status, quantidade, valor) " +
+                   "SELECT 'DIA', DATE(data_confirmacao), status, COUNT(*), SUM(valor) FROM compras " +
+                   "WHERE status = 'CONFIRMADA' AND data_confirmacao IS NOT NULL GROUP BY DATE(data_confirmacao)",
+           nativeQuery = true)
+    int inicializarDias();
+    
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO estatisticas_compras (tipo, periodo, status, quantidade, valor) " +
+                   "SELECT 'HORA', DATE_FORMAT(data_confirmacao, '%Y-%m-%d %H:00:00'), status, COUNT(*), SUM(valor) " +
+                   "FROM compras WHERE status = 'CONFIRMADA' AND data_confirmacao >= :desde " +
+                   "GROUP BY DATE_FORMAT(data_confirmacao, '%Y-%m-%d %H:00:00')",
+           nativeQuery = true)
+    int inicializarHoras(@Param("desde") LocalDateTime desde);
+}
@@ -0,0 +1,34 @@
+package com.bancotranquilo.repository;
+
+import com.bancotranquilo.model.OutboxTransacao;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxTransacaoRepository extends JpaRepository<OutboxTransacao, Long> {
+    
+    // SKIP LOCKED permite que várias instâncias drenem o outbox sem disputar as mesmas linhas
+    @Query(value = "SELECT * FROM outbox_transacoes WHERE data_envio IS NULL ORDER BY id LIMIT :limite FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<OutboxTransacao> travarPendentes(@Param("limite") int limite);
+    
+    @Modifying
+    @Query("UPDATE OutboxTransacao o SET o.dataEnvio = :dataEnvio WHERE o.id IN :ids")
+    int marcarEnviadas(@Param("ids") Collection<Long> ids, @Param("dataEnvio") LocalDateTime dataEnvio);
+    
+    // Em lotes sobre idx_outbox_pendentes (data_envio, id), para não segurar locks por muito tempo
+    @Modifying
+    @Query(value = "DELETE FROM outbox_transacoes WHERE data_envio < :enviadaAntesDe ORDER BY data_envio LIMIT :limite",
+           nativeQuery = true)
+    int removerEnviadas(@Param("enviadaAntesDe") LocalDateTime enviadaAntesDe, @Param("limite") int limite);
+    
+    @Query("SELECT MIN(o.dataCriacao) FROM OutboxTransacao o WHERE o.dataEnvio IS NULL")
+    LocalDateTime buscarMaisAntigaPendente();
+}
@@ -0,0 +1,55 @@
+package com.bancotranquilo.resiliencia;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * GET /actuator/banco mostra o circuito e o limitador; POST com {"estado": "ABERTO"} ou
+ * {"estado": "FECHADO"} força o circuito durante uma manutenção do banco.
+ */
+@Component
+@Endpoint(id = "banco")
+public class BancoEndpoint {
+    
+    private final CircuitBreaker circuitBreaker;
+    private final LimitadorAdaptativo limitador;
+    
+    public BancoEndpoint(CircuitBreaker bancoCircuitBreaker, LimitadorAdaptativo bancoLimitador) {
+        this.circuitBreaker = bancoCircuitBreaker;
+        this.limitador = bancoLimitador;
+    }
+    
+    @ReadOperation
+    public Map<String, Object> estado() {
+        Map<String, Object> circuito = new LinkedHashMap<>();
+        circuito.put("estado", circuitBreaker.getEstado());
+        circuito.put("taxaFalha", circuitBreaker.taxaFalha());
+        circuito.put("chamadasRegistradas", circuitBreaker.getChamadasRegistradas());
+        circuito.put("rejeitadas", circuitBreaker.getRejeitadas());
+        circuito.put("millisParaSemiAberto", circuitBreaker.getMillisParaSemiAberto());
+        
+        Map<String, Object> concorrencia = new LinkedHashMap<>();
+        concorrencia.put("limite", limitador.getLimite());
+        concorrencia.put("emVoo", limitador.getEmVoo());
+        
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("circuito", circuito);
+        estado.put("limitador", concorrencia);
+        return estado;
+    }
+    
+    @WriteOperation
+    public Map<String, Object> alterarCircuito(EstadoCircuito estado) {
+        if (estado == EstadoCircuito.ABERTO) {
+            circuitBreaker.abrir();
+        } else {
+            circuitBreaker.fechar();
+        }
+        return estado();
+    }
+}
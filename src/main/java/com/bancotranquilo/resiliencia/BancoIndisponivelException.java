@@ -0,0 +1,16 @@
+package com.bancotranquilo.resiliencia;
+
+/**
+ * A chamada ao banco não foi feita (circuito aberto ou limite de concorrência) ou falhou
+ * por indisponibilidade. A transação deve ser adiada, nunca rejeitada.
+ */
+public class BancoIndisponivelException extends RuntimeException {
+    
+    public BancoIndisponivelException(String mensagem) {
+        super(mensagem);
+    }
+    
+    public BancoIndisponivelException(String mensagem, Throwable causa) {
+        super(mensagem, causa);
+    }
+}
@@ -0,0 +1,151 @@
+package com.bancotranquilo.resiliencia;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Circuit breaker com janela deslizante das últimas chamadas. Abre quando a taxa de falhas
+ * passa do limite; depois do tempo aberto libera algumas chamadas de teste (semiaberto) e
+ * fecha somente se todas tiverem sucesso.
+ */
+@Slf4j
+public class CircuitBreaker {
+    
+    private final String nome;
+    private final double taxaFalhaLimite;
+    private final int chamadasMinimas;
+    private final long tempoAbertoNanos;
+    private final int chamadasSemiAberto;
+    
+    private final boolean[] janela;
+    private int posicao;
+    private int registradas;
+    private int falhas;
+    
+    private EstadoCircuito estado = EstadoCircuito.FECHADO;
+    private long abertoDesde;
+    private int chamadasTesteLiberadas;
+    private int chamadasTesteComSucesso;
+    private long rejeitadas;
+    
+    public CircuitBreaker(String nome, int tamanhoJanela, double taxaFalhaLimite, int chamadasMinimas,
+                          long tempoAbertoMillis, int chamadasSemiAberto) {
+        this.nome = nome;
+        this.janela = new boolean[tamanhoJanela];
+        this.taxaFalhaLimite = taxaFalhaLimite;
+        this.chamadasMinimas = Math.min(chamadasMinimas, tamanhoJanela);
+        this.tempoAbertoNanos = tempoAbertoMillis * 1_000_000L;
+        this.chamadasSemiAberto = chamadasSemiAberto;
+    }
+    
+    public synchronized boolean permitirChamada() {
+        if (estado == EstadoCircuito.ABERTO) {
+            if (System.nanoTime() - abertoDesde < tempoAbertoNanos) {
+                rejeitadas++;
+                return false;
+            }
+            mudarEstado(EstadoCircuito.SEMI_ABERTO);
+            chamadasTesteLiberadas = 0;
+            chamadasTesteComSucesso = 0;
+        }
+        if (estado == EstadoCircuito.SEMI_ABERTO) {
+            if (chamadasTesteLiberadas >= chamadasSemiAberto) {
+                rejeitadas++;
+                return false;
+            }
+            chamadasTesteLiberadas++;
+        }
+        return true;
+    }
+    
+    public synchronized void registrarSucesso() {
+        if (estado == EstadoCircuito.SEMI_ABERTO) {
+            if (++chamadasTesteComSucesso >= chamadasSemiAberto) {
+                fechar();
+            }
+        } else if (estado == EstadoCircuito.FECHADO) {
+            registrar(false);
+        }
+    }
+    
+    public synchronized void registrarFalha() {
+        if (estado == EstadoCircuito.SEMI_ABERTO) {
+            abrir();
+        } else if (estado == EstadoCircuito.FECHADO) {
+            registrar(true);
+            if (registradas >= chamadasMinimas && taxaFalha() >= taxaFalhaLimite) {
+                abrir();
+            }
+        }
+    }
+    
+    /**
+     * Devolve a permissão de uma chamada que acabou não sendo feita.
+     */
+    public synchronized void cancelarChamada() {
+        if (estado == EstadoCircuito.SEMI_ABERTO && chamadasTesteLiberadas > 0) {
+            chamadasTesteLiberadas--;
+        }
+    }
+    
+    public synchronized void abrir() {
+        mudarEstado(EstadoCircuito.ABERTO);
+        abertoDesde = System.nanoTime();
+        limparJanela();
+    }
+    
+    public synchronized void fechar() {
+        mudarEstado(EstadoCircuito.FECHADO);
+        limparJanela();
+    }
+    
+    public synchronized EstadoCircuito getEstado() {
+        return estado;
+    }
+    
+    public synchronized double taxaFalha() {
+        return registradas == 0 ? 0.0 : (double) falhas / registradas;
+    }
+    
+    public synchronized int getChamadasRegistradas() {
+        return registradas;
+    }
+    
+    public synchronized long getRejeitadas() {
+        return rejeitadas;
+    }
+    
+    public synchronized long getMillisParaSemiAberto() {
+        if (estado != EstadoCircuito.ABERTO) {
+            return 0;
+        }
+        return Math.max(0, (tempoAbertoNanos - (System.nanoTime() - abertoDesde)) / 1_000_000L);
+    }
+    
+    private void registrar(boolean falha) {
+        if (registradas == janela.length) {
+            if (janela[posicao]) {
+                falhas--;
+            }
+        } else {
+            registradas++;
+        }
+        janela[posicao] = falha;
+        if (falha) {
+            falhas++;
+        }
+        posicao = (posicao + 1) % janela.length;
+    }
+    
+    private void limparJanela() {
+        posicao = 0;
+        registradas = 0;
+        falhas = 0;
+    }
+    
+    private void mudarEstado(EstadoCircuito novoEstado) {
+        if (estado != novoEstado) {
+            log.warn("Circuito {} mudou de {} para {}", nome, estado, novoEstado);
+            estado = novoEstado;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.bancotranquilo.resiliencia;
+
+public enum EstadoCircuito {
+    FECHADO,
+    SEMI_ABERTO,
+    ABERTO
+}
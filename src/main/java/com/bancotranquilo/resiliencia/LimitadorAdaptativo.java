@@ -0,0 +1,68 @@
+package com.bancotranquilo.resiliencia;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limite de chamadas simultâneas ajustado por AIMD: cresce 1 a cada "limite" respostas
+ * rápidas e é multiplicado pelo fator de redução a cada falha ou resposta acima da
+ * latência alvo.
+ */
+public class LimitadorAdaptativo {
+    
+    private final int limiteMinimo;
+    private final int limiteMaximo;
+    private final long latenciaAlvoNanos;
+    private final double fatorReducao;
+    
+    private double limite;
+    private int emVoo;
+    
+    public LimitadorAdaptativo(int limiteInicial, int limiteMinimo, int limiteMaximo,
+                               long latenciaAlvoMillis, double fatorReducao) {
+        this.limiteMinimo = Math.max(1, limiteMinimo);
+        this.limiteMaximo = Math.max(this.limiteMinimo, limiteMaximo);
+        this.latenciaAlvoNanos = latenciaAlvoMillis * 1_000_000L;
+        this.fatorReducao = fatorReducao;
+        this.limite = Math.max(this.limiteMinimo, Math.min(this.limiteMaximo, limiteInicial));
+    }
+    
+    public synchronized boolean tentarAdquirir(long esperaMaximaMillis) throws InterruptedException {
+        long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMaximaMillis);
+        while (emVoo >= (int) limite) {
+            long restante = prazo - System.nanoTime();
+            if (restante <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, restante);
+        }
+        emVoo++;
+        return true;
+    }
+    
+    public synchronized void liberar(long latenciaNanos, boolean sucesso) {
+        emVoo--;
+        if (!sucesso || latenciaNanos > latenciaAlvoNanos) {
+            limite = Math.max(limiteMinimo, limite * fatorReducao);
+        } else if (emVoo + 1 >= limite / 2) {
+            // Só cresce quando o limite está de fato sendo usado
+            limite = Math.min(limiteMaximo, limite + 1.0 / limite);
+        }
+        notifyAll();
+    }
+    
+    /**
+     * Libera a vaga sem ajustar o limite (a chamada não chegou a ser feita).
+     */
+    public synchronized void cancelar() {
+        emVoo--;
+        notifyAll();
+    }
+    
+    public synchronized int getLimite() {
+        return (int) limite;
+    }
+    
+    public synchronized int getEmVoo() {
+        return emVoo;
+    }
+}
@@ -0,0 +1,58 @@
+package com.bancotranquilo.resiliencia;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket por chave no formato GCRA: para cada chave guarda apenas o instante teórico da
+ * próxima chegada, atualizado com compare-and-set, sem locks e sem thread de reposição.
+ * Permite {@code rajada} requisições seguidas e depois {@code porSegundo} em média.
+ */
+public class LimitadorTaxa {
+    
+    private final long intervaloNanos;
+    private final long toleranciaNanos;
+    private final ConcurrentMap<String, AtomicLong> chegadas = new ConcurrentHashMap<>();
+    
+    public LimitadorTaxa(double porSegundo, int rajada) {
+        this.intervaloNanos = (long) (TimeUnit.SECONDS.toNanos(1) / porSegundo);
+        this.toleranciaNanos = intervaloNanos * (Math.max(1, rajada) - 1);
+    }
+    
+    /**
+     * Consome uma ficha da chave.
+     *
+     * @return 0 se a requisição foi aceita, ou quantos nanossegundos faltam para a próxima ficha
+     */
+    public long tentarConsumir(String chave) {
+        AtomicLong chegada = chegadas.computeIfAbsent(chave, c -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long agora = System.nanoTime();
+            long atual = chegada.get();
+            long teorica = atual == Long.MIN_VALUE || atual - agora < 0 ? agora : atual;
+            long espera = teorica - toleranciaNanos - agora;
+            if (espera > 0) {
+                return espera;
+            }
+            if (chegada.compareAndSet(atual, teorica + intervaloNanos)) {
+                return 0;
+            }
+        }
+    }
+    
+    /**
+     * Remove as chaves cujo balde já está cheio de novo (equivalentes a uma chave nova).
+     */
+    public int limpar() {
+        long agora = System.nanoTime();
+        int antes = chegadas.size();
+        chegadas.values().removeIf(chegada -> chegada.get() - agora <= 0);
+        return antes - chegadas.size();
+    }
+    
+    public int getChaves() {
+        return chegadas.size();
+    }
+}
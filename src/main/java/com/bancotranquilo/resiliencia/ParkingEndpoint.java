@@ -0,0 +1,44 @@
+package com.bancotranquilo.resiliencia;
+
+import com.bancotranquilo.service.ParkingTransacoes;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * GET /actuator/parking mostra quantas mensagens estão no parking de cada fila; POST com
+ * {"fila": "transacoes.requisicoes", "limite": 100} devolve mensagens para a fila de origem.
+ */
+@Component
+@Endpoint(id = "parking")
+public class ParkingEndpoint {
+    
+    private static final int LIMITE_PADRAO = 100;
+    
+    private final ParkingTransacoes parkingTransacoes;
+    
+    public ParkingEndpoint(ParkingTransacoes parkingTransacoes) {
+        this.parkingTransacoes = parkingTransacoes;
+    }
+    
+    @ReadOperation
+    public Map<String, Integer> mensagens() {
+        return parkingTransacoes.contarMensagens();
+    }
+    
+    @WriteOperation
+    public Map<String, Object> reprocessar(String fila, @Nullable Integer limite) {
+        int reprocessadas = parkingTransacoes.reprocessar(fila, limite != null ? limite : LIMITE_PADRAO);
+        
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("fila", fila);
+        resultado.put("reprocessadas", reprocessadas);
+        resultado.put("restantes", parkingTransacoes.contarMensagens().get(fila));
+        return resultado;
+    }
+}
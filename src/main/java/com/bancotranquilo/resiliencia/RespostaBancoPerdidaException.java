@@ -0,0 +1,17 @@
+package com.bancotranquilo.resiliencia;
+
+/**
+ * O banco recebeu a chamada mas a resposta não chegou (timeout de leitura, erro do servidor,
+ * corpo inválido): as transações podem ter sido processadas. Também deve ser adiada, mas
+ * nunca repetida por outro caminho antes disso.
+ */
+public class RespostaBancoPerdidaException extends BancoIndisponivelException {
+    
+    public RespostaBancoPerdidaException(String mensagem) {
+        super(mensagem);
+    }
+    
+    public RespostaBancoPerdidaException(String mensagem, Throwable causa) {
+        super(mensagem, causa);
+    }
+}
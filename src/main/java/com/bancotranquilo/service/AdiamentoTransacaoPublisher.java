@@ -0,0 +1,57 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.mensagem.RoteamentoRequisicoes;
+import com.bancotranquilo.model.dto.TransacaoRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+import static com.bancotranquilo.config.RabbitMQConfig.QUEUE_ADIADAS;
+
+/**
+ * Envia para transacoes.requisicoes.adiadas as requisições que o banco não pôde atender.
+ * A fila não tem consumidores: depois do TTL o RabbitMQ devolve as mensagens para o shard
+ * de cada uma.
+ */
+@Component
+@Slf4j
+public class AdiamentoTransacaoPublisher {
+    
+    private final RabbitTemplate rabbitTemplate;
+    private final RoteamentoRequisicoes roteamento;
+    private final Counter adiadas;
+    
+    @Value("${banco.tranquilo.outbox.timeout-confirmacao:5000}")
+    private long timeoutConfirmacao;
+    
+    @Autowired
+    public AdiamentoTransacaoPublisher(RabbitTemplate rabbitTemplate,
+                                       RoteamentoRequisicoes roteamento,
+                                       MeterRegistry meterRegistry) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.roteamento = roteamento;
+        this.adiadas = meterRegistry.counter("banco.transacoes.adiadas");
+    }
+    
+    public void adiar(TransacaoRequest request) {
+        adiar(List.of(request));
+    }
+    
+    public void adiar(List<TransacaoRequest> requests) {
+        rabbitTemplate.invoke(operations -> {
+            for (TransacaoRequest request : requests) {
+                operations.convertAndSend("", QUEUE_ADIADAS, request, roteamento.marcar(request));
+            }
+            operations.waitForConfirmsOrDie(timeoutConfirmacao);
+            return null;
+        });
+        adiadas.increment(requests.size());
+        log.warn("{} requisição(ões) de transação adiada(s) por indisponibilidade do banco", requests.size());
+    }
+}
@@ -0,0 +1,122 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.mensagem.RoteamentoRequisicoes;
+import com.bancotranquilo.model.dto.CompraRequest;
+import com.bancotranquilo.resiliencia.LimitadorTaxa;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Decide se uma nova compra é aceita. Recusa enquanto o acúmulo nas filas de requisições ou a
+ * latência recente até o status final passam dos limites (aceitar só aumentaria a espera de
+ * todos) e limita a taxa de cada cliente da API ou e-mail com um {@link LimitadorTaxa}.
+ */
+@Component
+@Slf4j
+public class AdmissaoCompras {
+    
+    private final RoteamentoRequisicoes roteamento;
+    private final MetricasPipeline metricas;
+    private final LimitadorTaxa limitadorTaxa;
+    private final Counter admitidas;
+    private final Counter recusadasFila;
+    private final Counter recusadasLatencia;
+    private final Counter recusadasTaxa;
+    
+    @Value("${banco.tranquilo.admissao.habilitada:true}")
+    private boolean habilitada;
+    
+    @Value("${banco.tranquilo.admissao.profundidade-maxima:50000}")
+    private long profundidadeMaxima;
+    
+    @Value("${banco.tranquilo.admissao.latencia-maxima:60000}")
+    private long latenciaMaxima;
+    
+    @Value("${banco.tranquilo.admissao.janela-latencia:10000}")
+    private long janelaLatencia;
+    
+    @Value("${banco.tranquilo.admissao.retry-after:5}")
+    private long retryAfter;
+    
+    @Value("${banco.tranquilo.limite-taxa.habilitado:true}")
+    private boolean limiteTaxaHabilitado;
+    
+    @Autowired
+    public AdmissaoCompras(RoteamentoRequisicoes roteamento,
+                           MetricasPipeline metricas,
+                           LimitadorTaxa limitadorTaxa,
+                           MeterRegistry meterRegistry) {
+        this.roteamento = roteamento;
+        this.metricas = metricas;
+        this.limitadorTaxa = limitadorTaxa;
+        this.admitidas = meterRegistry.counter("compras.admissao", "resultado", "admitida");
+        this.recusadasFila = meterRegistry.counter("compras.admissao", "resultado", "recusada_fila");
+        this.recusadasLatencia = meterRegistry.counter("compras.admissao", "resultado", "recusada_latencia");
+        this.recusadasTaxa = meterRegistry.counter("compras.admissao", "resultado", "recusada_taxa");
+        meterRegistry.gauge("compras.limite_taxa.chaves", limitadorTaxa, LimitadorTaxa::getChaves);
+    }
+    
+    /**
+     * Recusas por acúmulo, usadas também pela criação em lote.
+     *
+     * @return o tempo sugerido para nova tentativa, se a compra deve ser recusada
+     */
+    public Optional<Duration> avaliarAcumulo() {
+        if (!habilitada) {
+            return Optional.empty();
+        }
+        long profundidade = roteamento.getProfundidadeTotal();
+        if (profundidade > profundidadeMaxima) {
+            recusadasFila.increment();
+            log.debug("Compra recusada: {} requisições nas filas", profundidade);
+            return Optional.of(Duration.ofSeconds(retryAfter));
+        }
+        long latencia = metricas.getLatenciaRecenteMillis(janelaLatencia);
+        if (latencia > latenciaMaxima) {
+            recusadasLatencia.increment();
+            log.debug("Compra recusada: latência recente de {} ms", latencia);
+            return Optional.of(Duration.ofSeconds(retryAfter));
+        }
+        return Optional.empty();
+    }
+    
+    /**
+     * @param clienteApi identificação do cliente da API (header), ou null para limitar pelo e-mail
+     * @return o tempo sugerido para nova tentativa, se a compra deve ser recusada
+     */
+    public Optional<Duration> avaliar(CompraRequest request, String clienteApi) {
+        Optional<Duration> recusa = avaliarAcumulo();
+        if (recusa.isPresent()) {
+            return recusa;
+        }
+        if (limiteTaxaHabilitado) {
+            String chave = clienteApi != null && !clienteApi.isBlank()
+                ? "api:" + clienteApi
+                : "email:" + request.getEmailCliente().toLowerCase(Locale.ROOT);
+            long espera = limitadorTaxa.tentarConsumir(chave);
+            if (espera > 0) {
+                recusadasTaxa.increment();
+                return Optional.of(Duration.ofNanos(espera));
+            }
+        }
+        admitidas.increment();
+        return Optional.empty();
+    }
+    
+    @Scheduled(fixedDelayString = "${banco.tranquilo.limite-taxa.intervalo-limpeza:60000}")
+    public void limparLimitador() {
+        int removidas = limitadorTaxa.limpar();
+        if (removidas > 0) {
+            log.debug("{} chave(s) removida(s) do limitador de taxa", removidas);
+        }
+    }
+}
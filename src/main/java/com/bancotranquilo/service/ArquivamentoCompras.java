@@ -0,0 +1,147 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.repository.CompraRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Move compras finalizadas há mais de {@code idade-minima} ms para compras_arquivo, particionada
+ * por mês de criação. A tabela compras (e seus índices, mantidos a cada inserção) fica apenas com
+ * compras recentes e em andamento; buscas e listagens consultam o arquivo de forma transparente
+ * (ver {@link CompraService}).
+ */
+@Component
+@Slf4j
+public class ArquivamentoCompras {
+    
+    private static final List<StatusCompra> STATUS_FINALIZADOS = Arrays.stream(StatusCompra.values())
+        .filter(StatusCompra::isFinalizada)
+        .collect(Collectors.toList());
+    
+    private final CompraRepository compraRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter arquivadas;
+    private final Timer duracao;
+    
+    @Value("${banco.tranquilo.arquivamento.habilitado:true}")
+    private boolean habilitado;
+    
+    @Value("${banco.tranquilo.arquivamento.idade-minima:2592000000}")
+    private long idadeMinima;
+    
+    @Value("${banco.tranquilo.arquivamento.tamanho-lote:1000}")
+    private int tamanhoLote;
+    
+    @Value("${banco.tranquilo.arquivamento.pausa-entre-lotes:100}")
+    private long pausaEntreLotes;
+    
+    @Value("${banco.tranquilo.arquivamento.meses-antecipados:2}")
+    private int mesesAntecipados;
+    
+    @Autowired
+    public ArquivamentoCompras(CompraRepository compraRepository,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry) {
+        this.compraRepository = compraRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.arquivadas = meterRegistry.counter("compras.arquivamento.arquivadas");
+        this.duracao = meterRegistry.timer("compras.arquivamento.duracao");
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void preparar() {
+        try {
+            compraRepository.criarArquivoSeNecessario();
+        } catch (Exception e) {
+            log.error("Erro ao criar a tabela compras_arquivo: {}", e.getMessage(), e);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${banco.tranquilo.arquivamento.intervalo:3600000}",
+               initialDelayString = "${banco.tranquilo.arquivamento.intervalo:3600000}")
+    public void arquivar() {
+        if (!habilitado) {
+            return;
+        }
+        Timer.Sample amostra = Timer.start();
+        try {
+            LocalDateTime criadaAntesDe = LocalDateTime.now().minus(Duration.ofMillis(idadeMinima));
+            garantirParticoes(criadaAntesDe);
+            for (StatusCompra status : STATUS_FINALIZADOS) {
+                arquivar(status, criadaAntesDe);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Erro no arquivamento de compras finalizadas: {}", e.getMessage(), e);
+        } finally {
+            amostra.stop(duracao);
+        }
+    }
+    
+    private void arquivar(StatusCompra status, LocalDateTime criadaAntesDe) throws InterruptedException {
+        int total = 0;
+        while (true) {
+            Integer movidas = transactionTemplate.execute(tx -> {
+                List<Long> ids = compraRepository.travarParaArquivamento(status, criadaAntesDe, tamanhoLote);
+                return ids.isEmpty() ? 0 : compraRepository.arquivar(ids);
+            });
+            
+            arquivadas.increment(movidas);
+            total += movidas;
+            if (movidas < tamanhoLote) {
+                break;
+            }
+            // Lotes curtos seguram poucas linhas travadas; a pausa dá vez às inserções
+            Thread.sleep(pausaEntreLotes);
+        }
+        
+        if (total > 0) {
+            log.info("{} compra(s) {} arquivada(s)", total, status);
+        }
+    }
+    
+    /**
+     * Cria as partições mensais que faltam até alguns meses depois do limite de arquivamento,
+     * para que as compras nunca caiam em pmax. Sem partições mensais, começa no mês da compra
+     * mais antiga.
+     */
+    private void garantirParticoes(LocalDateTime criadaAntesDe) {
+        List<YearMonth> existentes = compraRepository.buscarParticoesArquivo();
+        YearMonth ultimo = YearMonth.from(criadaAntesDe).plusMonths(mesesAntecipados);
+        YearMonth mes;
+        if (!existentes.isEmpty()) {
+            mes = existentes.get(existentes.size() - 1).plusMonths(1);
+        } else {
+            LocalDateTime maisAntiga = compraRepository.buscarMaisAntiga();
+            mes = maisAntiga != null ? YearMonth.from(maisAntiga) : YearMonth.from(criadaAntesDe);
+        }
+        
+        List<YearMonth> novos = new ArrayList<>();
+        for (; !mes.isAfter(ultimo); mes = mes.plusMonths(1)) {
+            novos.add(mes);
+        }
+        if (!novos.isEmpty()) {
+            compraRepository.criarParticoesArquivo(novos);
+            log.info("Criadas {} partição(ões) em compras_arquivo até {}", novos.size(), ultimo);
+        }
+    }
+}
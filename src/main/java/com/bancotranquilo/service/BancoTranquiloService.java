@@ -1,103 +1,233 @@
 package com.bancotranquilo.service;
 
+import com.bancotranquilo.auditoria.EtapaAuditoria;
+import com.bancotranquilo.auditoria.JornalAuditoria;
+import com.bancotranquilo.gateway.BancoGateway;
+import com.bancotranquilo.model.StatusCompra;
 import com.bancotranquilo.model.dto.TransacaoRequest;
 import com.bancotranquilo.model.dto.TransacaoResponse;
+import com.bancotranquilo.resiliencia.BancoIndisponivelException;
+import com.bancotranquilo.resiliencia.CircuitBreaker;
+import com.bancotranquilo.resiliencia.LimitadorAdaptativo;
+import com.bancotranquilo.resiliencia.RespostaBancoPerdidaException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.client.RestClientException;
 
-import java.time.LocalDateTime;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
 public class BancoTranquiloService {
     
-    @Value("${banco.tranquilo.api.url}")
-    private String apiUrl;
+    private static final String RESULTADO_APROVADA = "aprovada";
+    private static final String RESULTADO_RECUSADA = "recusada";
+    private static final String RESULTADO_FALHA = "falha";
     
-    private final RestTemplate restTemplate;
+    @Value("${banco.tranquilo.api.lote.habilitado:false}")
+    private boolean loteHabilitado;
     
-    public BancoTranquiloService(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    @Value("${banco.tranquilo.limitador.espera-maxima:1000}")
+    private long esperaLimitador;
+    
+    private final BancoGateway gateway;
+    private final CircuitBreaker circuitBreaker;
+    private final LimitadorAdaptativo limitador;
+    private final JornalAuditoria jornal;
+    private final Timer esperaLimitadorTimer;
+    private final MeterRegistry meterRegistry;
+    
+    public BancoTranquiloService(BancoGateway gateway,
+                                 CircuitBreaker bancoCircuitBreaker,
+                                 LimitadorAdaptativo bancoLimitador,
+                                 JornalAuditoria jornal,
+                                 MeterRegistry meterRegistry) {
+        this.gateway = gateway;
+        this.circuitBreaker = bancoCircuitBreaker;
+        this.limitador = bancoLimitador;
+        this.jornal = jornal;
+        this.esperaLimitadorTimer = meterRegistry.timer("banco.limitador.espera");
+        this.meterRegistry = meterRegistry;
     }
     
+    /**
+     * Processa a transação de forma síncrona. Lança {@link BancoIndisponivelException} quando
+     * o banco não pôde responder; nesse caso a requisição deve ser adiada.
+     */
     public TransacaoResponse processarTransacao(TransacaoRequest request) {
-        log.info("Processando transação para compra ID: {}", request.getCompraId());
+        log.debug("Processando transação para compra ID: {}", request.getCompraId());
         
+        adquirirChamada();
+        long inicio = System.nanoTime();
+        String resultado = RESULTADO_FALHA;
+        TransacaoResponse resposta = null;
         try {
-            // Simulação de chamada à API do Banco Tranquilo
-            // Em produção, isso seria uma chamada HTTP real
-            String url = apiUrl + "/transacoes/processar";
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Content-Type", "application/json");
-            
-            HttpEntity<TransacaoRequest> entity = new HttpEntity<>(request, headers);
-            
-            // Tentativa de chamada real (pode falhar se a API não estiver disponível)
+            resposta = gateway.processar(request);
+            resultado = resposta.isSucesso() ? RESULTADO_APROVADA : RESULTADO_RECUSADA;
+            return resposta;
+        } finally {
+            auditar(request.getCompraId(), registrarResultado(inicio, "unitaria", resultado), resposta);
+        }
+    }
+    
+    /**
+     * Versão não bloqueante de {@link #processarTransacao}. O future termina com
+     * {@link BancoIndisponivelException} quando a requisição deve ser adiada.
+     */
+    public CompletableFuture<TransacaoResponse> processarTransacaoAsync(TransacaoRequest request) {
+        log.debug("Processando transação assíncrona para compra ID: {}", request.getCompraId());
+        
+        try {
+            adquirirChamada();
+        } catch (BancoIndisponivelException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        long inicio = System.nanoTime();
+        CompletableFuture<TransacaoResponse> chamada;
+        try {
+            chamada = gateway.processarAsync(request);
+        } catch (RuntimeException e) {
+            // A requisição nem chegou a ser enviada: não conta como falha do banco
+            cancelarChamada();
+            return CompletableFuture.failedFuture(
+                new BancoIndisponivelException("Erro ao enviar transação ao Banco Tranquilo: " + e.getMessage(), e));
+        }
+        return chamada.handle((resposta, erro) -> {
+            if (erro != null) {
+                auditar(request.getCompraId(), registrarResultado(inicio, "unitaria", RESULTADO_FALHA), null);
+                Throwable causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+                if (causa instanceof BancoIndisponivelException indisponivel) {
+                    throw indisponivel;
+                }
+                throw new BancoIndisponivelException("API do Banco Tranquilo indisponível: " + causa.getMessage(), causa);
+            }
+            long latencia = registrarResultado(inicio, "unitaria",
+                resposta.isSucesso() ? RESULTADO_APROVADA : RESULTADO_RECUSADA);
+            auditar(request.getCompraId(), latencia, resposta);
+            return resposta;
+        });
+    }
+    
+    /**
+     * Processa um lote mantendo a ordem das requisições. Cada future termina com a resposta
+     * do banco ou com {@link BancoIndisponivelException}. Só um lote que certamente não chegou
+     * ao banco (circuito aberto, falha de conexão, recusa 4xx) segue em chamadas individuais.
+     */
+    public List<CompletableFuture<TransacaoResponse>> processarTransacoes(List<TransacaoRequest> requests) {
+        log.debug("Processando lote de {} transações", requests.size());
+        
+        Map<Long, TransacaoResponse> respostas = new HashMap<>();
+        if (loteHabilitado) {
             try {
-                ResponseEntity<TransacaoResponse> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.POST,
-                    entity,
-                    TransacaoResponse.class
-                );
-                
-                if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                    return response.getBody();
+                processarLote(requests, respostas);
+            } catch (RespostaBancoPerdidaException e) {
+                // O banco pode ter processado o lote: chamadas individuais cobrariam de novo, o lote inteiro é adiado
+                log.warn("Lote de {} transações sem resposta do Banco Tranquilo, adiando o lote: {}",
+                         requests.size(), e.getMessage());
+                List<CompletableFuture<TransacaoResponse>> adiadas = new ArrayList<>(requests.size());
+                for (int i = 0; i < requests.size(); i++) {
+                    adiadas.add(CompletableFuture.failedFuture(e));
                 }
-            } catch (RestClientException e) {
-                log.warn("API do Banco Tranquilo não disponível, usando simulação: {}", e.getMessage());
+                return adiadas;
             }
-            
-            // Simulação de resposta da API (para desenvolvimento/teste)
-            return simularRespostaAPI(request);
-            
-        } catch (Exception e) {
-            log.error("Erro ao processar transação: {}", e.getMessage(), e);
-            return criarRespostaErro(request.getCompraId(), "Erro ao processar transação: " + e.getMessage());
         }
+        
+        // Transações sem resposta no lote (ou sem endpoint de lote) seguem em chamadas paralelas
+        List<CompletableFuture<TransacaoResponse>> resultado = new ArrayList<>(requests.size());
+        for (TransacaoRequest request : requests) {
+            TransacaoResponse resposta = respostas.get(request.getCompraId());
+            resultado.add(resposta != null
+                ? CompletableFuture.completedFuture(resposta)
+                : processarTransacaoAsync(request));
+        }
+        return resultado;
     }
     
-    private TransacaoResponse simularRespostaAPI(TransacaoRequest request) {
-        // Simulação: 80% de sucesso, 20% de falha
-        Random random = new Random();
-        boolean sucesso = random.nextDouble() < 0.8;
+    private void processarLote(List<TransacaoRequest> requests, Map<Long, TransacaoResponse> respostas) {
+        try {
+            adquirirChamada();
+        } catch (BancoIndisponivelException e) {
+            return;
+        }
         
-        TransacaoResponse response = new TransacaoResponse();
-        response.setCompraId(request.getCompraId());
+        long inicio = System.nanoTime();
+        String resultado = RESULTADO_FALHA;
+        try {
+            List<TransacaoResponse> corpo = gateway.processarLote(requests);
+            for (TransacaoResponse resposta : corpo) {
+                respostas.put(resposta.getCompraId(), resposta);
+            }
+            resultado = corpo.isEmpty() ? RESULTADO_RECUSADA : RESULTADO_APROVADA;
+        } catch (RespostaBancoPerdidaException e) {
+            throw e;
+        } catch (BancoIndisponivelException e) {
+            // Falha de conexão: o lote não chegou ao banco
+            log.warn("Endpoint de lote do Banco Tranquilo indisponível, usando chamadas paralelas: {}", e.getMessage());
+        } finally {
+            long latencia = registrarResultado(inicio, "lote", resultado);
+            // Transações sem resposta no lote são auditadas na chamada individual
+            for (TransacaoResponse resposta : respostas.values()) {
+                auditar(resposta.getCompraId(), latencia, resposta);
+            }
+        }
+    }
+    
+    private void adquirirChamada() {
+        if (!circuitBreaker.permitirChamada()) {
+            throw new BancoIndisponivelException("Circuito da API do Banco Tranquilo aberto");
+        }
+        
+        long inicio = System.nanoTime();
+        try {
+            if (!limitador.tentarAdquirir(esperaLimitador)) {
+                circuitBreaker.cancelarChamada();
+                throw new BancoIndisponivelException("Limite de chamadas simultâneas ao banco atingido");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.cancelarChamada();
+            throw new BancoIndisponivelException("Chamada ao banco interrompida", e);
+        } finally {
+            esperaLimitadorTimer.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    private void cancelarChamada() {
+        limitador.cancelar();
+        circuitBreaker.cancelarChamada();
+    }
+    
+    private long registrarResultado(long inicio, String tipo, String resultado) {
+        long latencia = System.nanoTime() - inicio;
+        meterRegistry.timer("banco.chamada", "tipo", tipo, "resultado", resultado)
+            .record(latencia, TimeUnit.NANOSECONDS);
         
+        boolean sucesso = !RESULTADO_FALHA.equals(resultado);
+        limitador.liberar(latencia, sucesso);
         if (sucesso) {
-            response.setSucesso(true);
-            response.setMensagem("Transação aprovada com sucesso");
-            response.setCodigoTransacao("TXN" + System.currentTimeMillis());
+            circuitBreaker.registrarSucesso();
         } else {
-            response.setSucesso(false);
-            response.setMensagem("Transação rejeitada: Saldo insuficiente ou cartão inválido");
-            response.setCodigoTransacao(null);
+            circuitBreaker.registrarFalha();
         }
-        
-        log.info("Simulação de resposta da API - Sucesso: {}, Mensagem: {}", 
-                response.isSucesso(), response.getMensagem());
-        
-        return response;
+        return latencia;
     }
     
-    private TransacaoResponse criarRespostaErro(Long compraId, String mensagem) {
-        TransacaoResponse response = new TransacaoResponse();
-        response.setCompraId(compraId);
-        response.setSucesso(false);
-        response.setMensagem(mensagem);
-        response.setCodigoTransacao(null);
-        return response;
+    private void auditar(long compraId, long latencia, TransacaoResponse resposta) {
+        if (resposta == null) {
+            jornal.registrar(compraId, EtapaAuditoria.FALHA_BANCO, null, latencia, null);
+        } else {
+            jornal.registrar(compraId, EtapaAuditoria.RESPOSTA_BANCO,
+                resposta.isSucesso() ? StatusCompra.CONFIRMADA : StatusCompra.REJEITADA,
+                latencia, resposta.getCodigoTransacao());
+        }
     }
 }
-
-
@@ -0,0 +1,75 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.model.dto.CompraResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Cache de {@link CompraResponse} por ID. Compras em estado final quase nunca mudam e ficam
+ * em cache por muito tempo; compras em andamento expiram rápido e são invalidadas quando
+ * a resposta da transação altera o status.
+ */
+@Component
+public class CompraCache {
+    
+    private final Cache<Long, CompraResponse> cache;
+    
+    public CompraCache(MeterRegistry meterRegistry,
+                       @Value("${banco.tranquilo.cache.compras.tamanho-maximo:100000}") long tamanhoMaximo,
+                       @Value("${banco.tranquilo.cache.compras.ttl-finalizada:3600000}") long ttlFinalizada,
+                       @Value("${banco.tranquilo.cache.compras.ttl-em-andamento:2000}") long ttlEmAndamento) {
+        long ttlFinalizadaNanos = Duration.ofMillis(ttlFinalizada).toNanos();
+        long ttlEmAndamentoNanos = Duration.ofMillis(ttlEmAndamento).toNanos();
+        
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(tamanhoMaximo)
+            .recordStats()
+            .expireAfter(new Expiry<Long, CompraResponse>() {
+                @Override
+                public long expireAfterCreate(Long id, CompraResponse compra, long agora) {
+                    return compra.getStatus().isFinalizada() ? ttlFinalizadaNanos : ttlEmAndamentoNanos;
+                }
+                
+                @Override
+                public long expireAfterUpdate(Long id, CompraResponse compra, long agora, long duracaoAtual) {
+                    return expireAfterCreate(id, compra, agora);
+                }
+                
+                @Override
+                public long expireAfterRead(Long id, CompraResponse compra, long agora, long duracaoAtual) {
+                    return duracaoAtual;
+                }
+            })
+            .build();
+        
+        // Expõe cache.gets (hit/miss), cache.evictions e cache.size com a tag cache=compras
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "compras");
+    }
+    
+    public CompraResponse buscar(Long id, Function<Long, CompraResponse> carregar) {
+        return cache.get(id, carregar);
+    }
+    
+    public void invalidar(Long id) {
+        cache.invalidate(id);
+        // Invalida de novo após o commit: uma leitura concorrente pode ter recarregado o status antigo
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+}
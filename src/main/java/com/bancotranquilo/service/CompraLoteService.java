@@ -0,0 +1,209 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.auditoria.EtapaAuditoria;
+import com.bancotranquilo.auditoria.JornalAuditoria;
+import com.bancotranquilo.model.Compra;
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.model.dto.CompraRequest;
+import com.bancotranquilo.model.dto.ItemLoteResultado;
+import com.bancotranquilo.model.dto.ResultadoLote;
+import com.bancotranquilo.repository.CompraRepository;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Ingestão de compras em lote: valida cada item, insere as válidas em lotes JDBC
+ * (compras e outbox na mesma transação) e devolve o resultado de cada item.
+ */
+@Service
+@Slf4j
+public class CompraLoteService {
+    
+    private static final String ERRO_GRAVACAO = "Erro ao gravar compra";
+    
+    private final CompraRepository compraRepository;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MetricasPipeline metricas;
+    private final EstatisticasCompras estatisticas;
+    private final JornalAuditoria jornal;
+    private final Timer insercao;
+    
+    @Value("${banco.tranquilo.lote.tamanho-insercao:500}")
+    private int tamanhoInsercao;
+    
+    @Value("${banco.tranquilo.lote.itens-maximos:1000}")
+    private int itensMaximos;
+    
+    @Autowired
+    public CompraLoteService(CompraRepository compraRepository,
+                             Validator validator,
+                             ObjectMapper objectMapper,
+                             TransactionTemplate transactionTemplate,
+                             MetricasPipeline metricas,
+                             EstatisticasCompras estatisticas,
+                             JornalAuditoria jornal,
+                             MeterRegistry meterRegistry) {
+        this.compraRepository = compraRepository;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.metricas = metricas;
+        this.estatisticas = estatisticas;
+        this.jornal = jornal;
+        this.insercao = meterRegistry.timer("compras.db.insercao", "modo", "lote");
+    }
+    
+    /**
+     * Lê o array JSON item a item e recusa com {@link LoteExcedidoException} antes de gravar
+     * qualquer compra se ele passar de {@code itensMaximos} itens.
+     */
+    public ResultadoLote criarComprasJson(InputStream corpo) throws IOException {
+        List<CompraRequest> requests = new ArrayList<>();
+        try (JsonParser parser = objectMapper.createParser(corpo)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Lote deve ser um array JSON de compras");
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (requests.size() >= itensMaximos) {
+                    throw new LoteExcedidoException(itensMaximos);
+                }
+                requests.add(objectMapper.readValue(parser, CompraRequest.class));
+            }
+        }
+        
+        Acumulador acumulador = new Acumulador();
+        for (CompraRequest request : requests) {
+            acumulador.adicionar(request, null);
+        }
+        return acumulador.finalizar();
+    }
+    
+    public ResultadoLote criarComprasNdjson(InputStream corpo) throws IOException {
+        Acumulador acumulador = new Acumulador();
+        BufferedReader leitor = new BufferedReader(new InputStreamReader(corpo, StandardCharsets.UTF_8));
+        String linha;
+        while ((linha = leitor.readLine()) != null) {
+            if (linha.isBlank()) {
+                continue;
+            }
+            try {
+                acumulador.adicionar(objectMapper.readValue(linha, CompraRequest.class), null);
+            } catch (JsonProcessingException e) {
+                acumulador.adicionar(null, "JSON inválido: " + e.getOriginalMessage());
+            }
+        }
+        return acumulador.finalizar();
+    }
+    
+    private List<String> validar(CompraRequest request) {
+        Set<ConstraintViolation<CompraRequest>> violacoes = validator.validate(request);
+        return violacoes.stream()
+            .map(ConstraintViolation::getMessage)
+            .sorted()
+            .collect(Collectors.toList());
+    }
+    
+    private void inserir(List<Compra> compras, List<ItemLoteResultado> itens) {
+        long inicio = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> compraRepository.inserirEmLote(compras));
+        long duracao = System.nanoTime() - inicio;
+        insercao.record(duracao, TimeUnit.NANOSECONDS);
+        metricas.contarStatus(StatusCompra.PENDENTE, compras.size());
+        estatisticas.registrarCriadas(compras.size());
+        for (int i = 0; i < compras.size(); i++) {
+            itens.get(i).setId(compras.get(i).getId());
+            itens.get(i).setStatus(StatusCompra.PENDENTE);
+            jornal.registrar(compras.get(i).getId(), EtapaAuditoria.CRIADA, StatusCompra.PENDENTE, duracao, null);
+        }
+        log.debug("Lote de {} compras inserido", compras.size());
+    }
+    
+    private class Acumulador {
+        private final List<ItemLoteResultado> itens = new ArrayList<>();
+        private final List<Compra> pendentes = new ArrayList<>();
+        private final List<ItemLoteResultado> itensPendentes = new ArrayList<>();
+        private int rejeitadas;
+        
+        void adicionar(CompraRequest request, String erroLeitura) {
+            ItemLoteResultado item = new ItemLoteResultado(itens.size(), null, null, null);
+            itens.add(item);
+            
+            List<String> erros = erroLeitura != null ? List.of(erroLeitura)
+                : request == null ? List.of("Item vazio")
+                : validar(request);
+            if (!erros.isEmpty()) {
+                item.setErros(erros);
+                rejeitadas++;
+                return;
+            }
+            
+            pendentes.add(criarCompra(request));
+            itensPendentes.add(item);
+            if (pendentes.size() >= tamanhoInsercao) {
+                descarregar();
+            }
+        }
+        
+        ResultadoLote finalizar() {
+            descarregar();
+            return new ResultadoLote(itens.size(), itens.size() - rejeitadas, rejeitadas, itens);
+        }
+        
+        private void descarregar() {
+            if (pendentes.isEmpty()) {
+                return;
+            }
+            try {
+                inserir(pendentes, itensPendentes);
+            } catch (Exception e) {
+                // Os detalhes (SQL, driver) ficam só no log
+                log.error("Erro ao inserir lote de {} compras: {}", pendentes.size(), e.getMessage(), e);
+                for (ItemLoteResultado item : itensPendentes) {
+                    item.setErros(List.of(ERRO_GRAVACAO));
+                }
+                rejeitadas += pendentes.size();
+            }
+            pendentes.clear();
+            itensPendentes.clear();
+        }
+        
+        private Compra criarCompra(CompraRequest request) {
+            Compra compra = new Compra();
+            compra.setNumeroCartao(request.getNumeroCartao());
+            compra.setCvv(request.getCvv());
+            compra.setDataValidade(request.getDataValidade());
+            compra.setValor(request.getValor());
+            compra.setEmailCliente(request.getEmailCliente());
+            compra.setNomeCliente(request.getNomeCliente());
+            compra.setStatus(StatusCompra.PENDENTE);
+            compra.setDataCriacao(LocalDateTime.now());
+            return compra;
+        }
+    }
+}
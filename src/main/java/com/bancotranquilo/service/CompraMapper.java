@@ -0,0 +1,52 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.model.Compra;
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.model.dto.CompraResponse;
+import com.bancotranquilo.model.dto.CompraResumo;
+import com.bancotranquilo.model.dto.TransacaoResponse;
+
+import java.time.LocalDateTime;
+
+public final class CompraMapper {
+    
+    private CompraMapper() {
+    }
+    
+    public static CompraResponse paraResponse(Compra compra) {
+        return criarResponse(compra.getId(), compra.getStatus(), compra.getMensagemErro(),
+                             compra.getDataCriacao(), compra.getDataConfirmacao());
+    }
+    
+    public static CompraResponse paraResponse(CompraResumo resumo) {
+        return criarResponse(resumo.getId(), resumo.getStatus(), resumo.getMensagemErro(),
+                             resumo.getDataCriacao(), resumo.getDataConfirmacao());
+    }
+    
+    public static CompraResponse paraResponse(TransacaoResponse resposta, LocalDateTime dataCriacao,
+                                              LocalDateTime dataConfirmacao) {
+        return resposta.isSucesso()
+            ? criarResponse(resposta.getCompraId(), StatusCompra.CONFIRMADA, null, dataCriacao, dataConfirmacao)
+            : criarResponse(resposta.getCompraId(), StatusCompra.REJEITADA, resposta.getMensagem(), dataCriacao, null);
+    }
+    
+    public static CompraResponse paraResponse(Long id, StatusCompra status, String mensagemErro,
+                                              LocalDateTime dataCriacao) {
+        return criarResponse(id, status, mensagemErro, dataCriacao, null);
+    }
+    
+    private static CompraResponse criarResponse(Long id, StatusCompra status, String mensagemErro,
+                                                LocalDateTime dataCriacao,
+                                                LocalDateTime dataConfirmacao) {
+        CompraResponse response = new CompraResponse();
+        response.setId(id);
+        response.setStatus(status);
+        response.setMensagem(status == StatusCompra.CONFIRMADA ? 
+                           "Compra confirmada" : 
+                           mensagemErro != null ? mensagemErro : 
+                           "Compra em processamento");
+        response.setDataCriacao(dataCriacao);
+        response.setDataConfirmacao(dataConfirmacao);
+        return response;
+    }
+}
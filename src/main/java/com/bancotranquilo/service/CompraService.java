@@ -1,47 +1,108 @@
 package com.bancotranquilo.service;
 
+import com.bancotranquilo.auditoria.EtapaAuditoria;
+import com.bancotranquilo.auditoria.JornalAuditoria;
 import com.bancotranquilo.model.Compra;
+import com.bancotranquilo.model.OutboxTransacao;
 import com.bancotranquilo.model.StatusCompra;
 import com.bancotranquilo.model.dto.CompraRequest;
 import com.bancotranquilo.model.dto.CompraResponse;
-import com.bancotranquilo.model.dto.TransacaoRequest;
+import com.bancotranquilo.model.dto.CompraResumo;
+import com.bancotranquilo.model.dto.EmailConfirmacao;
+import com.bancotranquilo.model.dto.FiltroCompras;
+import com.bancotranquilo.model.dto.PaginaCompras;
 import com.bancotranquilo.model.dto.TransacaoResponse;
 import com.bancotranquilo.repository.CompraRepository;
+import com.bancotranquilo.repository.OutboxTransacaoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-
-import static com.bancotranquilo.config.RabbitMQConfig.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 @Slf4j
 public class CompraService {
     
+    // PROCESSANDO primeiro: é o status de quase todas as compras que recebem resposta
+    private static final List<StatusCompra> STATUS_ACEITAM_RESPOSTA =
+        List.of(StatusCompra.PROCESSANDO, StatusCompra.PENDENTE, StatusCompra.ERRO);
+    
+    private static final Comparator<CompraResumo> ORDEM_LISTAGEM = Comparator
+        .comparing(CompraResumo::getDataCriacao)
+        .thenComparing(CompraResumo::getId)
+        .reversed();
+    
     private final CompraRepository compraRepository;
-    private final RabbitTemplate rabbitTemplate;
+    private final OutboxTransacaoRepository outboxRepository;
     private final BancoTranquiloService bancoTranquiloService;
     private final EmailService emailService;
+    private final CompraCache compraCache;
+    private final MetricasPipeline metricas;
+    private final EstatisticasCompras estatisticas;
+    private final EventosCompraPublisher eventosPublisher;
+    private final JornalAuditoria jornal;
+    private final MeterRegistry meterRegistry;
+    private final Counter requisicoesDescartadas;
+    private final Timer insercao;
+    private final Timer atualizacaoStatus;
+    
+    @Value("${banco.tranquilo.varredura.horizonte-copias:900000}")
+    private long horizonteCopias;
     
     @Autowired
     public CompraService(CompraRepository compraRepository,
-                        RabbitTemplate rabbitTemplate,
+                        OutboxTransacaoRepository outboxRepository,
                         BancoTranquiloService bancoTranquiloService,
-                        EmailService emailService) {
+                        EmailService emailService,
+                        CompraCache compraCache,
+                        MetricasPipeline metricas,
+                        EstatisticasCompras estatisticas,
+                        EventosCompraPublisher eventosPublisher,
+                        JornalAuditoria jornal,
+                        MeterRegistry meterRegistry) {
         this.compraRepository = compraRepository;
-        this.rabbitTemplate = rabbitTemplate;
+        this.outboxRepository = outboxRepository;
         this.bancoTranquiloService = bancoTranquiloService;
         this.emailService = emailService;
+        this.compraCache = compraCache;
+        this.metricas = metricas;
+        this.estatisticas = estatisticas;
+        this.eventosPublisher = eventosPublisher;
+        this.jornal = jornal;
+        this.meterRegistry = meterRegistry;
+        this.requisicoesDescartadas = meterRegistry.counter("transacoes.requisicoes.descartadas");
+        this.insercao = meterRegistry.timer("compras.db.insercao", "modo", "unitaria");
+        this.atualizacaoStatus = meterRegistry.timer("compras.db.atualizacao_status");
     }
     
     @Transactional
     public CompraResponse criarCompra(CompraRequest request) {
-        log.info("Criando nova compra para cliente: {}", request.getEmailCliente());
+        log.debug("Criando nova compra para cliente: {}", request.getEmailCliente());
         
         Compra compra = new Compra();
         compra.setNumeroCartao(request.getNumeroCartao());
@@ -52,27 +113,17 @@ public class CompraService {
         compra.setNomeCliente(request.getNomeCliente());
         compra.setStatus(StatusCompra.PENDENTE);
         
+        long inicio = System.nanoTime();
         compra = compraRepository.save(compra);
-        log.info("Compra criada com ID: {}", compra.getId());
-        
-        // Enviar requisição para a fila do RabbitMQ
-        TransacaoRequest transacaoRequest = new TransacaoRequest(
-            compra.getId(),
-            compra.getNumeroCartao(),
-            compra.getCvv(),
-            compra.getDataValidade(),
-            compra.getValor(),
-            compra.getEmailCliente(),
-            compra.getNomeCliente()
-        );
-        
-        rabbitTemplate.convertAndSend(
-            EXCHANGE_TRANSACOES,
-            ROUTING_KEY_REQUISICOES,
-            transacaoRequest
-        );
-        
-        log.info("Requisição de transação enviada para a fila RabbitMQ");
+        log.debug("Compra criada com ID: {}", compra.getId());
+        
+        // Requisição gravada no outbox na mesma transação; o OutboxRelay publica no RabbitMQ após o commit
+        outboxRepository.save(new OutboxTransacao(compra.getId()));
+        long duracao = System.nanoTime() - inicio;
+        insercao.record(duracao, TimeUnit.NANOSECONDS);
+        jornal.registrar(compra.getId(), EtapaAuditoria.CRIADA, StatusCompra.PENDENTE, duracao, null);
+        metricas.contarStatus(StatusCompra.PENDENTE, 1);
+        estatisticas.registrarCriadas(1);
         
         CompraResponse response = new CompraResponse();
         response.setId(compra.getId());
@@ -85,66 +136,264 @@ public class CompraService {
     
     @Transactional
     public void processarRespostaTransacao(TransacaoResponse transacaoResponse) {
-        log.info("Processando resposta de transação para compra ID: {}", transacaoResponse.getCompraId());
+        log.debug("Processando resposta de transação para compra ID: {}", transacaoResponse.getCompraId());
         
-        Compra compra = compraRepository.findById(transacaoResponse.getCompraId())
-            .orElseThrow(() -> new RuntimeException("Compra não encontrada: " + transacaoResponse.getCompraId()));
+        processarRespostasTransacao(List.of(transacaoResponse));
+    }
+    
+    /**
+     * Aplica as respostas do banco. Além das compras em andamento, uma resposta real corrige
+     * uma compra que a varredura marcou como ERRO por falta de resposta; respostas para compras
+     * já confirmadas ou rejeitadas são contadas e registradas em log para conciliação.
+     */
+    @Transactional
+    public Set<Long> processarRespostasTransacao(List<TransacaoResponse> respostas) {
+        LocalDateTime agora = LocalDateTime.now();
         
-        if (transacaoResponse.isSucesso()) {
-            compra.setStatus(StatusCompra.CONFIRMADA);
-            compra.setDataConfirmacao(LocalDateTime.now());
-            compraRepository.save(compra);
-            
-            log.info("Compra ID {} confirmada, enviando e-mail de confirmação", compra.getId());
-            
-            // Enviar e-mail de confirmação
-            try {
-                emailService.enviarEmailConfirmacao(compra);
-            } catch (Exception e) {
-                log.error("Erro ao enviar e-mail de confirmação: {}", e.getMessage(), e);
-                // Não falha a transação se o e-mail falhar
+        Set<Long> aplicadas = new HashSet<>();
+        List<TransacaoResponse> restantes = respostas;
+        for (StatusCompra statusAtual : STATUS_ACEITAM_RESPOSTA) {
+            if (restantes.isEmpty()) {
+                break;
             }
-        } else {
-            compra.setStatus(StatusCompra.REJEITADA);
-            compra.setMensagemErro(transacaoResponse.getMensagem());
-            compraRepository.save(compra);
-            log.warn("Compra ID {} rejeitada: {}", compra.getId(), transacaoResponse.getMensagem());
+            restantes = aplicarRespostas(restantes, statusAtual, agora, aplicadas);
         }
+        
+        for (TransacaoResponse resposta : restantes) {
+            meterRegistry.counter("compras.respostas.descartadas",
+                "resultado", resposta.isSucesso() ? "aprovada" : "recusada").increment();
+            if (resposta.isSucesso()) {
+                log.error("Aprovação do banco (transação {}) para a compra ID {} já finalizada ou inexistente: " +
+                          "possível cobrança em duplicidade", resposta.getCodigoTransacao(), resposta.getCompraId());
+            } else {
+                log.debug("Recusa do banco para a compra ID {} já finalizada ignorada", resposta.getCompraId());
+            }
+        }
+        
+        log.debug("{} de {} respostas de transação aplicadas", aplicadas.size(), respostas.size());
+        return aplicadas;
     }
     
-    public CompraResponse buscarCompraPorId(Long id) {
-        Compra compra = compraRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Compra não encontrada: " + id));
+    /**
+     * Marca como PROCESSANDO as compras que ainda aguardam o banco e devolve as que continuam em
+     * andamento; requisições das demais (cópias atrasadas de retry, adiamento ou varredura) não
+     * devem chegar ao banco. Cada entrega adia a próxima varredura da compra.
+     */
+    @Transactional
+    public Set<Long> iniciarProcessamento(Collection<Long> ids) {
+        Map<Long, StatusCompra> emAndamento = compraRepository.travarEmAndamento(ids);
+        if (emAndamento.size() < ids.size()) {
+            requisicoesDescartadas.increment(ids.size() - emAndamento.size());
+            log.debug("{} requisição(ões) de compras já finalizadas descartada(s) sem chamar o banco",
+                     ids.size() - emAndamento.size());
+        }
+        if (emAndamento.isEmpty()) {
+            return Set.of();
+        }
+        compraRepository.marcarProcessando(emAndamento.keySet(),
+            LocalDateTime.now().plus(Duration.ofMillis(horizonteCopias)));
         
-        CompraResponse response = new CompraResponse();
-        response.setId(compra.getId());
-        response.setStatus(compra.getStatus());
-        response.setMensagem(compra.getStatus() == StatusCompra.CONFIRMADA ? 
-                           "Compra confirmada" : 
-                           compra.getMensagemErro() != null ? compra.getMensagemErro() : 
-                           "Compra em processamento");
-        response.setDataCriacao(compra.getDataCriacao());
-        response.setDataConfirmacao(compra.getDataConfirmacao());
+        int iniciadas = 0;
+        for (Map.Entry<Long, StatusCompra> compra : emAndamento.entrySet()) {
+            if (compra.getValue() == StatusCompra.PENDENTE) {
+                iniciadas++;
+                compraCache.invalidar(compra.getKey());
+            }
+        }
+        metricas.contarStatus(StatusCompra.PROCESSANDO, iniciadas);
+        estatisticas.registrarTransicao(StatusCompra.PENDENTE, StatusCompra.PROCESSANDO, iniciadas);
+        return emAndamento.keySet();
+    }
+    
+    private List<TransacaoResponse> aplicarRespostas(List<TransacaoResponse> respostas, StatusCompra statusAtual,
+                                                     LocalDateTime agora, Set<Long> ids) {
+        // Updates condicionais em lote: sem carregar as entidades e idempotente para respostas repetidas
+        long inicio = System.nanoTime();
+        int[] atualizacoes = compraRepository.aplicarRespostas(respostas, statusAtual, agora);
+        atualizacaoStatus.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
         
-        return response;
+        List<TransacaoResponse> aplicadas = new ArrayList<>();
+        List<TransacaoResponse> restantes = new ArrayList<>();
+        List<Long> confirmadas = new ArrayList<>();
+        for (int i = 0; i < respostas.size(); i++) {
+            TransacaoResponse resposta = respostas.get(i);
+            if (atualizacoes[i] == 0) {
+                restantes.add(resposta);
+                continue;
+            }
+            aplicadas.add(resposta);
+            ids.add(resposta.getCompraId());
+            compraCache.invalidar(resposta.getCompraId());
+            if (resposta.isSucesso()) {
+                confirmadas.add(resposta.getCompraId());
+            } else {
+                log.debug("Compra ID {} rejeitada: {}", resposta.getCompraId(), resposta.getMensagem());
+            }
+            if (statusAtual == StatusCompra.ERRO) {
+                log.warn("Resposta do banco recebida depois que a compra ID {} foi marcada como ERRO: status corrigido para {}",
+                         resposta.getCompraId(), resposta.isSucesso() ? StatusCompra.CONFIRMADA : StatusCompra.REJEITADA);
+                meterRegistry.counter("compras.respostas.conciliadas").increment();
+            }
+        }
+        if (aplicadas.isEmpty()) {
+            return restantes;
+        }
+        
+        Map<Long, LocalDateTime> datasCriacao = compraRepository.buscarDatasCriacao(
+            aplicadas.stream().map(TransacaoResponse::getCompraId).collect(Collectors.toSet()));
+        registrarMetricas(aplicadas, statusAtual, datasCriacao, confirmadas.size(), agora);
+        publicarEventos(aplicadas, datasCriacao, agora);
+        auditar(aplicadas, datasCriacao, agora);
+        estatisticas.registrarTransicao(statusAtual, StatusCompra.REJEITADA, aplicadas.size() - confirmadas.size());
+        
+        if (!confirmadas.isEmpty()) {
+            List<EmailConfirmacao> dadosConfirmadas = compraRepository.buscarDadosEmail(confirmadas, agora);
+            estatisticas.registrarConfirmadas(statusAtual, dadosConfirmadas);
+            // E-mails enviados de forma assíncrona após o commit
+            emailService.agendarEmailsConfirmacao(dadosConfirmadas);
+        }
+        return restantes;
+    }
+    
+    private void registrarMetricas(List<TransacaoResponse> aplicadas, StatusCompra statusAtual,
+                                   Map<Long, LocalDateTime> datasCriacao, int confirmadas, LocalDateTime agora) {
+        metricas.contarStatus(StatusCompra.CONFIRMADA, confirmadas);
+        metricas.contarStatus(StatusCompra.REJEITADA, aplicadas.size() - confirmadas);
+        if (statusAtual == StatusCompra.ERRO) {
+            // A conclusão já foi contada quando a compra foi marcada como ERRO
+            return;
+        }
+        
+        for (TransacaoResponse resposta : aplicadas) {
+            LocalDateTime dataCriacao = datasCriacao.get(resposta.getCompraId());
+            if (dataCriacao != null) {
+                metricas.registrarConclusao(
+                    resposta.isSucesso() ? StatusCompra.CONFIRMADA : StatusCompra.REJEITADA, dataCriacao, agora);
+            }
+        }
+    }
+    
+    private void publicarEventos(List<TransacaoResponse> aplicadas, Map<Long, LocalDateTime> datasCriacao,
+                                 LocalDateTime agora) {
+        List<CompraResponse> eventos = new ArrayList<>(aplicadas.size());
+        for (TransacaoResponse resposta : aplicadas) {
+            eventos.add(CompraMapper.paraResponse(resposta, datasCriacao.get(resposta.getCompraId()), agora));
+        }
+        eventosPublisher.publicar(eventos);
     }
     
-    public List<CompraResponse> listarCompras() {
-        return compraRepository.findAll().stream()
-            .map(compra -> {
-                CompraResponse response = new CompraResponse();
-                response.setId(compra.getId());
-                response.setStatus(compra.getStatus());
-                response.setMensagem(compra.getStatus() == StatusCompra.CONFIRMADA ? 
-                                   "Compra confirmada" : 
-                                   compra.getMensagemErro() != null ? compra.getMensagemErro() : 
-                                   "Compra em processamento");
-                response.setDataCriacao(compra.getDataCriacao());
-                response.setDataConfirmacao(compra.getDataConfirmacao());
-                return response;
-            })
+    private void auditar(List<TransacaoResponse> aplicadas, Map<Long, LocalDateTime> datasCriacao, LocalDateTime agora) {
+        for (TransacaoResponse resposta : aplicadas) {
+            LocalDateTime dataCriacao = datasCriacao.get(resposta.getCompraId());
+            jornal.registrar(resposta.getCompraId(), EtapaAuditoria.FINALIZADA,
+                resposta.isSucesso() ? StatusCompra.CONFIRMADA : StatusCompra.REJEITADA,
+                dataCriacao == null ? 0 : ChronoUnit.NANOS.between(dataCriacao, agora),
+                resposta.getCodigoTransacao());
+        }
+    }
+    
+    public CompraResponse buscarCompraPorId(Long id) {
+        return compraCache.buscar(id, chave -> compraRepository.findById(chave)
+            .map(CompraMapper::paraResponse)
+            // Compras finalizadas antigas são movidas para compras_arquivo (ver ArquivamentoCompras)
+            .or(() -> compraRepository.buscarArquivada(chave).map(CompraMapper::paraResponse))
+            .orElseThrow(() -> new RuntimeException("Compra não encontrada: " + chave)));
+    }
+    
+    public PaginaCompras listarCompras(FiltroCompras filtro, String cursor, int limite) {
+        aplicarCursor(filtro, cursor);
+        
+        // Busca um item a mais para saber se existe próxima página
+        List<CompraResumo> resumos = compraRepository.buscarResumos(filtro, limite + 1);
+        if (incluiArquivo(filtro)) {
+            List<CompraResumo> arquivadas = compraRepository.buscarResumosArquivados(filtro, limite + 1);
+            try (Stream<CompraResumo> mescladas = mesclar(resumos.stream(), arquivadas.stream())) {
+                resumos = mescladas.limit(limite + 1).collect(Collectors.toList());
+            }
+        }
+        boolean temProxima = resumos.size() > limite;
+        if (temProxima) {
+            resumos = resumos.subList(0, limite);
+        }
+        
+        List<CompraResponse> compras = resumos.stream()
+            .map(CompraMapper::paraResponse)
             .collect(Collectors.toList());
+        
+        String proximoCursor = null;
+        if (temProxima) {
+            CompraResumo ultimo = resumos.get(resumos.size() - 1);
+            proximoCursor = codificarCursor(ultimo.getDataCriacao(), ultimo.getId());
+        }
+        return new PaginaCompras(compras, proximoCursor);
+    }
+    
+    public Stream<CompraResponse> streamCompras(FiltroCompras filtro) {
+        Stream<CompraResumo> resumos = compraRepository.streamResumos(filtro);
+        if (incluiArquivo(filtro)) {
+            resumos = mesclar(resumos, compraRepository.streamResumosArquivados(filtro));
+        }
+        return resumos.map(CompraMapper::paraResponse);
+    }
+    
+    private static boolean incluiArquivo(FiltroCompras filtro) {
+        return filtro.getStatus() == null || filtro.getStatus().isFinalizada();
+    }
+    
+    /**
+     * Intercala duas sequências já ordenadas por (data_criacao, id) decrescente. Uma compra
+     * arquivada entre as duas consultas aparece nas duas e é emitida uma vez só; como a tabela
+     * quente é consultada primeiro, nenhuma compra deixa de aparecer.
+     */
+    static Stream<CompraResumo> mesclar(Stream<CompraResumo> quentes, Stream<CompraResumo> arquivadas) {
+        Iterator<CompraResumo> a = quentes.iterator();
+        Iterator<CompraResumo> b = arquivadas.iterator();
+        Iterator<CompraResumo> mescladas = new Iterator<>() {
+            private CompraResumo proximoA = a.hasNext() ? a.next() : null;
+            private CompraResumo proximoB = b.hasNext() ? b.next() : null;
+            
+            @Override
+            public boolean hasNext() {
+                return proximoA != null || proximoB != null;
+            }
+            
+            @Override
+            public CompraResumo next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int comparacao = proximoA == null ? 1 : proximoB == null ? -1 : ORDEM_LISTAGEM.compare(proximoA, proximoB);
+                CompraResumo atual = comparacao <= 0 ? proximoA : proximoB;
+                if (comparacao <= 0) {
+                    proximoA = a.hasNext() ? a.next() : null;
+                }
+                if (comparacao >= 0) {
+                    proximoB = b.hasNext() ? b.next() : null;
+                }
+                return atual;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(mescladas, Spliterator.ORDERED), false)
+            .onClose(quentes::close)
+            .onClose(arquivadas::close);
+    }
+    
+    static void aplicarCursor(FiltroCompras filtro, String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf('_');
+            filtro.setCursorDataCriacao(LocalDateTime.parse(valor.substring(0, separador)));
+            filtro.setCursorId(Long.parseLong(valor.substring(separador + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor, e);
+        }
+    }
+    
+    static String codificarCursor(LocalDateTime dataCriacao, Long id) {
+        String valor = dataCriacao + "_" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
     }
 }
-
-
@@ -1,60 +1,218 @@
 package com.bancotranquilo.service;
 
-import com.bancotranquilo.model.Compra;
+import com.bancotranquilo.model.dto.EmailConfirmacao;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.bancotranquilo.config.RabbitMQConfig.EXCHANGE_TRANSACOES;
+import static com.bancotranquilo.config.RabbitMQConfig.QUEUE_EMAILS;
+import static com.bancotranquilo.config.RabbitMQConfig.ROUTING_KEY_EMAILS;
+import static com.bancotranquilo.config.RabbitMQConfig.filaParking;
+import static com.bancotranquilo.service.RetentativaTransacaoPublisher.HEADER_MOTIVO;
 
 @Service
 @Slf4j
 public class EmailService {
     
+    private static final int TAMANHO_MAXIMO_MOTIVO = 500;
+    
+    private static final String ASSUNTO = "Confirmação de Pagamento - Banco Tranquilo";
+    
+    private static final Locale PT_BR = Locale.forLanguageTag("pt-BR");
+    
+    private static final TemplateEmail CORPO_CONFIRMACAO = new TemplateEmail(
+        "Olá {0},\n\n" +
+        "Sua compra foi confirmada com sucesso!\n\n" +
+        "Detalhes da transação:\n" +
+        "ID da Compra: {1}\n" +
+        "Valor: R$ {2}\n" +
+        "Data de Confirmação: {3}\n\n" +
+        "Agradecemos pela preferência!\n\n" +
+        "Atenciosamente,\n" +
+        "Banco Tranquilo"
+    );
+    
     private final JavaMailSender mailSender;
+    private final RabbitTemplate rabbitTemplate;
+    private final RetryTemplate retryTemplate;
+    private final MeterRegistry meterRegistry;
     
     @Value("${spring.mail.username}")
     private String remetente;
     
-    public EmailService(JavaMailSender mailSender) {
+    @Value("${banco.tranquilo.outbox.timeout-confirmacao:5000}")
+    private long timeoutConfirmacao;
+    
+    public EmailService(JavaMailSender mailSender,
+                        RabbitTemplate rabbitTemplate,
+                        MeterRegistry meterRegistry,
+                        @Value("${banco.tranquilo.email.retry.tentativas:4}") int tentativas,
+                        @Value("${banco.tranquilo.email.retry.intervalo-inicial:500}") long intervaloInicial,
+                        @Value("${banco.tranquilo.email.retry.intervalo-maximo:10000}") long intervaloMaximo) {
         this.mailSender = mailSender;
+        this.rabbitTemplate = rabbitTemplate;
+        this.meterRegistry = meterRegistry;
+        this.retryTemplate = RetryTemplate.builder()
+            .maxAttempts(tentativas)
+            .exponentialBackoff(intervaloInicial, 2.0, intervaloMaximo)
+            .retryOn(MailException.class)
+            .build();
     }
     
-    public void enviarEmailConfirmacao(Compra compra) {
-        try {
+    /**
+     * Enfileira os e-mails de confirmação para envio assíncrono. Dentro de uma transação a
+     * publicação só acontece após o commit, para não anunciar uma confirmação desfeita. Se o
+     * broker não confirmar a publicação, os e-mails são enviados na hora.
+     */
+    public void agendarEmailsConfirmacao(List<EmailConfirmacao> emails) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publicar(emails);
+                }
+            });
+        } else {
+            publicar(emails);
+        }
+    }
+    
+    /**
+     * Envia o lote com novas tentativas. Os e-mails que esgotarem as tentativas vão para
+     * {@code emails.confirmacao.parking}; se nem isso for possível, a exceção devolve o lote
+     * para a fila.
+     */
+    public void enviarEmailsConfirmacao(List<EmailConfirmacao> emails) {
+        List<SimpleMailMessage> pendentes = new ArrayList<>(emails.size());
+        Map<SimpleMailMessage, EmailConfirmacao> origem = new HashMap<>();
+        for (EmailConfirmacao email : emails) {
             SimpleMailMessage message = new SimpleMailMessage();
             message.setFrom(remetente);
-            message.setTo(compra.getEmailCliente());
-            message.setSubject("Confirmação de Pagamento - Banco Tranquilo");
-            message.setText(construirCorpoEmail(compra));
-            
-            mailSender.send(message);
-            log.info("E-mail de confirmação enviado com sucesso para: {}", compra.getEmailCliente());
-            
-        } catch (Exception e) {
-            log.error("Erro ao enviar e-mail de confirmação para {}: {}", 
-                     compra.getEmailCliente(), e.getMessage(), e);
-            throw new RuntimeException("Erro ao enviar e-mail: " + e.getMessage(), e);
+            message.setTo(email.getEmailCliente());
+            message.setSubject(ASSUNTO);
+            message.setText(construirCorpoEmail(email));
+            pendentes.add(message);
+            origem.put(message, email);
         }
+        
+        int total = pendentes.size();
+        Timer.Sample amostra = Timer.start();
+        retryTemplate.execute(contexto -> {
+            try {
+                // Todas as mensagens do lote são enviadas na mesma conexão SMTP
+                mailSender.send(pendentes.toArray(new SimpleMailMessage[0]));
+                log.debug("{} e-mail(s) de confirmação enviado(s) com sucesso", pendentes.size());
+                pendentes.clear();
+            } catch (MailSendException e) {
+                // Na próxima tentativa reenvia apenas as mensagens que falharam
+                if (!e.getFailedMessages().isEmpty()) {
+                    pendentes.retainAll(e.getFailedMessages().keySet());
+                }
+                log.warn("Falha ao enviar {} e-mail(s) (tentativa {}): {}",
+                        pendentes.size(), contexto.getRetryCount() + 1, e.getMessage());
+                throw e;
+            }
+            return null;
+        }, contexto -> {
+            log.error("Desistindo de enviar {} e-mail(s) de confirmação após {} tentativas, enviando para o parking: {}",
+                     pendentes.size(), contexto.getRetryCount(),
+                     contexto.getLastThrowable() != null ? contexto.getLastThrowable().getMessage() : "");
+            estacionar(pendentes.stream().map(origem::get).toList(), contexto.getLastThrowable());
+            return null;
+        });
+        
+        // Quem sobrou em pendentes não foi enviado
+        amostra.stop(meterRegistry.timer("emails.envio", "resultado", pendentes.isEmpty() ? "enviado" : "falha"));
+        meterRegistry.counter("emails.enviados").increment(total - pendentes.size());
+        meterRegistry.counter("emails.falhas").increment(pendentes.size());
     }
     
-    private String construirCorpoEmail(Compra compra) {
-        return String.format(
-            "Olá %s,\n\n" +
-            "Sua compra foi confirmada com sucesso!\n\n" +
-            "Detalhes da transação:\n" +
-            "ID da Compra: %d\n" +
-            "Valor: R$ %.2f\n" +
-            "Data de Confirmação: %s\n\n" +
-            "Agradecemos pela preferência!\n\n" +
-            "Atenciosamente,\n" +
-            "Banco Tranquilo",
-            compra.getNomeCliente(),
-            compra.getId(),
-            compra.getValor(),
-            compra.getDataConfirmacao() != null ? compra.getDataConfirmacao().toString() : "N/A"
+    public String construirCorpoEmail(EmailConfirmacao email) {
+        return CORPO_CONFIRMACAO.aplicar(
+            email.getNomeCliente(),
+            String.valueOf(email.getCompraId()),
+            formatarValor(email.getValor()),
+            email.getDataConfirmacao() != null ? email.getDataConfirmacao().toString() : "N/A"
         );
     }
+    
+    // Mesmo texto do antigo String.format("%.2f") em pt-BR: vírgula decimal, sem separador de milhar
+    private static String formatarValor(BigDecimal valor) {
+        NumberFormat formato = NumberFormat.getNumberInstance(PT_BR);
+        formato.setGroupingUsed(false);
+        formato.setMinimumFractionDigits(2);
+        formato.setMaximumFractionDigits(2);
+        formato.setRoundingMode(RoundingMode.HALF_UP);
+        return formato.format(valor);
+    }
+    
+    private void publicar(List<EmailConfirmacao> emails) {
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (EmailConfirmacao email : emails) {
+                    operations.convertAndSend(EXCHANGE_TRANSACOES, ROUTING_KEY_EMAILS, email);
+                }
+                operations.waitForConfirmsOrDie(timeoutConfirmacao);
+                return null;
+            });
+            return;
+        } catch (Exception e) {
+            meterRegistry.counter("emails.enfileiramento.falhas").increment(emails.size());
+            log.error("Erro ao enfileirar {} e-mail(s) de confirmação, enviando diretamente: {}",
+                     emails.size(), e.getMessage(), e);
+        }
+        
+        try {
+            enviarEmailsConfirmacao(emails);
+        } catch (Exception e) {
+            // Sem broker nem SMTP: a compra já está confirmada, o e-mail fica só no log
+            meterRegistry.counter("emails.perdidos").increment(emails.size());
+            for (EmailConfirmacao email : emails) {
+                log.error("E-mail de confirmação da compra ID {} para {} não enviado: {}",
+                         email.getCompraId(), email.getEmailCliente(), e.getMessage());
+            }
+        }
+    }
+    
+    private void estacionar(List<EmailConfirmacao> emails, Throwable causa) {
+        String motivo = causa == null ? "" : causa.getClass().getSimpleName() + ": " + causa.getMessage();
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (EmailConfirmacao email : emails) {
+                    operations.convertAndSend("", filaParking(QUEUE_EMAILS), email, mensagem -> {
+                        mensagem.getMessageProperties().setHeader(HEADER_MOTIVO,
+                            motivo.length() > TAMANHO_MAXIMO_MOTIVO ? motivo.substring(0, TAMANHO_MAXIMO_MOTIVO) : motivo);
+                        return mensagem;
+                    });
+                }
+                operations.waitForConfirmsOrDie(timeoutConfirmacao);
+                return null;
+            });
+        } catch (Exception e) {
+            // A fila de e-mails não reenfileira rejeições: sem isso o lote seria descartado
+            throw new ImmediateRequeueAmqpException("Erro ao enviar e-mails para o parking: " + e.getMessage(), e);
+        }
+        meterRegistry.counter("transacoes.retry.estacionadas", "fila", QUEUE_EMAILS).increment(emails.size());
+    }
 }
-
-
@@ -0,0 +1,75 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.model.dto.CompraResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Modo síncrono do POST de compras: a requisição fica estacionada em um {@link DeferredResult}
+ * (sem thread bloqueada) até a compra chegar a um status final, anunciado em
+ * {@link NotificacoesCompra}, ou até o tempo de espera acabar, quando a compra é devolvida
+ * como está (PENDENTE ou PROCESSANDO).
+ */
+@Component
+@Slf4j
+public class EsperaResultadoCompra {
+    
+    private final CompraService compraService;
+    private final NotificacoesCompra notificacoes;
+    private final Counter concluidas;
+    private final Counter expiradas;
+    
+    @Autowired
+    public EsperaResultadoCompra(CompraService compraService,
+                                 NotificacoesCompra notificacoes,
+                                 MeterRegistry meterRegistry) {
+        this.compraService = compraService;
+        this.notificacoes = notificacoes;
+        this.concluidas = meterRegistry.counter("compras.aguardar", "resultado", "concluida");
+        this.expiradas = meterRegistry.counter("compras.aguardar", "resultado", "timeout");
+    }
+    
+    public DeferredResult<ResponseEntity<CompraResponse>> aguardar(CompraResponse criada, Duration espera) {
+        // Timeout 0 no DeferredResult significa esperar para sempre
+        DeferredResult<ResponseEntity<CompraResponse>> resultado = new DeferredResult<>(Math.max(1, espera.toMillis()));
+        Long id = criada.getId();
+        
+        Consumer<CompraResponse> ouvinte = compra -> {
+            if (compra.getStatus().isFinalizada() && resultado.setResult(criada(compra))) {
+                concluidas.increment();
+            }
+        };
+        resultado.onTimeout(() -> {
+            expiradas.increment();
+            resultado.setResult(criada(estadoAtual(criada)));
+        });
+        resultado.onCompletion(() -> notificacoes.cancelar(id, ouvinte));
+        
+        notificacoes.assinar(id, ouvinte);
+        // A resposta pode ter sido aplicada antes da assinatura
+        ouvinte.accept(estadoAtual(criada));
+        return resultado;
+    }
+    
+    private CompraResponse estadoAtual(CompraResponse criada) {
+        try {
+            return compraService.buscarCompraPorId(criada.getId());
+        } catch (RuntimeException e) {
+            log.warn("Erro ao consultar compra ID {} aguardada: {}", criada.getId(), e.getMessage());
+            return criada;
+        }
+    }
+    
+    private static ResponseEntity<CompraResponse> criada(CompraResponse compra) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(compra);
+    }
+}
@@ -0,0 +1,304 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.model.EstatisticaCompra;
+import com.bancotranquilo.model.EstatisticaCompraId;
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.model.TipoEstatistica;
+import com.bancotranquilo.model.dto.EmailConfirmacao;
+import com.bancotranquilo.model.dto.ResumoEstatisticas;
+import com.bancotranquilo.model.dto.ValorPeriodo;
+import com.bancotranquilo.repository.EstatisticaCompraRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estatísticas de compras mantidas de forma incremental. Os eventos do pipeline somam em
+ * contadores {@link LongAdder} em memória (sem disputa entre threads) e o delta é descarregado
+ * periodicamente em estatisticas_compras. A leitura combina a última cópia da tabela com o
+ * delta ainda não gravado, sem consultar a tabela de compras.
+ * <p>
+ * Com a tabela vazia, a carga inicial a partir de compras acontece no início do ciclo de vida,
+ * antes dos consumidores do RabbitMQ, dos agendamentos e do servidor HTTP: nenhum delta é
+ * contado duas vezes (na carga e no delta).
+ */
+@Component
+@Slf4j
+public class EstatisticasCompras implements SmartLifecycle {
+    
+    // Depois do treino do CDS (Integer.MIN_VALUE) e antes das fases padrão dos containers e do servidor web
+    private static final int FASE = 0;
+    
+    static final LocalDateTime PERIODO_TOTAL = LocalDateTime.of(1970, 1, 1, 0, 0);
+    
+    private final EstatisticaCompraRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final int diasMaximo;
+    private final int horasMaximo;
+    
+    private final Map<EstatisticaCompraId, Delta> deltas = new ConcurrentHashMap<>();
+    private volatile Base base = new Base(Map.of(), Map.of(), null);
+    private volatile boolean inicializada;
+    private volatile boolean executando;
+    
+    @Autowired
+    public EstatisticasCompras(EstatisticaCompraRepository repository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${banco.tranquilo.estatisticas.dias-maximo:90}") int diasMaximo,
+                               @Value("${banco.tranquilo.estatisticas.horas-maximo:168}") int horasMaximo) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.diasMaximo = diasMaximo;
+        this.horasMaximo = horasMaximo;
+    }
+    
+    public void registrarCriadas(int quantidade) {
+        aposCommit(() -> somar(TipoEstatistica.TOTAL, PERIODO_TOTAL, StatusCompra.PENDENTE, quantidade, 0));
+    }
+    
+    public void registrarConfirmadas(StatusCompra anterior, List<EmailConfirmacao> confirmadas) {
+        aposCommit(() -> {
+            somar(TipoEstatistica.TOTAL, PERIODO_TOTAL, anterior, -confirmadas.size(), 0);
+            somar(TipoEstatistica.TOTAL, PERIODO_TOTAL, StatusCompra.CONFIRMADA, confirmadas.size(), 0);
+            for (EmailConfirmacao confirmada : confirmadas) {
+                long centavos = confirmada.getValor().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+                LocalDateTime data = confirmada.getDataConfirmacao();
+                somar(TipoEstatistica.DIA, data.truncatedTo(ChronoUnit.DAYS), StatusCompra.CONFIRMADA, 1, centavos);
+                somar(TipoEstatistica.HORA, data.truncatedTo(ChronoUnit.HOURS), StatusCompra.CONFIRMADA, 1, centavos);
+            }
+        });
+    }
+    
+    public void registrarTransicao(StatusCompra anterior, StatusCompra novo, int quantidade) {
+        if (quantidade == 0) {
+            return;
+        }
+        aposCommit(() -> {
+            somar(TipoEstatistica.TOTAL, PERIODO_TOTAL, anterior, -quantidade, 0);
+            somar(TipoEstatistica.TOTAL, PERIODO_TOTAL, novo, quantidade, 0);
+        });
+    }
+    
+    public ResumoEstatisticas consultar(int dias, int horas) {
+        Base atual = base;
+        int diasValidos = Math.max(1, Math.min(dias, diasMaximo));
+        int horasValidas = Math.max(1, Math.min(horas, horasMaximo));
+        
+        Map<StatusCompra, Long> porStatus = new EnumMap<>(StatusCompra.class);
+        for (StatusCompra status : StatusCompra.values()) {
+            EstatisticaCompraId id = new EstatisticaCompraId(TipoEstatistica.TOTAL, PERIODO_TOTAL, status);
+            porStatus.put(status, atual.quantidade(id, deltas.get(id)));
+        }
+        
+        LocalDateTime agora = LocalDateTime.now();
+        List<ValorPeriodo> porDia = new ArrayList<>(diasValidos);
+        LocalDateTime dia = agora.truncatedTo(ChronoUnit.DAYS);
+        for (int i = 0; i < diasValidos; i++, dia = dia.minusDays(1)) {
+            porDia.add(valorAprovado(atual, TipoEstatistica.DIA, dia));
+        }
+        List<ValorPeriodo> porHora = new ArrayList<>(horasValidas);
+        LocalDateTime hora = agora.truncatedTo(ChronoUnit.HOURS);
+        for (int i = 0; i < horasValidas; i++, hora = hora.minusHours(1)) {
+            porHora.add(valorAprovado(atual, TipoEstatistica.HORA, hora));
+        }
+        return new ResumoEstatisticas(porStatus, porDia, porHora, atual.gravadoEm);
+    }
+    
+    @Override
+    public void start() {
+        inicializar();
+        executando = true;
+    }
+    
+    @Override
+    public void stop() {
+        executando = false;
+        // Os consumidores já pararam: grava o que restou do delta
+        if (inicializada) {
+            gravar();
+        }
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return executando;
+    }
+    
+    @Override
+    public int getPhase() {
+        return FASE;
+    }
+    
+    private void inicializar() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (repository.count() == 0) {
+                    // A carga lê as compras já gravadas: o delta coletado até aqui (se a carga
+                    // inicial falhou e está sendo repetida) já está nela
+                    deltas.clear();
+                    int linhas = repository.inicializarTotais(PERIODO_TOTAL)
+                        + repository.inicializarDias()
+                        + repository.inicializarHoras(LocalDateTime.now().minusHours(horasMaximo).truncatedTo(ChronoUnit.HOURS));
+                    log.info("Estatísticas de compras inicializadas a partir da tabela de compras ({} linhas)", linhas);
+                }
+            });
+            inicializada = true;
+            recarregar(Map.of());
+        } catch (Exception e) {
+            log.error("Erro ao inicializar estatísticas de compras, tentando novamente na próxima gravação: {}",
+                      e.getMessage(), e);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${banco.tranquilo.estatisticas.intervalo-gravacao:5000}")
+    public void gravar() {
+        if (!inicializada) {
+            // Gravar o delta antes da carga inicial deixaria a tabela não vazia e a carga nunca aconteceria
+            inicializar();
+            if (!inicializada) {
+                return;
+            }
+        }
+        Map<EstatisticaCompraId, long[]> drenados = drenar();
+        if (drenados.isEmpty()) {
+            // Recarrega mesmo sem delta local para refletir o que outras instâncias gravaram
+            recarregar(Map.of());
+            return;
+        }
+        // Até a nova cópia da tabela ser carregada, o delta drenado continua visível na leitura
+        base = new Base(base.gravados, drenados, base.gravadoEm);
+        try {
+            LocalDateTime limiteHoras = LocalDateTime.now().minusHours(horasMaximo).truncatedTo(ChronoUnit.HOURS);
+            transactionTemplate.executeWithoutResult(status -> {
+                drenados.forEach((id, valores) -> repository.acumular(id.getTipo().name(), id.getPeriodo(),
+                    id.getStatus().name(), valores[0], BigDecimal.valueOf(valores[1], 2)));
+                repository.removerHorasAntigas(limiteHoras);
+            });
+        } catch (Exception e) {
+            log.warn("Erro ao gravar estatísticas de compras, tentando novamente no próximo ciclo: {}", e.getMessage());
+            drenados.forEach((id, valores) -> adicionar(id, valores[0], valores[1]));
+            base = new Base(base.gravados, Map.of(), base.gravadoEm);
+            return;
+        }
+        recarregar(drenados);
+    }
+    
+    private void recarregar(Map<EstatisticaCompraId, long[]> drenados) {
+        LocalDateTime agora = LocalDateTime.now();
+        try {
+            Map<EstatisticaCompraId, EstatisticaCompra> gravados = new HashMap<>();
+            for (EstatisticaCompra estatistica : repository.buscarRecentes(
+                    agora.minusDays(diasMaximo).truncatedTo(ChronoUnit.DAYS),
+                    agora.minusHours(horasMaximo).truncatedTo(ChronoUnit.HOURS))) {
+                gravados.put(new EstatisticaCompraId(estatistica.getTipo(), estatistica.getPeriodo(), estatistica.getStatus()),
+                             estatistica);
+            }
+            base = new Base(gravados, Map.of(), agora);
+        } catch (Exception e) {
+            // O delta já está na tabela; soma na cópia antiga para não sumir da leitura
+            log.warn("Erro ao recarregar estatísticas de compras: {}", e.getMessage());
+            Map<EstatisticaCompraId, EstatisticaCompra> gravados = new HashMap<>(base.gravados);
+            drenados.forEach((id, valores) -> gravados.merge(id,
+                new EstatisticaCompra(id.getTipo(), id.getPeriodo(), id.getStatus(), valores[0], BigDecimal.valueOf(valores[1], 2)),
+                (antigo, novo) -> new EstatisticaCompra(antigo.getTipo(), antigo.getPeriodo(), antigo.getStatus(),
+                    antigo.getQuantidade() + novo.getQuantidade(), antigo.getValor().add(novo.getValor()))));
+            base = new Base(gravados, Map.of(), agora);
+        }
+        
+        LocalDateTime limiteDias = agora.minusDays(diasMaximo).truncatedTo(ChronoUnit.DAYS);
+        LocalDateTime limiteHoras = agora.minusHours(horasMaximo).truncatedTo(ChronoUnit.HOURS);
+        deltas.keySet().removeIf(id -> (id.getTipo() == TipoEstatistica.DIA && id.getPeriodo().isBefore(limiteDias))
+            || (id.getTipo() == TipoEstatistica.HORA && id.getPeriodo().isBefore(limiteHoras)));
+    }
+    
+    private Map<EstatisticaCompraId, long[]> drenar() {
+        Map<EstatisticaCompraId, long[]> drenados = new HashMap<>();
+        deltas.forEach((id, delta) -> {
+            // sumThenReset zera célula a célula: incrementos concorrentes entram neste ciclo ou no próximo
+            long quantidade = delta.quantidade.sumThenReset();
+            long centavos = delta.centavos.sumThenReset();
+            if (quantidade != 0 || centavos != 0) {
+                drenados.put(id, new long[] {quantidade, centavos});
+            }
+        });
+        return drenados;
+    }
+    
+    private ValorPeriodo valorAprovado(Base atual, TipoEstatistica tipo, LocalDateTime periodo) {
+        EstatisticaCompraId id = new EstatisticaCompraId(tipo, periodo, StatusCompra.CONFIRMADA);
+        Delta delta = deltas.get(id);
+        return new ValorPeriodo(periodo, atual.quantidade(id, delta), BigDecimal.valueOf(atual.centavos(id, delta), 2));
+    }
+    
+    private void somar(TipoEstatistica tipo, LocalDateTime periodo, StatusCompra status, long quantidade, long centavos) {
+        adicionar(new EstatisticaCompraId(tipo, periodo, status), quantidade, centavos);
+    }
+    
+    private void adicionar(EstatisticaCompraId id, long quantidade, long centavos) {
+        Delta delta = deltas.computeIfAbsent(id, chave -> new Delta());
+        delta.quantidade.add(quantidade);
+        if (centavos != 0) {
+            delta.centavos.add(centavos);
+        }
+    }
+    
+    private static void aposCommit(Runnable acao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    acao.run();
+                }
+            });
+        } else {
+            acao.run();
+        }
+    }
+    
+    private static final class Delta {
+        private final LongAdder quantidade = new LongAdder();
+        private final LongAdder centavos = new LongAdder();
+    }
+    
+    /**
+     * Cópia da tabela mais o delta que está sendo gravado, trocados juntos a cada ciclo.
+     */
+    private record Base(Map<EstatisticaCompraId, EstatisticaCompra> gravados,
+                        Map<EstatisticaCompraId, long[]> emGravacao,
+                        LocalDateTime gravadoEm) {
+        
+        long quantidade(EstatisticaCompraId id, Delta delta) {
+            EstatisticaCompra gravado = gravados.get(id);
+            long[] gravando = emGravacao.get(id);
+            return (gravado != null ? gravado.getQuantidade() : 0)
+                + (gravando != null ? gravando[0] : 0)
+                + (delta != null ? delta.quantidade.sum() : 0);
+        }
+        
+        long centavos(EstatisticaCompraId id, Delta delta) {
+            EstatisticaCompra gravado = gravados.get(id);
+            long[] gravando = emGravacao.get(id);
+            return (gravado != null ? gravado.getValor().movePointRight(2).longValue() : 0)
+                + (gravando != null ? gravando[1] : 0)
+                + (delta != null ? delta.centavos.sum() : 0);
+        }
+    }
+}
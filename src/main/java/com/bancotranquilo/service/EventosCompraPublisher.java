@@ -0,0 +1,58 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.model.dto.CompraResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static com.bancotranquilo.config.RabbitMQConfig.EXCHANGE_EVENTOS;
+
+/**
+ * Anuncia as mudanças de status para todas as instâncias após o commit. É um aviso de melhor
+ * esforço: quem perder o evento reconcilia com o estado atual ao reconectar.
+ */
+@Component
+@Slf4j
+public class EventosCompraPublisher {
+    
+    private final RabbitTemplate rabbitTemplate;
+    
+    @Autowired
+    public EventosCompraPublisher(RabbitTemplate rabbitTemplate) {
+        this.rabbitTemplate = rabbitTemplate;
+    }
+    
+    public void publicar(List<CompraResponse> compras) {
+        if (compras.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enviar(compras);
+                }
+            });
+        } else {
+            enviar(compras);
+        }
+    }
+    
+    private void enviar(List<CompraResponse> compras) {
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (CompraResponse compra : compras) {
+                    operations.convertAndSend(EXCHANGE_EVENTOS, "", compra);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Erro ao publicar {} evento(s) de compra: {}", compras.size(), e.getMessage());
+        }
+    }
+}
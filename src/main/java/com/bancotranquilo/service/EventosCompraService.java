@@ -0,0 +1,155 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.model.dto.CompraResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Conexões SSE de acompanhamento de compras. Cada conexão é uma requisição assíncrona do
+ * servlet (nenhuma thread fica presa enquanto ela está ociosa) que recebe o estado atual ao
+ * conectar e cada mudança de status anunciada em {@link NotificacoesCompra}; é encerrada quando
+ * todas as compras acompanhadas chegam a um status final.
+ * <p>
+ * O id de cada evento é {@code <compraId>-<status>}: ao reconectar com {@code Last-Event-ID}
+ * o estado já recebido não é repetido.
+ */
+@Component
+@Slf4j
+public class EventosCompraService {
+    
+    private static final String EVENTO_COMPRA = "compra";
+    private static final String EVENTO_NAO_ENCONTRADA = "nao-encontrada";
+    
+    private final CompraService compraService;
+    private final NotificacoesCompra notificacoes;
+    private final Set<Conexao> conexoes = ConcurrentHashMap.newKeySet();
+    private final Counter eventosEnviados;
+    
+    @Value("${banco.tranquilo.eventos.timeout:1800000}")
+    private long timeout;
+    
+    @Autowired
+    public EventosCompraService(CompraService compraService,
+                                NotificacoesCompra notificacoes,
+                                MeterRegistry meterRegistry) {
+        this.compraService = compraService;
+        this.notificacoes = notificacoes;
+        this.eventosEnviados = meterRegistry.counter("compras.eventos.enviados");
+        meterRegistry.gauge("compras.eventos.conexoes", conexoes, Set::size);
+    }
+    
+    public SseEmitter abrir(List<Long> ids, String ultimoEventoId) {
+        SseEmitter emitter = new SseEmitter(timeout);
+        Conexao conexao = new Conexao(emitter, ids);
+        conexoes.add(conexao);
+        emitter.onCompletion(conexao::encerrar);
+        emitter.onTimeout(conexao::encerrar);
+        emitter.onError(erro -> conexao.encerrar());
+        
+        // Assina antes de ler o estado atual: uma mudança concorrente chega por um dos dois caminhos
+        ids.forEach(id -> notificacoes.assinar(id, conexao));
+        for (Long id : ids) {
+            try {
+                CompraResponse atual = compraService.buscarCompraPorId(id);
+                if (idEvento(atual).equals(ultimoEventoId)) {
+                    conexao.marcarRecebida(atual);
+                } else {
+                    conexao.accept(atual);
+                }
+            } catch (RuntimeException e) {
+                conexao.naoEncontrada(id);
+            }
+        }
+        return emitter;
+    }
+    
+    @Scheduled(fixedRateString = "${banco.tranquilo.eventos.heartbeat:15000}")
+    public void enviarHeartbeat() {
+        // Mantém as conexões vivas em proxies e detecta clientes que já desconectaram
+        conexoes.forEach(Conexao::heartbeat);
+    }
+    
+    private static String idEvento(CompraResponse compra) {
+        return compra.getId() + "-" + compra.getStatus();
+    }
+    
+    private class Conexao implements Consumer<CompraResponse> {
+        
+        private final SseEmitter emitter;
+        private final List<Long> ids;
+        private final Set<Long> emAndamento = ConcurrentHashMap.newKeySet();
+        
+        Conexao(SseEmitter emitter, List<Long> ids) {
+            this.emitter = emitter;
+            this.ids = ids;
+            this.emAndamento.addAll(ids);
+        }
+        
+        @Override
+        public synchronized void accept(CompraResponse compra) {
+            if (!emAndamento.contains(compra.getId())) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event()
+                    .id(idEvento(compra))
+                    .name(EVENTO_COMPRA)
+                    .data(compra, MediaType.APPLICATION_JSON));
+                eventosEnviados.increment();
+            } catch (Exception e) {
+                log.debug("Conexão de eventos encerrada pelo cliente: {}", e.getMessage());
+                emitter.completeWithError(e);
+                return;
+            }
+            marcarRecebida(compra);
+        }
+        
+        synchronized void marcarRecebida(CompraResponse compra) {
+            if (compra.getStatus().isFinalizada()) {
+                concluir(compra.getId());
+            }
+        }
+        
+        synchronized void naoEncontrada(Long id) {
+            try {
+                emitter.send(SseEmitter.event().name(EVENTO_NAO_ENCONTRADA).data(id));
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+                return;
+            }
+            concluir(id);
+        }
+        
+        synchronized void heartbeat() {
+            try {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+        }
+        
+        void encerrar() {
+            conexoes.remove(this);
+            ids.forEach(id -> notificacoes.cancelar(id, this));
+        }
+        
+        private void concluir(Long id) {
+            notificacoes.cancelar(id, this);
+            if (emAndamento.remove(id) && emAndamento.isEmpty()) {
+                emitter.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.bancotranquilo.service;
+
+import lombok.Getter;
+
+/**
+ * Lote JSON com mais itens que {@code banco.tranquilo.lote.itens-maximos}. Nenhuma compra do
+ * lote é gravada; lotes maiores devem ser enviados em NDJSON, lido de forma incremental.
+ */
+@Getter
+public class LoteExcedidoException extends RuntimeException {
+    
+    private final int itensMaximos;
+    
+    public LoteExcedidoException(int itensMaximos) {
+        super("Lote JSON com mais de " + itensMaximos + " itens");
+        this.itensMaximos = itensMaximos;
+    }
+}
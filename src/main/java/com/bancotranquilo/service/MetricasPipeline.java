@@ -0,0 +1,113 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.repository.CompraRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Métricas que atravessam os estágios do pipeline: espera em fila, compras por status,
+ * latência da criação até o status final e idade da compra pendente mais antiga.
+ */
+@Component
+@Slf4j
+public class MetricasPipeline {
+    
+    private static final double PESO_LATENCIA_RECENTE = 0.05;
+    
+    private final MeterRegistry meterRegistry;
+    private final CompraRepository compraRepository;
+    private final Map<StatusCompra, Counter> comprasPorStatus = new EnumMap<>(StatusCompra.class);
+    private final Map<StatusCompra, Timer> latenciaConclusao = new EnumMap<>(StatusCompra.class);
+    private final AtomicLong idadePendenteMaisAntiga = new AtomicLong();
+    
+    // Média móvel exponencial da criação até o status final, lida pelo controle de admissão
+    private final AtomicLong latenciaRecente = new AtomicLong(Double.doubleToLongBits(0));
+    private volatile long ultimaConclusao;
+    
+    @Autowired
+    public MetricasPipeline(MeterRegistry meterRegistry, CompraRepository compraRepository) {
+        this.meterRegistry = meterRegistry;
+        this.compraRepository = compraRepository;
+        for (StatusCompra status : StatusCompra.values()) {
+            comprasPorStatus.put(status, Counter.builder("compras.status")
+                .description("Compras que entraram em cada status")
+                .tag("status", status.name())
+                .register(meterRegistry));
+            latenciaConclusao.put(status, Timer.builder("compras.conclusao")
+                .description("Tempo entre a criação da compra e o status final")
+                .tag("status", status.name())
+                .register(meterRegistry));
+        }
+        meterRegistry.gauge("compras.pendente.idade_maxima", idadePendenteMaisAntiga, valor -> valor.get() / 1000.0);
+    }
+    
+    /**
+     * Tempo entre a publicação (timestamp da mensagem) e a entrega ao listener.
+     */
+    public void registrarEsperaFila(String fila, Message mensagem) {
+        Date publicacao = mensagem.getMessageProperties().getTimestamp();
+        if (publicacao != null) {
+            meterRegistry.timer("transacoes.fila.espera", "fila", fila)
+                .record(Math.max(0, System.currentTimeMillis() - publicacao.getTime()), TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    public void registrarEsperaFila(String fila, List<Message> mensagens) {
+        for (Message mensagem : mensagens) {
+            registrarEsperaFila(fila, mensagem);
+        }
+    }
+    
+    public void contarStatus(StatusCompra status, int quantidade) {
+        comprasPorStatus.get(status).increment(quantidade);
+    }
+    
+    public void registrarConclusao(StatusCompra status, LocalDateTime dataCriacao, LocalDateTime dataConclusao) {
+        Duration latencia = Duration.between(dataCriacao, dataConclusao);
+        latenciaConclusao.get(status).record(latencia);
+        
+        latenciaRecente.getAndUpdate(bits -> {
+            double media = Double.longBitsToDouble(bits);
+            return Double.doubleToLongBits(media + PESO_LATENCIA_RECENTE * (latencia.toMillis() - media));
+        });
+        ultimaConclusao = System.nanoTime();
+    }
+    
+    /**
+     * Latência recente da criação até o status final, ou 0 se nenhuma compra foi concluída
+     * na janela (sem conclusões, a média antiga não diz nada sobre a fila atual).
+     */
+    public long getLatenciaRecenteMillis(long janelaMillis) {
+        if (System.nanoTime() - ultimaConclusao > TimeUnit.MILLISECONDS.toNanos(janelaMillis)) {
+            return 0;
+        }
+        return (long) Double.longBitsToDouble(latenciaRecente.get());
+    }
+    
+    // Consulta periódica em vez de a cada scrape; usa idx_status_data_criacao
+    @Scheduled(fixedDelayString = "${banco.tranquilo.metricas.intervalo-pendentes:15000}")
+    public void atualizarPendenteMaisAntiga() {
+        try {
+            LocalDateTime maisAntiga = compraRepository.buscarMaisAntigaPendente();
+            idadePendenteMaisAntiga.set(maisAntiga == null ? 0 : Duration.between(maisAntiga, LocalDateTime.now()).toMillis());
+        } catch (Exception e) {
+            log.warn("Não foi possível calcular a idade da compra pendente mais antiga: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.model.dto.CompraResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Registro em memória de quem está aguardando mudanças de status de cada compra nesta
+ * instância. As mudanças chegam pelo fanout compras.eventos, qualquer que seja a instância
+ * que processou a resposta.
+ */
+@Component
+@Slf4j
+public class NotificacoesCompra {
+    
+    private final Map<Long, Set<Consumer<CompraResponse>>> ouvintes = new ConcurrentHashMap<>();
+    
+    public void assinar(Long compraId, Consumer<CompraResponse> ouvinte) {
+        // compute mantém a inclusão atômica em relação à remoção do conjunto vazio em cancelar
+        ouvintes.compute(compraId, (id, conjunto) -> {
+            Set<Consumer<CompraResponse>> atual = conjunto != null ? conjunto : ConcurrentHashMap.newKeySet();
+            atual.add(ouvinte);
+            return atual;
+        });
+    }
+    
+    public void cancelar(Long compraId, Consumer<CompraResponse> ouvinte) {
+        ouvintes.computeIfPresent(compraId, (id, conjunto) -> {
+            conjunto.remove(ouvinte);
+            return conjunto.isEmpty() ? null : conjunto;
+        });
+    }
+    
+    public void notificar(CompraResponse compra) {
+        Set<Consumer<CompraResponse>> conjunto = ouvintes.get(compra.getId());
+        if (conjunto == null) {
+            return;
+        }
+        for (Consumer<CompraResponse> ouvinte : conjunto) {
+            try {
+                ouvinte.accept(compra);
+            } catch (Exception e) {
+                log.warn("Erro ao notificar mudança da compra ID {}: {}", compra.getId(), e.getMessage());
+            }
+        }
+    }
+    
+    public int getComprasAssinadas() {
+        return ouvintes.size();
+    }
+}
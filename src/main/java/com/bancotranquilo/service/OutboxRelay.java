@@ -0,0 +1,209 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.auditoria.EtapaAuditoria;
+import com.bancotranquilo.auditoria.JornalAuditoria;
+import com.bancotranquilo.mensagem.RoteamentoRequisicoes;
+import com.bancotranquilo.model.Compra;
+import com.bancotranquilo.model.OutboxTransacao;
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.model.dto.TransacaoRequest;
+import com.bancotranquilo.repository.CompraRepository;
+import com.bancotranquilo.repository.OutboxTransacaoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.bancotranquilo.config.RabbitMQConfig.*;
+
+/**
+ * Publica no RabbitMQ as requisições gravadas no outbox pelo {@link CompraService}.
+ * Cada lote é publicado com publisher confirms e só é marcado como enviado depois
+ * que o broker confirma todas as mensagens; em caso de falha o lote é republicado
+ * no próximo ciclo (entrega pelo menos uma vez).
+ * <p>
+ * As linhas enviadas são removidas depois de {@code banco.tranquilo.outbox.retencao} ms. A
+ * varredura consulta o outbox para não reenviar compras publicadas há pouco, por isso a
+ * retenção precisa ser maior que {@code banco.tranquilo.varredura.horizonte-copias}.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+    
+    private final OutboxTransacaoRepository outboxRepository;
+    private final CompraRepository compraRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RoteamentoRequisicoes roteamento;
+    private final JornalAuditoria jornal;
+    
+    private final DistributionSummary tamanhoLote;
+    private final Counter publicadas;
+    private final Counter falhas;
+    private final Counter removidas;
+    private final Timer publicacao;
+    private final AtomicLong atrasoMillis = new AtomicLong();
+    
+    @Value("${banco.tranquilo.outbox.tamanho-lote:200}")
+    private int tamanhoMaximoLote;
+    
+    @Value("${banco.tranquilo.outbox.timeout-confirmacao:5000}")
+    private long timeoutConfirmacao;
+    
+    @Value("${banco.tranquilo.outbox.limpeza.tamanho-lote:1000}")
+    private int tamanhoLoteLimpeza;
+    
+    private final long retencao;
+    
+    @Autowired
+    public OutboxRelay(OutboxTransacaoRepository outboxRepository,
+                       CompraRepository compraRepository,
+                       RabbitTemplate rabbitTemplate,
+                       TransactionTemplate transactionTemplate,
+                       RoteamentoRequisicoes roteamento,
+                       JornalAuditoria jornal,
+                       MeterRegistry meterRegistry,
+                       @Value("${banco.tranquilo.outbox.retencao:86400000}") long retencao,
+                       @Value("${banco.tranquilo.varredura.horizonte-copias:900000}") long horizonteCopias) {
+        if (retencao <= horizonteCopias) {
+            throw new IllegalStateException("banco.tranquilo.outbox.retencao (" + retencao +
+                " ms) precisa ser maior que banco.tranquilo.varredura.horizonte-copias (" + horizonteCopias + " ms)");
+        }
+        this.outboxRepository = outboxRepository;
+        this.compraRepository = compraRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.roteamento = roteamento;
+        this.jornal = jornal;
+        this.tamanhoLote = DistributionSummary.builder("outbox.relay.lote")
+            .description("Mensagens publicadas por lote do outbox")
+            .register(meterRegistry);
+        this.publicadas = meterRegistry.counter("outbox.relay.publicadas");
+        this.falhas = meterRegistry.counter("outbox.relay.falhas");
+        this.removidas = meterRegistry.counter("outbox.limpeza.removidas");
+        this.retencao = retencao;
+        this.publicacao = meterRegistry.timer("transacoes.publicacao", "fila", QUEUE_REQUISICOES);
+        meterRegistry.gauge("outbox.relay.atraso", atrasoMillis, valor -> valor.get() / 1000.0);
+    }
+    
+    @Scheduled(fixedDelayString = "${banco.tranquilo.outbox.intervalo:100}")
+    public void drenar() {
+        try {
+            int publicados;
+            do {
+                publicados = transactionTemplate.execute(status -> publicarLote());
+            } while (publicados == tamanhoMaximoLote);
+        } catch (Exception e) {
+            falhas.increment();
+            log.error("Erro ao publicar lote do outbox: {}", e.getMessage(), e);
+            atualizarAtraso();
+        }
+    }
+    
+    private int publicarLote() {
+        List<OutboxTransacao> pendentes = outboxRepository.travarPendentes(tamanhoMaximoLote);
+        if (pendentes.isEmpty()) {
+            atrasoMillis.set(0);
+            return 0;
+        }
+        atrasoMillis.set(Duration.between(pendentes.get(0).getDataCriacao(), LocalDateTime.now()).toMillis());
+        
+        Map<Long, Compra> compras = compraRepository.findAllById(
+                pendentes.stream().map(OutboxTransacao::getCompraId).collect(Collectors.toSet()))
+            .stream()
+            .collect(Collectors.toMap(Compra::getId, Function.identity()));
+        
+        Timer.Sample amostra = Timer.start();
+        rabbitTemplate.invoke(operations -> {
+            for (OutboxTransacao pendente : pendentes) {
+                Compra compra = compras.get(pendente.getCompraId());
+                if (compra == null) {
+                    log.warn("Compra {} do outbox não encontrada, descartando", pendente.getCompraId());
+                    continue;
+                }
+                TransacaoRequest request = criarTransacaoRequest(compra);
+                operations.convertAndSend(EXCHANGE_REQUISICOES, ROUTING_KEY_REQUISICOES, request, roteamento.marcar(request));
+            }
+            // Um único round trip de confirmação para o lote inteiro
+            operations.waitForConfirmsOrDie(timeoutConfirmacao);
+            return null;
+        });
+        amostra.stop(publicacao);
+        
+        LocalDateTime agora = LocalDateTime.now();
+        outboxRepository.marcarEnviadas(
+            pendentes.stream().map(OutboxTransacao::getId).collect(Collectors.toList()),
+            agora);
+        for (OutboxTransacao pendente : pendentes) {
+            if (compras.containsKey(pendente.getCompraId())) {
+                // Latência: tempo que a requisição esperou no outbox até a confirmação do broker
+                jornal.registrar(pendente.getCompraId(), EtapaAuditoria.PUBLICADA, StatusCompra.PENDENTE,
+                    ChronoUnit.NANOS.between(pendente.getDataCriacao(), agora), null);
+            }
+        }
+        
+        tamanhoLote.record(pendentes.size());
+        publicadas.increment(pendentes.size());
+        log.debug("Lote de {} requisições publicado a partir do outbox", pendentes.size());
+        return pendentes.size();
+    }
+    
+    @Scheduled(fixedDelayString = "${banco.tranquilo.outbox.limpeza.intervalo:600000}",
+               initialDelayString = "${banco.tranquilo.outbox.limpeza.intervalo:600000}")
+    public void limpar() {
+        LocalDateTime enviadaAntesDe = LocalDateTime.now().minus(Duration.ofMillis(retencao));
+        try {
+            int total = 0;
+            int removidasLote;
+            do {
+                removidasLote = transactionTemplate.execute(status ->
+                    outboxRepository.removerEnviadas(enviadaAntesDe, tamanhoLoteLimpeza));
+                total += removidasLote;
+            } while (removidasLote == tamanhoLoteLimpeza);
+            
+            removidas.increment(total);
+            if (total > 0) {
+                log.info("{} registro(s) enviado(s) removido(s) do outbox", total);
+            }
+        } catch (Exception e) {
+            log.error("Erro ao limpar o outbox: {}", e.getMessage(), e);
+        }
+    }
+    
+    private void atualizarAtraso() {
+        try {
+            LocalDateTime maisAntiga = outboxRepository.buscarMaisAntigaPendente();
+            atrasoMillis.set(maisAntiga == null ? 0 : Duration.between(maisAntiga, LocalDateTime.now()).toMillis());
+        } catch (Exception e) {
+            log.warn("Não foi possível calcular o atraso do outbox: {}", e.getMessage());
+        }
+    }
+    
+    private TransacaoRequest criarTransacaoRequest(Compra compra) {
+        return new TransacaoRequest(
+            compra.getId(),
+            compra.getNumeroCartao(),
+            compra.getCvv(),
+            compra.getDataValidade(),
+            compra.getValor(),
+            compra.getEmailCliente(),
+            compra.getNomeCliente()
+        );
+    }
+}
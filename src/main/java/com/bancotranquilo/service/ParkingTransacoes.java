@@ -0,0 +1,95 @@
+package com.bancotranquilo.service;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.GetResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.bancotranquilo.config.RabbitMQConfig.FILAS_COM_PARKING;
+import static com.bancotranquilo.config.RabbitMQConfig.exchangeRetorno;
+import static com.bancotranquilo.config.RabbitMQConfig.filaParking;
+import static com.bancotranquilo.service.RetentativaTransacaoPublisher.HEADER_MOTIVO;
+import static com.bancotranquilo.service.RetentativaTransacaoPublisher.HEADER_TENTATIVAS;
+
+/**
+ * Consulta e reprocessa as filas de parking. O reprocessamento devolve as mensagens para a
+ * fila de origem com o contador de tentativas zerado.
+ */
+@Component
+@Slf4j
+public class ParkingTransacoes {
+    
+    private final RabbitTemplate rabbitTemplate;
+    private final AmqpAdmin amqpAdmin;
+    
+    @Value("${banco.tranquilo.outbox.timeout-confirmacao:5000}")
+    private long timeoutConfirmacao;
+    
+    @Autowired
+    public ParkingTransacoes(RabbitTemplate rabbitTemplate, AmqpAdmin amqpAdmin) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.amqpAdmin = amqpAdmin;
+    }
+    
+    public Map<String, Integer> contarMensagens() {
+        Map<String, Integer> contagem = new LinkedHashMap<>();
+        for (String filaOrigem : FILAS_COM_PARKING.keySet()) {
+            QueueInformation informacao = amqpAdmin.getQueueInfo(filaParking(filaOrigem));
+            contagem.put(filaOrigem, informacao != null ? informacao.getMessageCount() : 0);
+        }
+        return contagem;
+    }
+    
+    /**
+     * Move até {@code limite} mensagens do parking de {@code filaOrigem} de volta para ela.
+     * Cada mensagem só é removida do parking depois que o broker confirma a republicação.
+     */
+    public int reprocessar(String filaOrigem, int limite) {
+        String routingKey = FILAS_COM_PARKING.get(filaOrigem);
+        if (routingKey == null) {
+            throw new IllegalArgumentException("Fila sem parking: " + filaOrigem);
+        }
+        
+        Integer movidas = rabbitTemplate.execute(channel -> {
+            channel.confirmSelect();
+            int total = 0;
+            while (total < limite) {
+                GetResponse resposta = channel.basicGet(filaParking(filaOrigem), false);
+                if (resposta == null) {
+                    break;
+                }
+                
+                Map<String, Object> headers = new HashMap<>();
+                if (resposta.getProps().getHeaders() != null) {
+                    headers.putAll(resposta.getProps().getHeaders());
+                }
+                headers.remove(HEADER_TENTATIVAS);
+                headers.remove(HEADER_MOTIVO);
+                headers.remove("x-death");
+                AMQP.BasicProperties propriedades = resposta.getProps().builder()
+                        .headers(headers)
+                        .timestamp(new Date())
+                        .build();
+                
+                channel.basicPublish(exchangeRetorno(filaOrigem), routingKey, propriedades, resposta.getBody());
+                channel.waitForConfirmsOrDie(timeoutConfirmacao);
+                channel.basicAck(resposta.getEnvelope().getDeliveryTag(), false);
+                total++;
+            }
+            return total;
+        });
+        
+        log.info("{} mensagem(ns) do parking devolvida(s) para {}", movidas, filaOrigem);
+        return movidas != null ? movidas : 0;
+    }
+}
@@ -0,0 +1,104 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.model.dto.TransacaoResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.bancotranquilo.config.RabbitMQConfig.EXCHANGE_TRANSACOES;
+import static com.bancotranquilo.config.RabbitMQConfig.QUEUE_RESPOSTAS;
+import static com.bancotranquilo.config.RabbitMQConfig.ROUTING_KEY_RESPOSTAS;
+
+/**
+ * Publica as respostas do banco em transacoes.respostas. A mensagem de requisição só é
+ * confirmada depois que o broker confirma a resposta, para que nenhuma resposta se perca
+ * entre os dois estágios.
+ * <p>
+ * Depois que o banco respondeu, a requisição nunca deve voltar para a fila: uma nova chamada
+ * cobraria o cliente outra vez. {@link #entregar} tenta outros caminhos para a resposta.
+ */
+@Component
+@Slf4j
+public class RespostaTransacaoPublisher {
+    
+    private final RabbitTemplate rabbitTemplate;
+    private final RetentativaTransacaoPublisher retentativaPublisher;
+    private final CompraService compraService;
+    private final Timer publicacao;
+    private final Counter naoEntregues;
+    
+    @Value("${banco.tranquilo.outbox.timeout-confirmacao:5000}")
+    private long timeoutConfirmacao;
+    
+    @Autowired
+    public RespostaTransacaoPublisher(RabbitTemplate rabbitTemplate,
+                                      RetentativaTransacaoPublisher retentativaPublisher,
+                                      CompraService compraService,
+                                      MeterRegistry meterRegistry) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.retentativaPublisher = retentativaPublisher;
+        this.compraService = compraService;
+        this.publicacao = meterRegistry.timer("transacoes.publicacao", "fila", QUEUE_RESPOSTAS);
+        this.naoEntregues = meterRegistry.counter("transacoes.respostas.nao_entregues");
+    }
+    
+    public void publicar(List<TransacaoResponse> respostas) {
+        Timer.Sample amostra = Timer.start();
+        rabbitTemplate.invoke(operations -> {
+            for (TransacaoResponse resposta : respostas) {
+                operations.convertAndSend(EXCHANGE_TRANSACOES, ROUTING_KEY_RESPOSTAS, resposta);
+            }
+            operations.waitForConfirmsOrDie(timeoutConfirmacao);
+            return null;
+        });
+        amostra.stop(publicacao);
+        log.debug("{} resposta(s) de transação publicada(s)", respostas.size());
+    }
+    
+    /**
+     * Publica as respostas sem nunca lançar exceção. Se a publicação falhar, as respostas vão
+     * para a fila de retry de transacoes.respostas; se o broker também recusar, são aplicadas
+     * direto no MySQL. Em último caso ficam só no log e a compra continua PROCESSANDO até a
+     * varredura.
+     */
+    public void entregar(List<TransacaoResponse> respostas) {
+        try {
+            publicar(respostas);
+            return;
+        } catch (Exception e) {
+            log.error("Erro ao publicar {} resposta(s) de transação, agendando nova publicação: {}",
+                     respostas.size(), e.getMessage());
+            try {
+                List<Message> mensagens = new ArrayList<>(respostas.size());
+                for (TransacaoResponse resposta : respostas) {
+                    mensagens.add(rabbitTemplate.getMessageConverter().toMessage(resposta, new MessageProperties()));
+                }
+                retentativaPublisher.agendar(mensagens, QUEUE_RESPOSTAS, e);
+                return;
+            } catch (Exception erroAgendamento) {
+                log.error("Erro ao agendar nova publicação, aplicando as respostas diretamente: {}",
+                         erroAgendamento.getMessage());
+            }
+        }
+        
+        try {
+            compraService.processarRespostasTransacao(respostas);
+        } catch (Exception e) {
+            naoEntregues.increment(respostas.size());
+            for (TransacaoResponse resposta : respostas) {
+                log.error("Resposta do banco não entregue para a compra ID {} (sucesso: {}, transação: {}, mensagem: {})",
+                         resposta.getCompraId(), resposta.isSucesso(), resposta.getCodigoTransacao(), resposta.getMensagem());
+            }
+        }
+    }
+}
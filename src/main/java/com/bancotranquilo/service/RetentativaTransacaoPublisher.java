@@ -0,0 +1,105 @@
+package com.bancotranquilo.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+
+import static com.bancotranquilo.config.RabbitMQConfig.filaParking;
+import static com.bancotranquilo.config.RabbitMQConfig.filaRetry;
+
+/**
+ * Agenda uma nova tentativa de uma mensagem que falhou publicando-a na fila de espera do
+ * atraso correspondente (o broker a devolve para a origem quando o TTL expira). Depois de
+ * {@code banco.tranquilo.retry.tentativas-maximas} tentativas a mensagem vai para o parking.
+ */
+@Component
+@Slf4j
+public class RetentativaTransacaoPublisher {
+    
+    public static final String HEADER_TENTATIVAS = "x-tentativas";
+    public static final String HEADER_MOTIVO = "x-motivo";
+    
+    private static final int TAMANHO_MAXIMO_MOTIVO = 500;
+    
+    private final RabbitTemplate rabbitTemplate;
+    private final MeterRegistry meterRegistry;
+    private final long[] atrasos;
+    private final int tentativasMaximas;
+    
+    @Value("${banco.tranquilo.outbox.timeout-confirmacao:5000}")
+    private long timeoutConfirmacao;
+    
+    @Autowired
+    public RetentativaTransacaoPublisher(RabbitTemplate rabbitTemplate,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${banco.tranquilo.retry.atrasos:1000,5000,30000,120000}") long[] atrasos,
+                                         @Value("${banco.tranquilo.retry.tentativas-maximas:5}") int tentativasMaximas) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.meterRegistry = meterRegistry;
+        this.atrasos = atrasos;
+        this.tentativasMaximas = tentativasMaximas;
+    }
+    
+    public void agendar(Message mensagem, String filaOrigem, Throwable causa) {
+        agendar(List.of(mensagem), filaOrigem, causa);
+    }
+    
+    /**
+     * Publica as mensagens com publisher confirms; só depois disso a mensagem original pode
+     * ser confirmada. Uma exceção aqui significa que nada foi garantido e a original deve
+     * voltar para a fila.
+     */
+    public void agendar(List<Message> mensagens, String filaOrigem, Throwable causa) {
+        String motivo = resumir(causa);
+        rabbitTemplate.invoke(operations -> {
+            for (Message mensagem : mensagens) {
+                int tentativas = tentativas(mensagem) + 1;
+                String destino = tentativas > tentativasMaximas
+                        ? filaParking(filaOrigem)
+                        : filaRetry(filaOrigem, atrasos[Math.min(tentativas, atrasos.length) - 1]);
+                
+                Message copia = MessageBuilder.fromClonedMessage(mensagem)
+                        .setHeader(HEADER_TENTATIVAS, tentativas)
+                        .setHeader(HEADER_MOTIVO, motivo)
+                        .setDeliveryMode(MessageDeliveryMode.PERSISTENT)
+                        .setTimestamp(new Date())
+                        .build();
+                operations.send("", destino, copia);
+            }
+            operations.waitForConfirmsOrDie(timeoutConfirmacao);
+            return null;
+        });
+        
+        for (Message mensagem : mensagens) {
+            // O header da original ainda tem o valor anterior
+            int tentativas = tentativas(mensagem) + 1;
+            if (tentativas > tentativasMaximas) {
+                meterRegistry.counter("transacoes.retry.estacionadas", "fila", filaOrigem).increment();
+                log.error("Mensagem de {} enviada para o parking após {} tentativas: {}",
+                         filaOrigem, tentativasMaximas, motivo);
+            } else {
+                meterRegistry.counter("transacoes.retry.agendadas", "fila", filaOrigem,
+                        "tentativa", String.valueOf(tentativas)).increment();
+            }
+        }
+    }
+    
+    public static int tentativas(Message mensagem) {
+        Object valor = mensagem.getMessageProperties().getHeaders().get(HEADER_TENTATIVAS);
+        return valor instanceof Number ? ((Number) valor).intValue() : 0;
+    }
+    
+    private String resumir(Throwable causa) {
+        String motivo = causa.getClass().getSimpleName() + ": " + causa.getMessage();
+        return motivo.length() > TAMANHO_MAXIMO_MOTIVO ? motivo.substring(0, TAMANHO_MAXIMO_MOTIVO) : motivo;
+    }
+}
@@ -0,0 +1,44 @@
+package com.bancotranquilo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Template com marcadores posicionais ({0}, {1}, ...) analisado uma única vez.
+ * A aplicação apenas concatena os trechos fixos e os valores, sem reinterpretar o formato.
+ */
+public final class TemplateEmail {
+    
+    private final String[] trechos;
+    private final int[] indices;
+    private final int tamanhoFixo;
+    
+    public TemplateEmail(String template) {
+        List<String> trechosLidos = new ArrayList<>();
+        List<Integer> indicesLidos = new ArrayList<>();
+        int inicio = 0;
+        int abertura;
+        while ((abertura = template.indexOf('{', inicio)) >= 0) {
+            int fechamento = template.indexOf('}', abertura);
+            if (fechamento < 0) {
+                break;
+            }
+            trechosLidos.add(template.substring(inicio, abertura));
+            indicesLidos.add(Integer.parseInt(template.substring(abertura + 1, fechamento)));
+            inicio = fechamento + 1;
+        }
+        trechosLidos.add(template.substring(inicio));
+        
+        this.trechos = trechosLidos.toArray(new String[0]);
+        this.indices = indicesLidos.stream().mapToInt(Integer::intValue).toArray();
+        this.tamanhoFixo = trechosLidos.stream().mapToInt(String::length).sum();
+    }
+    
+    public String aplicar(String... valores) {
+        StringBuilder texto = new StringBuilder(tamanhoFixo + 64);
+        for (int i = 0; i < indices.length; i++) {
+            texto.append(trechos[i]).append(valores[indices[i]]);
+        }
+        return texto.append(trechos[trechos.length - 1]).toString();
+    }
+}
@@ -0,0 +1,190 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.auditoria.EtapaAuditoria;
+import com.bancotranquilo.auditoria.JornalAuditoria;
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.model.dto.CompraResponse;
+import com.bancotranquilo.model.dto.CompraVarredura;
+import com.bancotranquilo.repository.CompraRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recupera compras que ficaram em andamento por mais tempo que o esperado (mensagem perdida,
+ * queda entre o commit e a publicação). As compras antigas são percorridas em lotes por
+ * (data_criacao, id) e reenviadas através do outbox; depois de várias varreduras sem resposta
+ * a compra é marcada como ERRO.
+ * <p>
+ * Uma compra só é reenviada quando nenhuma cópia da requisição pode estar nas filas: sem linha
+ * no outbox publicada dentro de {@code horizonte-copias} e sem entrega ao consumidor nesse
+ * intervalo (cada entrega adia {@code varredura_ate}).
+ */
+@Component
+@Slf4j
+public class VarreduraCompras {
+    
+    private static final List<StatusCompra> STATUS_EM_ANDAMENTO = List.of(StatusCompra.PENDENTE, StatusCompra.PROCESSANDO);
+    
+    private final CompraRepository compraRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CompraCache compraCache;
+    private final MetricasPipeline metricas;
+    private final EstatisticasCompras estatisticas;
+    private final EventosCompraPublisher eventosPublisher;
+    private final JornalAuditoria jornal;
+    
+    private final Counter lidas;
+    private final Counter reenviadas;
+    private final Counter expiradas;
+    private final Timer duracao;
+    
+    @Value("${banco.tranquilo.varredura.habilitada:true}")
+    private boolean habilitada;
+    
+    @Value("${banco.tranquilo.varredura.idade-minima:600000}")
+    private long idadeMinima;
+    
+    @Value("${banco.tranquilo.varredura.intervalo-reenvio:1800000}")
+    private long intervaloReenvio;
+    
+    @Value("${banco.tranquilo.varredura.reenvios-maximos:3}")
+    private int reenviosMaximos;
+    
+    @Value("${banco.tranquilo.varredura.horizonte-copias:900000}")
+    private long horizonteCopias;
+    
+    @Value("${banco.tranquilo.varredura.tamanho-lote:200}")
+    private int tamanhoLote;
+    
+    @Value("${banco.tranquilo.varredura.pausa-entre-lotes:200}")
+    private long pausaEntreLotes;
+    
+    @Autowired
+    public VarreduraCompras(CompraRepository compraRepository,
+                            TransactionTemplate transactionTemplate,
+                            CompraCache compraCache,
+                            MetricasPipeline metricas,
+                            EstatisticasCompras estatisticas,
+                            EventosCompraPublisher eventosPublisher,
+                            JornalAuditoria jornal,
+                            MeterRegistry meterRegistry) {
+        this.compraRepository = compraRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.compraCache = compraCache;
+        this.metricas = metricas;
+        this.estatisticas = estatisticas;
+        this.eventosPublisher = eventosPublisher;
+        this.jornal = jornal;
+        this.lidas = meterRegistry.counter("compras.varredura.lidas");
+        this.reenviadas = meterRegistry.counter("compras.varredura.reenviadas");
+        this.expiradas = meterRegistry.counter("compras.varredura.expiradas");
+        this.duracao = meterRegistry.timer("compras.varredura.duracao");
+    }
+    
+    @Scheduled(fixedDelayString = "${banco.tranquilo.varredura.intervalo:60000}",
+               initialDelayString = "${banco.tranquilo.varredura.intervalo:60000}")
+    public void varrer() {
+        if (!habilitada) {
+            return;
+        }
+        Timer.Sample amostra = Timer.start();
+        try {
+            for (StatusCompra status : STATUS_EM_ANDAMENTO) {
+                varrer(status);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Erro na varredura de compras em andamento: {}", e.getMessage(), e);
+        } finally {
+            amostra.stop(duracao);
+        }
+    }
+    
+    private void varrer(StatusCompra status) throws InterruptedException {
+        LocalDateTime agora = LocalDateTime.now();
+        LocalDateTime criadaAntesDe = agora.minus(Duration.ofMillis(idadeMinima));
+        LocalDateTime varreduraAte = agora.plus(Duration.ofMillis(intervaloReenvio));
+        LocalDateTime publicadaAntesDe = agora.minus(Duration.ofMillis(horizonteCopias));
+        
+        CompraVarredura cursor = null;
+        int totalReenviadas = 0;
+        int totalExpiradas = 0;
+        while (true) {
+            CompraVarredura cursorAtual = cursor;
+            List<CompraVarredura> lote = transactionTemplate.execute(tx -> {
+                List<CompraVarredura> travadas = compraRepository.travarParaVarredura(status, criadaAntesDe, agora, publicadaAntesDe,
+                    cursorAtual != null ? cursorAtual.getDataCriacao() : null,
+                    cursorAtual != null ? cursorAtual.getId() : null,
+                    tamanhoLote);
+                processarLote(status, travadas, varreduraAte);
+                return travadas;
+            });
+            
+            lidas.increment(lote.size());
+            for (CompraVarredura compra : lote) {
+                if (compra.getVarreduras() >= reenviosMaximos) {
+                    totalExpiradas++;
+                    jornal.registrar(compra.getId(), EtapaAuditoria.FINALIZADA, StatusCompra.ERRO,
+                        ChronoUnit.NANOS.between(compra.getDataCriacao(), agora), null);
+                } else {
+                    totalReenviadas++;
+                    jornal.registrar(compra.getId(), EtapaAuditoria.REENVIADA, status);
+                }
+            }
+            if (lote.size() < tamanhoLote) {
+                break;
+            }
+            cursor = lote.get(lote.size() - 1);
+            // Limita a carga de leitura no banco entre os lotes
+            Thread.sleep(pausaEntreLotes);
+        }
+        
+        if (totalReenviadas > 0 || totalExpiradas > 0) {
+            log.warn("Varredura de compras {}: {} reenviada(s), {} marcada(s) como ERRO",
+                     status, totalReenviadas, totalExpiradas);
+        }
+    }
+    
+    private void processarLote(StatusCompra status, List<CompraVarredura> travadas, LocalDateTime varreduraAte) {
+        List<Long> reenviar = new ArrayList<>();
+        List<Long> expirar = new ArrayList<>();
+        List<CompraResponse> eventos = new ArrayList<>();
+        String mensagemErro = "Sem resposta do banco após " + reenviosMaximos + " reenvio(s)";
+        for (CompraVarredura compra : travadas) {
+            if (compra.getVarreduras() >= reenviosMaximos) {
+                expirar.add(compra.getId());
+                eventos.add(CompraMapper.paraResponse(compra.getId(), StatusCompra.ERRO, mensagemErro, compra.getDataCriacao()));
+            } else {
+                reenviar.add(compra.getId());
+            }
+        }
+        
+        if (!reenviar.isEmpty()) {
+            compraRepository.reenfileirar(reenviar, varreduraAte);
+            reenviadas.increment(reenviar.size());
+        }
+        if (!expirar.isEmpty()) {
+            // As linhas estão travadas por esta transação, então todas são atualizadas
+            int marcadas = compraRepository.marcarErro(expirar, status, mensagemErro);
+            expirar.forEach(compraCache::invalidar);
+            expiradas.increment(marcadas);
+            metricas.contarStatus(StatusCompra.ERRO, marcadas);
+            estatisticas.registrarTransicao(status, StatusCompra.ERRO, marcadas);
+            eventosPublisher.publicar(eventos);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.bancotranquilo.auditoria;
+
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.model.dto.RegistroAuditoria;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static com.bancotranquilo.auditoria.FormatoJornal.TAMANHO_REGISTRO;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FormatoJornalTest {
+    
+    @Test
+    void registroIdaEVolta() {
+        // Buffer direto, como o mapeado: o marcador usa acesso alinhado com release/acquire
+        ByteBuffer buffer = ByteBuffer.allocateDirect(2 * TAMANHO_REGISTRO);
+        long instante = 1_700_000_000_123L;
+        
+        FormatoJornal.gravar(buffer, TAMANHO_REGISTRO, 42L, instante, 2_500_000L,
+            EtapaAuditoria.RESPOSTA_BANCO, StatusCompra.CONFIRMADA, "TXN42");
+        
+        assertEquals(new RegistroAuditoria(42L, EtapaAuditoria.RESPOSTA_BANCO, StatusCompra.CONFIRMADA,
+            FormatoJornal.dataHora(instante), 2_500L, "TXN42"), FormatoJornal.ler(buffer, TAMANHO_REGISTRO));
+        assertEquals(42L, FormatoJornal.compraId(buffer, TAMANHO_REGISTRO));
+        assertEquals(instante, FormatoJornal.instante(buffer, TAMANHO_REGISTRO));
+    }
+    
+    @Test
+    void registroSemStatusNemCodigo() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(2 * TAMANHO_REGISTRO);
+        
+        FormatoJornal.gravar(buffer, TAMANHO_REGISTRO, 7L, 0L, 0L, EtapaAuditoria.CRIADA, null, null);
+        
+        RegistroAuditoria registro = FormatoJornal.ler(buffer, TAMANHO_REGISTRO);
+        assertEquals(EtapaAuditoria.CRIADA, registro.getEtapa());
+        assertNull(registro.getStatus());
+        assertNull(registro.getCodigoTransacao());
+        assertEquals(Long.valueOf(0), registro.getLatenciaMicros());
+    }
+    
+    @Test
+    void codigoLongoETruncadoSemInvadirOMarcador() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(3 * TAMANHO_REGISTRO);
+        
+        FormatoJornal.gravar(buffer, TAMANHO_REGISTRO, 1L, 0L, 0L, EtapaAuditoria.FINALIZADA,
+            StatusCompra.ERRO, "X".repeat(40));
+        
+        assertEquals("X".repeat(32), FormatoJornal.ler(buffer, TAMANHO_REGISTRO).getCodigoTransacao());
+        assertFalse(FormatoJornal.completo(buffer, 2 * TAMANHO_REGISTRO));
+    }
+    
+    @Test
+    void registroIncompletoNaoELido() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(2 * TAMANHO_REGISTRO);
+        
+        assertFalse(FormatoJornal.completo(buffer, TAMANHO_REGISTRO));
+        assertNull(FormatoJornal.ler(buffer, TAMANHO_REGISTRO));
+    }
+    
+    @Test
+    void cabecalhoIdaEVolta() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_REGISTRO);
+        
+        assertEquals(-1, FormatoJornal.lerCriacao(buffer));
+        
+        FormatoJornal.gravarCabecalho(buffer, 1_700_000_000_000L);
+        
+        assertEquals(1_700_000_000_000L, FormatoJornal.lerCriacao(buffer));
+        assertTrue(FormatoJornal.completo(buffer, 0));
+    }
+    
+    @Test
+    void nomeDoSegmentoGuardaASequencia() {
+        String nome = FormatoJornal.nomeSegmento(17);
+        Path segmento = Paths.get("auditoria").resolve(nome);
+        
+        assertEquals("auditoria-0000000000000017.seg", nome);
+        assertEquals(17L, FormatoJornal.sequencia(segmento));
+    }
+}
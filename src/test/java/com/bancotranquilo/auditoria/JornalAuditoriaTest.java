@@ -0,0 +1,120 @@
+package com.bancotranquilo.auditoria;
+
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.model.dto.RegistroAuditoria;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.bancotranquilo.auditoria.FormatoJornal.TAMANHO_REGISTRO;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JornalAuditoriaTest {
+    
+    @Test
+    void trocaDeSegmentoQuandoEnche() throws IOException {
+        Path diretorio = Files.createTempDirectory("jornal");
+        try {
+            // Cabeçalho + 3 registros por segmento
+            JornalAuditoria jornal = jornal(diretorio, 32);
+            for (long compraId = 1; compraId <= 7; compraId++) {
+                jornal.registrar(compraId, EtapaAuditoria.CRIADA, StatusCompra.PENDENTE);
+            }
+            jornal.encerrar();
+            
+            List<Path> segmentos = FormatoJornal.listarSegmentos(diretorio);
+            assertEquals(3, segmentos.size());
+            assertEquals(1L, FormatoJornal.sequencia(segmentos.get(0)));
+            assertEquals(3L, FormatoJornal.sequencia(segmentos.get(2)));
+            
+            List<RegistroAuditoria> registros = jornal.buscar(null, null, null, 100);
+            assertEquals(7, registros.size());
+            for (int i = 0; i < registros.size(); i++) {
+                assertEquals(Long.valueOf(i + 1), registros.get(i).getCompraId());
+            }
+        } finally {
+            apagar(diretorio);
+        }
+    }
+    
+    @Test
+    void retencaoApagaOsSegmentosMaisAntigos() throws IOException {
+        Path diretorio = Files.createTempDirectory("jornal");
+        try {
+            JornalAuditoria jornal = jornal(diretorio, 2);
+            for (long compraId = 1; compraId <= 10; compraId++) {
+                jornal.registrar(compraId, EtapaAuditoria.FINALIZADA, StatusCompra.CONFIRMADA, 1_000L, "TXN" + compraId);
+            }
+            jornal.encerrar();
+            
+            // 10 registros ocupam 4 segmentos; só os 2 últimos ficam
+            List<Path> segmentos = FormatoJornal.listarSegmentos(diretorio);
+            assertEquals(2, segmentos.size());
+            assertEquals(3L, FormatoJornal.sequencia(segmentos.get(0)));
+            assertEquals(4L, FormatoJornal.sequencia(segmentos.get(1)));
+            
+            List<RegistroAuditoria> registros = jornal.buscar(null, null, null, 100);
+            assertEquals(4, registros.size());
+            assertEquals(Long.valueOf(7), registros.get(0).getCompraId());
+            assertEquals("TXN10", registros.get(3).getCodigoTransacao());
+        } finally {
+            apagar(diretorio);
+        }
+    }
+    
+    @Test
+    void continuaAPartirDoUltimoSegmentoExistente() throws IOException {
+        Path diretorio = Files.createTempDirectory("jornal");
+        try {
+            JornalAuditoria anterior = jornal(diretorio, 32);
+            anterior.registrar(1L, EtapaAuditoria.CRIADA, StatusCompra.PENDENTE);
+            anterior.encerrar();
+            
+            JornalAuditoria reiniciado = jornal(diretorio, 32);
+            reiniciado.registrar(2L, EtapaAuditoria.CRIADA, StatusCompra.PENDENTE);
+            reiniciado.encerrar();
+            
+            List<Path> segmentos = FormatoJornal.listarSegmentos(diretorio);
+            assertEquals(2, segmentos.size());
+            assertEquals(2L, FormatoJornal.sequencia(segmentos.get(1)));
+            assertEquals(2, reiniciado.buscar(null, null, null, 100).size());
+            assertEquals(1, reiniciado.buscar(2L, null, null, 100).size());
+        } finally {
+            apagar(diretorio);
+        }
+    }
+    
+    @Test
+    void desabilitadoNaoCriaArquivos() throws IOException {
+        Path diretorio = Files.createTempDirectory("jornal");
+        try {
+            JornalAuditoria jornal = new JornalAuditoria(false, diretorio.toString(), 4 * TAMANHO_REGISTRO, 2,
+                new SimpleMeterRegistry());
+            jornal.registrar(1L, EtapaAuditoria.CRIADA, StatusCompra.PENDENTE);
+            
+            assertTrue(FormatoJornal.listarSegmentos(diretorio).isEmpty());
+        } finally {
+            apagar(diretorio);
+        }
+    }
+    
+    private static JornalAuditoria jornal(Path diretorio, int segmentosMaximos) {
+        return new JornalAuditoria(true, diretorio.toString(), 4 * TAMANHO_REGISTRO, segmentosMaximos,
+            new SimpleMeterRegistry());
+    }
+    
+    private static void apagar(Path diretorio) throws IOException {
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            for (Path arquivo : (Iterable<Path>) arquivos.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(arquivo);
+            }
+        }
+    }
+}
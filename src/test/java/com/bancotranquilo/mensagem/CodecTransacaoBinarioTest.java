@@ -0,0 +1,78 @@
+package com.bancotranquilo.mensagem;
+
+import com.bancotranquilo.model.dto.TransacaoRequest;
+import com.bancotranquilo.model.dto.TransacaoResponse;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CodecTransacaoBinarioTest {
+    
+    @Test
+    void requestIdaEVolta() {
+        TransacaoRequest request = new TransacaoRequest(42L, "4111111111111111", "123", "12/2030",
+                new BigDecimal("199.90"), "cliente@exemplo.com", "Cliente Teste");
+        
+        assertEquals(request, CodecTransacaoBinario.decodificar(CodecTransacaoBinario.codificar(request)));
+    }
+    
+    @Test
+    void requestComCamposNulos() {
+        TransacaoRequest request = new TransacaoRequest();
+        
+        assertEquals(request, CodecTransacaoBinario.decodificar(CodecTransacaoBinario.codificar(request)));
+    }
+    
+    @Test
+    void requestComCamposNoTamanhoMaximo() {
+        TransacaoRequest request = new TransacaoRequest(Long.MAX_VALUE, "9".repeat(19), "9999", "12/2099",
+                new BigDecimal("123456789012345678901234567890.99"), "e".repeat(243) + "@exemplo.com",
+                "João Conceição ".repeat(17));
+        
+        Object decodificada = CodecTransacaoBinario.decodificar(CodecTransacaoBinario.codificar(request));
+        
+        assertEquals(request, decodificada);
+        // A escala do valor é preservada, não só o valor numérico
+        assertEquals(2, ((TransacaoRequest) decodificada).getValor().scale());
+    }
+    
+    @Test
+    void requestComValoresNegativosESemEscala() {
+        TransacaoRequest request = new TransacaoRequest(-1L, "", "", "", new BigDecimal("-5"), "", "");
+        
+        assertEquals(request, CodecTransacaoBinario.decodificar(CodecTransacaoBinario.codificar(request)));
+    }
+    
+    @Test
+    void responseIdaEVolta() {
+        TransacaoResponse aprovada = new TransacaoResponse(7L, true, "Transação aprovada com sucesso", "TXN7");
+        TransacaoResponse recusada = new TransacaoResponse(8L, false, "Transação rejeitada: Saldo insuficiente", null);
+        
+        assertEquals(aprovada, CodecTransacaoBinario.decodificar(CodecTransacaoBinario.codificar(aprovada)));
+        assertEquals(recusada, CodecTransacaoBinario.decodificar(CodecTransacaoBinario.codificar(recusada)));
+    }
+    
+    @Test
+    void responseComCamposNulosENoTamanhoMaximo() {
+        TransacaoResponse nula = new TransacaoResponse();
+        TransacaoResponse grande = new TransacaoResponse(Long.MIN_VALUE, true, "ç".repeat(4096), "T".repeat(255));
+        
+        assertEquals(nula, CodecTransacaoBinario.decodificar(CodecTransacaoBinario.codificar(nula)));
+        assertEquals(grande, CodecTransacaoBinario.decodificar(CodecTransacaoBinario.codificar(grande)));
+    }
+    
+    @Test
+    void recusaVersaoDesconhecidaEMensagemTruncada() {
+        byte[] corpo = CodecTransacaoBinario.codificar(new TransacaoResponse(1L, true, "ok", "TXN1"));
+        byte[] outraVersao = corpo.clone();
+        outraVersao[0] = CodecTransacaoBinario.VERSAO_ESQUEMA + 1;
+        
+        assertThrows(IllegalArgumentException.class, () -> CodecTransacaoBinario.decodificar(outraVersao));
+        assertThrows(IllegalArgumentException.class,
+                () -> CodecTransacaoBinario.decodificar(Arrays.copyOf(corpo, corpo.length - 2)));
+    }
+}
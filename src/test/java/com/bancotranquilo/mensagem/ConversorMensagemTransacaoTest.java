@@ -0,0 +1,78 @@
+package com.bancotranquilo.mensagem;
+
+import com.bancotranquilo.model.dto.TransacaoRequest;
+import com.bancotranquilo.model.dto.TransacaoResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversorMensagemTransacaoTest {
+    
+    private static final TransacaoRequest REQUEST = new TransacaoRequest(42L, "4111111111111111", "123",
+            "12/2030", new BigDecimal("199.90"), "cliente@exemplo.com", "Cliente Teste");
+    private static final TransacaoResponse RESPONSE = new TransacaoResponse(42L, true, "Transação aprovada", "TXN42");
+    
+    private final ConversorMensagemTransacao json = conversor(FormatoMensagem.JSON);
+    private final ConversorMensagemTransacao binario = conversor(FormatoMensagem.BINARIO);
+    
+    @Test
+    void escreveNoFormatoConfigurado() {
+        Message emJson = json.toMessage(REQUEST, new MessageProperties());
+        Message emBinario = binario.toMessage(REQUEST, new MessageProperties());
+        
+        assertEquals(MessageProperties.CONTENT_TYPE_JSON, emJson.getMessageProperties().getContentType());
+        assertEquals(ConversorMensagemTransacao.CONTENT_TYPE_BINARIO, emBinario.getMessageProperties().getContentType());
+        assertTrue(emBinario.getBody().length < emJson.getBody().length);
+    }
+    
+    @Test
+    void escolheODecodificadorPeloContentTypeEOrigemNaoImporta() {
+        // Durante a troca de formato as filas têm mensagens dos dois tipos
+        Message emJson = json.toMessage(RESPONSE, new MessageProperties());
+        Message emBinario = binario.toMessage(RESPONSE, new MessageProperties());
+        
+        assertEquals(RESPONSE, json.fromMessage(emBinario));
+        assertEquals(RESPONSE, binario.fromMessage(emJson));
+        assertEquals(REQUEST, json.fromMessage(binario.toMessage(REQUEST, new MessageProperties())));
+        assertEquals(REQUEST, binario.fromMessage(json.toMessage(REQUEST, new MessageProperties())));
+    }
+    
+    @Test
+    void aceitaContentTypeBinarioComParametros() {
+        Message mensagem = binario.toMessage(RESPONSE, new MessageProperties());
+        mensagem.getMessageProperties().setContentType(ConversorMensagemTransacao.CONTENT_TYPE_BINARIO + ";v=1");
+        
+        assertEquals(RESPONSE, json.fromMessage(mensagem));
+    }
+    
+    @Test
+    void outrosTiposContinuamEmJson() {
+        Message mensagem = binario.toMessage(Map.of("destinatario", "cliente@exemplo.com"), new MessageProperties());
+        
+        assertEquals(MessageProperties.CONTENT_TYPE_JSON, mensagem.getMessageProperties().getContentType());
+        assertEquals(Map.of("destinatario", "cliente@exemplo.com"), binario.fromMessage(mensagem));
+    }
+    
+    @Test
+    void mensagemBinariaInvalidaViraErroDeConversao() {
+        MessageProperties propriedades = new MessageProperties();
+        propriedades.setContentType(ConversorMensagemTransacao.CONTENT_TYPE_BINARIO);
+        
+        assertThrows(MessageConversionException.class,
+                () -> binario.fromMessage(new Message(new byte[] {CodecTransacaoBinario.VERSAO_ESQUEMA, 9}, propriedades)));
+    }
+    
+    private static ConversorMensagemTransacao conversor(FormatoMensagem formato) {
+        return new ConversorMensagemTransacao(new Jackson2JsonMessageConverter(), formato, new SimpleMeterRegistry());
+    }
+}
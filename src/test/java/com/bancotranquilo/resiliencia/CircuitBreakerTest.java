@@ -0,0 +1,106 @@
+package com.bancotranquilo.resiliencia;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+    
+    @Test
+    void permaneceFechadoAbaixoDoMinimoDeChamadas() {
+        CircuitBreaker circuito = new CircuitBreaker("teste", 10, 0.5, 4, 60_000, 2);
+        
+        for (int i = 0; i < 3; i++) {
+            assertTrue(circuito.permitirChamada());
+            circuito.registrarFalha();
+        }
+        
+        assertEquals(EstadoCircuito.FECHADO, circuito.getEstado());
+        assertEquals(1.0, circuito.taxaFalha());
+    }
+    
+    @Test
+    void abreQuandoATaxaDeFalhasAtingeOLimite() {
+        CircuitBreaker circuito = new CircuitBreaker("teste", 10, 0.5, 4, 60_000, 2);
+        
+        circuito.registrarSucesso();
+        circuito.registrarSucesso();
+        circuito.registrarFalha();
+        assertEquals(EstadoCircuito.FECHADO, circuito.getEstado());
+        circuito.registrarFalha();
+        
+        assertEquals(EstadoCircuito.ABERTO, circuito.getEstado());
+        assertFalse(circuito.permitirChamada());
+        assertEquals(1, circuito.getRejeitadas());
+    }
+    
+    @Test
+    void janelaDescartaAsChamadasMaisAntigas() {
+        CircuitBreaker circuito = new CircuitBreaker("teste", 4, 0.75, 4, 60_000, 2);
+        
+        circuito.registrarFalha();
+        circuito.registrarFalha();
+        for (int i = 0; i < 4; i++) {
+            circuito.registrarSucesso();
+        }
+        circuito.registrarFalha();
+        
+        assertEquals(4, circuito.getChamadasRegistradas());
+        assertEquals(0.25, circuito.taxaFalha());
+        assertEquals(EstadoCircuito.FECHADO, circuito.getEstado());
+    }
+    
+    @Test
+    void passaParaSemiAbertoDepoisDoTempoAberto() {
+        CircuitBreaker circuito = new CircuitBreaker("teste", 10, 0.5, 2, 0, 2);
+        circuito.abrir();
+        
+        assertTrue(circuito.permitirChamada());
+        assertEquals(EstadoCircuito.SEMI_ABERTO, circuito.getEstado());
+        assertTrue(circuito.permitirChamada());
+        // Só as chamadas de teste configuradas passam
+        assertFalse(circuito.permitirChamada());
+    }
+    
+    @Test
+    void semiAbertoFechaQuandoTodasAsChamadasDeTesteTemSucesso() {
+        CircuitBreaker circuito = new CircuitBreaker("teste", 10, 0.5, 2, 0, 2);
+        circuito.abrir();
+        circuito.permitirChamada();
+        circuito.permitirChamada();
+        
+        circuito.registrarSucesso();
+        assertEquals(EstadoCircuito.SEMI_ABERTO, circuito.getEstado());
+        circuito.registrarSucesso();
+        
+        assertEquals(EstadoCircuito.FECHADO, circuito.getEstado());
+        assertEquals(0, circuito.getChamadasRegistradas());
+    }
+    
+    @Test
+    void semiAbertoVoltaAAbrirNaPrimeiraFalha() {
+        CircuitBreaker circuito = new CircuitBreaker("teste", 10, 0.5, 2, 0, 2);
+        circuito.abrir();
+        circuito.permitirChamada();
+        circuito.permitirChamada();
+        
+        circuito.registrarSucesso();
+        circuito.registrarFalha();
+        
+        assertEquals(EstadoCircuito.ABERTO, circuito.getEstado());
+    }
+    
+    @Test
+    void cancelarDevolveAChamadaDeTeste() {
+        CircuitBreaker circuito = new CircuitBreaker("teste", 10, 0.5, 2, 0, 1);
+        circuito.abrir();
+        assertTrue(circuito.permitirChamada());
+        assertFalse(circuito.permitirChamada());
+        
+        circuito.cancelarChamada();
+        
+        assertTrue(circuito.permitirChamada());
+    }
+}
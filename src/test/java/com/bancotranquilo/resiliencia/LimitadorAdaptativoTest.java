@@ -0,0 +1,98 @@
+package com.bancotranquilo.resiliencia;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimitadorAdaptativoTest {
+    
+    private static final long RAPIDA = 1_000_000L;
+    private static final long LENTA = 500_000_000L;
+    
+    @Test
+    void recusaQuandoOLimiteEstaEmUso() throws InterruptedException {
+        LimitadorAdaptativo limitador = new LimitadorAdaptativo(2, 1, 10, 100, 0.5);
+        
+        assertTrue(limitador.tentarAdquirir(0));
+        assertTrue(limitador.tentarAdquirir(0));
+        assertFalse(limitador.tentarAdquirir(10));
+        assertEquals(2, limitador.getEmVoo());
+    }
+    
+    @Test
+    void cresceComRespostasRapidasComOLimiteEmUso() throws InterruptedException {
+        LimitadorAdaptativo limitador = new LimitadorAdaptativo(2, 1, 10, 100, 0.5);
+        
+        // Aumento aditivo: cerca de 1 a cada "limite" respostas rápidas
+        for (int i = 0; i < 5; i++) {
+            int vagas = limitador.getLimite();
+            for (int j = 0; j < vagas; j++) {
+                assertTrue(limitador.tentarAdquirir(0));
+            }
+            for (int j = 0; j < vagas; j++) {
+                limitador.liberar(RAPIDA, true);
+            }
+        }
+        
+        assertEquals(4, limitador.getLimite());
+        assertEquals(0, limitador.getEmVoo());
+    }
+    
+    @Test
+    void naoCresceSemUsarOLimite() throws InterruptedException {
+        LimitadorAdaptativo limitador = new LimitadorAdaptativo(8, 1, 10, 100, 0.5);
+        
+        for (int i = 0; i < 50; i++) {
+            limitador.tentarAdquirir(0);
+            limitador.liberar(RAPIDA, true);
+        }
+        
+        assertEquals(8, limitador.getLimite());
+    }
+    
+    @Test
+    void reduzPeloFatorEmFalhaOuLatenciaAcimaDoAlvo() throws InterruptedException {
+        LimitadorAdaptativo limitador = new LimitadorAdaptativo(8, 1, 10, 100, 0.5);
+        
+        limitador.tentarAdquirir(0);
+        limitador.liberar(RAPIDA, false);
+        assertEquals(4, limitador.getLimite());
+        
+        limitador.tentarAdquirir(0);
+        limitador.liberar(LENTA, true);
+        assertEquals(2, limitador.getLimite());
+    }
+    
+    @Test
+    void respeitaOsLimitesMinimoEMaximo() throws InterruptedException {
+        LimitadorAdaptativo limitador = new LimitadorAdaptativo(2, 2, 3, 100, 0.5);
+        
+        for (int i = 0; i < 5; i++) {
+            limitador.tentarAdquirir(0);
+            limitador.liberar(LENTA, false);
+        }
+        assertEquals(2, limitador.getLimite());
+        
+        for (int i = 0; i < 50; i++) {
+            limitador.tentarAdquirir(0);
+            limitador.tentarAdquirir(0);
+            limitador.liberar(RAPIDA, true);
+            limitador.liberar(RAPIDA, true);
+        }
+        assertEquals(3, limitador.getLimite());
+    }
+    
+    @Test
+    void cancelarLiberaAVagaSemAjustarOLimite() throws InterruptedException {
+        LimitadorAdaptativo limitador = new LimitadorAdaptativo(1, 1, 10, 100, 0.5);
+        assertTrue(limitador.tentarAdquirir(0));
+        
+        limitador.cancelar();
+        
+        assertEquals(0, limitador.getEmVoo());
+        assertEquals(1, limitador.getLimite());
+        assertTrue(limitador.tentarAdquirir(0));
+    }
+}
@@ -0,0 +1,128 @@
+package com.bancotranquilo.resiliencia;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimitadorTaxaTest {
+    
+    private static final long UM_SEGUNDO = TimeUnit.SECONDS.toNanos(1);
+    
+    @Test
+    void aceitaARajadaERecusaAProxima() {
+        LimitadorTaxa limitador = new LimitadorTaxa(1, 5);
+        
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limitador.tentarConsumir("cliente"));
+        }
+        
+        assertTrue(limitador.tentarConsumir("cliente") > 0);
+    }
+    
+    @Test
+    void esperaDevolvidaEOTempoAteAProximaFicha() throws InterruptedException {
+        LimitadorTaxa limitador = new LimitadorTaxa(1, 1);
+        assertEquals(0, limitador.tentarConsumir("cliente"));
+        
+        long espera = limitador.tentarConsumir("cliente");
+        
+        // Uma ficha por segundo: falta quase um segundo inteiro, nunca mais que isso
+        assertTrue(espera > UM_SEGUNDO / 2);
+        assertTrue(espera <= UM_SEGUNDO);
+        
+        LimitadorTaxa rapido = new LimitadorTaxa(100, 1);
+        assertEquals(0, rapido.tentarConsumir("cliente"));
+        long esperaRapida = rapido.tentarConsumir("cliente");
+        assertTrue(esperaRapida > 0);
+        TimeUnit.NANOSECONDS.sleep(esperaRapida + TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(0, rapido.tentarConsumir("cliente"));
+    }
+    
+    @Test
+    void mantemATaxaMediaDepoisDaRajada() {
+        double porSegundo = 200;
+        int rajada = 10;
+        LimitadorTaxa limitador = new LimitadorTaxa(porSegundo, rajada);
+        
+        long inicio = System.nanoTime();
+        int aceitas = 0;
+        while (System.nanoTime() - inicio < TimeUnit.MILLISECONDS.toNanos(500)) {
+            if (limitador.tentarConsumir("cliente") == 0) {
+                aceitas++;
+            }
+        }
+        double decorridos = (System.nanoTime() - inicio) / (double) UM_SEGUNDO;
+        
+        assertTrue(aceitas <= rajada + decorridos * porSegundo + 1);
+        assertTrue(aceitas >= decorridos * porSegundo * 0.9);
+    }
+    
+    @Test
+    void chavesTemBaldesIndependentes() {
+        LimitadorTaxa limitador = new LimitadorTaxa(1, 1);
+        
+        assertEquals(0, limitador.tentarConsumir("a"));
+        assertTrue(limitador.tentarConsumir("a") > 0);
+        
+        assertEquals(0, limitador.tentarConsumir("b"));
+        assertEquals(2, limitador.getChaves());
+    }
+    
+    @Test
+    void limparRemoveSoAsChavesComBaldeCheio() throws InterruptedException {
+        LimitadorTaxa limitador = new LimitadorTaxa(200, 1);
+        LimitadorTaxa lento = new LimitadorTaxa(1, 1);
+        limitador.tentarConsumir("cliente");
+        lento.tentarConsumir("cliente");
+        
+        assertEquals(0, limitador.limpar());
+        
+        TimeUnit.MILLISECONDS.sleep(20);
+        assertEquals(1, limitador.limpar());
+        assertEquals(0, limitador.getChaves());
+        // A chave removida volta com o balde cheio
+        assertEquals(0, limitador.tentarConsumir("cliente"));
+        
+        assertEquals(0, lento.limpar());
+        assertEquals(1, lento.getChaves());
+    }
+    
+    @Test
+    void threadsConcorrentesNaoUltrapassamARajada() throws InterruptedException {
+        // Uma ficha a cada 10 s: durante o teste só a rajada pode ser aceita
+        LimitadorTaxa limitador = new LimitadorTaxa(0.1, 50);
+        AtomicInteger aceitas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    largada.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 1000; j++) {
+                    if (limitador.tentarConsumir("cliente") == 0) {
+                        aceitas.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        
+        largada.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        assertEquals(50, aceitas.get());
+    }
+}
@@ -0,0 +1,105 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.model.dto.CompraResumo;
+import com.bancotranquilo.model.dto.FiltroCompras;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompraServiceTest {
+    
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 3, 10, 14, 0);
+    private static final LocalDateTime T1 = T0.plusSeconds(1);
+    private static final LocalDateTime T2 = T0.plusNanos(1_500_000);
+    
+    @Test
+    void cursorIdaEVolta() {
+        for (LocalDateTime dataCriacao : List.of(T0, T1, T2)) {
+            String cursor = CompraService.codificarCursor(dataCriacao, 42L);
+            FiltroCompras filtro = new FiltroCompras();
+            
+            CompraService.aplicarCursor(filtro, cursor);
+            
+            assertEquals(dataCriacao, filtro.getCursorDataCriacao());
+            assertEquals(Long.valueOf(42), filtro.getCursorId());
+            // Vai na query string sem precisar de escape
+            assertFalse(cursor.contains("=") || cursor.contains("+") || cursor.contains("/"));
+        }
+    }
+    
+    @Test
+    void semCursorComecaDoInicio() {
+        FiltroCompras filtro = new FiltroCompras();
+        
+        CompraService.aplicarCursor(filtro, null);
+        CompraService.aplicarCursor(filtro, " ");
+        
+        assertNull(filtro.getCursorDataCriacao());
+        assertNull(filtro.getCursorId());
+    }
+    
+    @Test
+    void cursorInvalidoEIllegalArgumentException() {
+        for (String cursor : List.of("não é base64!", base64("sem-separador"), base64("2024-03-10T14:00_abc"),
+                                     base64("ontem_42"))) {
+            assertThrows(IllegalArgumentException.class, () -> CompraService.aplicarCursor(new FiltroCompras(), cursor));
+        }
+    }
+    
+    @Test
+    void mesclarOrdenaPorDataEIdNosEmpates() {
+        Stream<CompraResumo> quentes = Stream.of(resumo(5, T1), resumo(9, T0), resumo(3, T0));
+        // A 3 foi arquivada entre as duas consultas e aparece nas duas
+        Stream<CompraResumo> arquivadas = Stream.of(resumo(4, T1), resumo(7, T0), resumo(3, T0),
+                                                    resumo(1, T0.minusDays(1)));
+        
+        List<Long> ids = CompraService.mesclar(quentes, arquivadas)
+            .map(CompraResumo::getId)
+            .collect(Collectors.toList());
+        
+        assertEquals(List.of(5L, 4L, 9L, 7L, 3L, 1L), ids);
+    }
+    
+    @Test
+    void mesclarComUmLadoVazio() {
+        assertEquals(List.of(2L, 1L), CompraService.mesclar(Stream.empty(), Stream.of(resumo(2, T0), resumo(1, T0)))
+            .map(CompraResumo::getId)
+            .collect(Collectors.toList()));
+        assertEquals(List.of(2L, 1L), CompraService.mesclar(Stream.of(resumo(2, T0), resumo(1, T0)), Stream.empty())
+            .map(CompraResumo::getId)
+            .collect(Collectors.toList()));
+    }
+    
+    @Test
+    void fecharAMesclaFechaAsDuasConsultas() {
+        AtomicInteger fechadas = new AtomicInteger();
+        Stream<CompraResumo> quentes = Stream.of(resumo(1, T0)).onClose(fechadas::incrementAndGet);
+        Stream<CompraResumo> arquivadas = Stream.<CompraResumo>empty().onClose(fechadas::incrementAndGet);
+        
+        try (Stream<CompraResumo> mescladas = CompraService.mesclar(quentes, arquivadas)) {
+            mescladas.limit(1).collect(Collectors.toList());
+        }
+        
+        assertEquals(2, fechadas.get());
+    }
+    
+    private static CompraResumo resumo(long id, LocalDateTime dataCriacao) {
+        return new CompraResumo(id, StatusCompra.CONFIRMADA, null, dataCriacao, dataCriacao);
+    }
+    
+    private static String base64(String valor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,51 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.model.dto.EmailConfirmacao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailServiceTest {
+    
+    private final EmailService emailService = new EmailService(null, null, new SimpleMeterRegistry(), 4, 500, 10000);
+    
+    @Test
+    void corpoDaConfirmacao() {
+        EmailConfirmacao email = new EmailConfirmacao(42L, "cliente@exemplo.com", "Cliente Teste",
+            new BigDecimal("199.90"), LocalDateTime.of(2024, 3, 10, 14, 30, 5));
+        
+        assertEquals("Olá Cliente Teste,\n\n" +
+                     "Sua compra foi confirmada com sucesso!\n\n" +
+                     "Detalhes da transação:\n" +
+                     "ID da Compra: 42\n" +
+                     "Valor: R$ 199,90\n" +
+                     "Data de Confirmação: 2024-03-10T14:30:05\n\n" +
+                     "Agradecemos pela preferência!\n\n" +
+                     "Atenciosamente,\n" +
+                     "Banco Tranquilo",
+                     emailService.construirCorpoEmail(email));
+    }
+    
+    @Test
+    void valorArredondadoSemSeparadorDeMilhar() {
+        assertTrue(corpo("1234567.891").contains("Valor: R$ 1234567,89\n"));
+        assertTrue(corpo("0.005").contains("Valor: R$ 0,01\n"));
+        assertTrue(corpo("7").contains("Valor: R$ 7,00\n"));
+    }
+    
+    @Test
+    void semDataDeConfirmacao() {
+        assertTrue(emailService.construirCorpoEmail(new EmailConfirmacao(1L, "cliente@exemplo.com", "Cliente Teste",
+            BigDecimal.TEN, null)).contains("Data de Confirmação: N/A\n"));
+    }
+    
+    private String corpo(String valor) {
+        return emailService.construirCorpoEmail(new EmailConfirmacao(1L, "cliente@exemplo.com", "Cliente Teste",
+            new BigDecimal(valor), LocalDateTime.of(2024, 3, 10, 14, 30)));
+    }
+}
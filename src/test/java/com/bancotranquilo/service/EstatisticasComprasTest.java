@@ -0,0 +1,217 @@
+package com.bancotranquilo.service;
+
+import com.bancotranquilo.model.EstatisticaCompra;
+import com.bancotranquilo.model.EstatisticaCompraId;
+import com.bancotranquilo.model.StatusCompra;
+import com.bancotranquilo.model.TipoEstatistica;
+import com.bancotranquilo.model.dto.EmailConfirmacao;
+import com.bancotranquilo.model.dto.ResumoEstatisticas;
+import com.bancotranquilo.repository.EstatisticaCompraRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EstatisticasComprasTest {
+    
+    private final TabelaEmMemoria tabela = new TabelaEmMemoria();
+    private final EstatisticasCompras estatisticas = new EstatisticasCompras(tabela.repository(),
+        new TransactionTemplate(new TransacaoSemBanco()), 3, 5);
+    
+    @Test
+    void somaOsEventosNosContadoresEmMemoria() {
+        estatisticas.start();
+        
+        estatisticas.registrarCriadas(3);
+        estatisticas.registrarTransicao(StatusCompra.PENDENTE, StatusCompra.PROCESSANDO, 2);
+        estatisticas.registrarConfirmadas(StatusCompra.PROCESSANDO, List.of(confirmada("10.50"), confirmada("0.255")));
+        
+        ResumoEstatisticas resumo = estatisticas.consultar(1, 1);
+        assertEquals(Long.valueOf(1), resumo.getPorStatus().get(StatusCompra.PENDENTE));
+        assertEquals(Long.valueOf(0), resumo.getPorStatus().get(StatusCompra.PROCESSANDO));
+        assertEquals(Long.valueOf(2), resumo.getPorStatus().get(StatusCompra.CONFIRMADA));
+        assertEquals(2, resumo.getAprovadoPorDia().get(0).getQuantidade());
+        assertEquals(new BigDecimal("10.76"), resumo.getAprovadoPorDia().get(0).getValor());
+        assertEquals(new BigDecimal("10.76"), resumo.getAprovadoPorHora().get(0).getValor());
+        // Nada foi gravado ainda: tudo está no delta
+        assertEquals(0, tabela.acumulados);
+    }
+    
+    @Test
+    void cargaInicialSoComATabelaVazia() {
+        tabela.carga.put(id(TipoEstatistica.TOTAL, EstatisticasCompras.PERIODO_TOTAL, StatusCompra.CONFIRMADA), 7L);
+        
+        estatisticas.start();
+        
+        assertEquals(1, tabela.cargas);
+        assertEquals(Long.valueOf(7), estatisticas.consultar(1, 1).getPorStatus().get(StatusCompra.CONFIRMADA));
+        
+        EstatisticasCompras outraInstancia = new EstatisticasCompras(tabela.repository(),
+            new TransactionTemplate(new TransacaoSemBanco()), 3, 5);
+        outraInstancia.start();
+        
+        assertEquals(1, tabela.cargas);
+        assertEquals(Long.valueOf(7), outraInstancia.consultar(1, 1).getPorStatus().get(StatusCompra.CONFIRMADA));
+    }
+    
+    @Test
+    void gravarDescarregaODeltaSemContarDuasVezes() {
+        estatisticas.start();
+        estatisticas.registrarCriadas(4);
+        estatisticas.registrarConfirmadas(StatusCompra.PENDENTE, List.of(confirmada("20.00")));
+        
+        estatisticas.gravar();
+        
+        EstatisticaCompra pendentes = tabela.linhas.get(id(TipoEstatistica.TOTAL, EstatisticasCompras.PERIODO_TOTAL,
+            StatusCompra.PENDENTE));
+        assertEquals(3, pendentes.getQuantidade());
+        ResumoEstatisticas resumo = estatisticas.consultar(1, 1);
+        assertNotNull(resumo.getUltimaGravacao());
+        assertEquals(Long.valueOf(3), resumo.getPorStatus().get(StatusCompra.PENDENTE));
+        assertEquals(new BigDecimal("20.00"), resumo.getAprovadoPorDia().get(0).getValor());
+        
+        int acumulados = tabela.acumulados;
+        estatisticas.gravar();
+        
+        assertEquals(acumulados, tabela.acumulados);
+        assertEquals(Long.valueOf(3), estatisticas.consultar(1, 1).getPorStatus().get(StatusCompra.PENDENTE));
+    }
+    
+    @Test
+    void falhaNaGravacaoDevolveODeltaParaOProximoCiclo() {
+        estatisticas.start();
+        estatisticas.registrarCriadas(2);
+        tabela.falhar = true;
+        
+        estatisticas.gravar();
+        
+        assertEquals(Long.valueOf(2), estatisticas.consultar(1, 1).getPorStatus().get(StatusCompra.PENDENTE));
+        
+        tabela.falhar = false;
+        estatisticas.gravar();
+        
+        assertEquals(2, tabela.linhas.get(id(TipoEstatistica.TOTAL, EstatisticasCompras.PERIODO_TOTAL,
+            StatusCompra.PENDENTE)).getQuantidade());
+        assertEquals(Long.valueOf(2), estatisticas.consultar(1, 1).getPorStatus().get(StatusCompra.PENDENTE));
+    }
+    
+    @Test
+    void falhaNaCargaInicialETentadaDeNovoNaGravacao() {
+        tabela.falhar = true;
+        estatisticas.start();
+        estatisticas.registrarCriadas(1);
+        
+        assertEquals(0, tabela.cargas);
+        assertNull(estatisticas.consultar(1, 1).getUltimaGravacao());
+        
+        tabela.falhar = false;
+        tabela.carga.put(id(TipoEstatistica.TOTAL, EstatisticasCompras.PERIODO_TOTAL, StatusCompra.PENDENTE), 1L);
+        estatisticas.gravar();
+        
+        // A compra criada antes da carga já está nela e não é somada de novo
+        assertEquals(1, tabela.cargas);
+        assertEquals(Long.valueOf(1), estatisticas.consultar(1, 1).getPorStatus().get(StatusCompra.PENDENTE));
+    }
+    
+    @Test
+    void limitaDiasEHorasConsultados() {
+        estatisticas.start();
+        
+        ResumoEstatisticas acima = estatisticas.consultar(30, 100);
+        ResumoEstatisticas abaixo = estatisticas.consultar(0, -1);
+        
+        assertEquals(3, acima.getAprovadoPorDia().size());
+        assertEquals(5, acima.getAprovadoPorHora().size());
+        assertEquals(1, abaixo.getAprovadoPorDia().size());
+        assertEquals(1, abaixo.getAprovadoPorHora().size());
+        LocalDateTime hoje = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+        assertEquals(hoje.minusDays(2), acima.getAprovadoPorDia().get(2).getPeriodo());
+    }
+    
+    private static EmailConfirmacao confirmada(String valor) {
+        return new EmailConfirmacao(1L, "cliente@exemplo.com", "Cliente Teste", new BigDecimal(valor),
+            LocalDateTime.now());
+    }
+    
+    private static EstatisticaCompraId id(TipoEstatistica tipo, LocalDateTime periodo, StatusCompra status) {
+        return new EstatisticaCompraId(tipo, periodo, status);
+    }
+    
+    /**
+     * estatisticas_compras em memória, com as consultas que {@link EstatisticasCompras} usa.
+     */
+    private static final class TabelaEmMemoria {
+        
+        private final Map<EstatisticaCompraId, EstatisticaCompra> linhas = new HashMap<>();
+        private final Map<EstatisticaCompraId, Long> carga = new HashMap<>();
+        private boolean falhar;
+        private int cargas;
+        private int acumulados;
+        
+        EstatisticaCompraRepository repository() {
+            return (EstatisticaCompraRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {EstatisticaCompraRepository.class}, (proxy, metodo, args) -> {
+                    if (falhar) {
+                        throw new IllegalStateException("Banco fora do ar");
+                    }
+                    switch (metodo.getName()) {
+                        case "count":
+                            return (long) linhas.size();
+                        case "inicializarTotais":
+                            cargas++;
+                            carga.forEach((id, quantidade) -> linhas.put(id, new EstatisticaCompra(id.getTipo(),
+                                id.getPeriodo(), id.getStatus(), quantidade, BigDecimal.ZERO.setScale(2))));
+                            return carga.size();
+                        case "inicializarDias":
+                        case "inicializarHoras":
+                        case "removerHorasAntigas":
+                            return 0;
+                        case "acumular":
+                            acumulados++;
+                            EstatisticaCompraId id = id(TipoEstatistica.valueOf((String) args[0]), (LocalDateTime) args[1],
+                                StatusCompra.valueOf((String) args[2]));
+                            linhas.merge(id, new EstatisticaCompra(id.getTipo(), id.getPeriodo(), id.getStatus(),
+                                (long) args[3], (BigDecimal) args[4]), (antiga, nova) -> new EstatisticaCompra(
+                                antiga.getTipo(), antiga.getPeriodo(), antiga.getStatus(),
+                                antiga.getQuantidade() + nova.getQuantidade(), antiga.getValor().add(nova.getValor())));
+                            return 1;
+                        case "buscarRecentes":
+                            return new ArrayList<>(linhas.values());
+                        default:
+                            throw new UnsupportedOperationException(metodo.getName());
+                    }
+                });
+        }
+    }
+    
+    private static final class TransacaoSemBanco implements PlatformTransactionManager {
+        
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definicao) {
+            return new SimpleTransactionStatus();
+        }
+        
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+        
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}